@@ -7,7 +7,9 @@ import Core.Exceptions.DataValueException;
 import Core.Exceptions.NormalizationException;
 import Core.Exceptions.VectorLengthException;
 import Core.QRegister;
+import Core.Sampler;
 import Operators.Hadamard.HadamardBitOperator;
+import java.util.Map;
 
 /**
  * Simulation of the Deutsch-Jozsa algorithm, for any number of qubits. The
@@ -64,6 +66,49 @@ public class DeutschJozsaAlgorithm implements Algorithm {
      */
     @Override
     public AlgorithmOutput run() {
+        this.evolve();
+
+        /*
+         * The register (all qubits apart from the control qubit, the first one)
+         * is measured. 0 means the function is constant, any other number means
+         * the function is balanced
+         */
+        int result = 0;
+        try {
+            result = register.measure(1, register.getBitCount() - 1);
+        } catch (NormalizationException ex) {
+            System.out.println("Error measuring!");
+        } catch (VectorLengthException ex) {
+            System.out.println("Error measuring!");
+        }
+
+        //The result is returned using an DeutschJoszOutput object.
+        return new DeutschJozsaOutput(result);
+
+    }
+
+    /**
+     * Runs the algorithm once and draws a number of measurements of all
+     * qubits apart from the control qubit from the final state, without
+     * running it again for every shot.
+     *
+     * @param shots Number of measurements to draw.
+     * @return Histogram from the measurement (0: constant, &gt;0: balanced) to
+     * the number of times it was drawn.
+     * @throws NormalizationException The final state has no non-zero
+     * amplitude.
+     */
+    public Map<Long, Integer> sample(int shots) throws NormalizationException {
+        this.evolve();
+
+        return new Sampler(register).sample(shots, 1, register.getBitCount() - 1);
+    }
+
+    /**
+     * Applies the Hadamard gates and the oracle to a new register, leaving the
+     * register in the state right before the measurement.
+     */
+    private void evolve() {
         //Initializes the register, so the algorithm can be run again.
         this.initializeRegister(n);
 
@@ -73,7 +118,7 @@ public class DeutschJozsaAlgorithm implements Algorithm {
         for (int i = 0; i < n; i++) {
             h = new HadamardBitOperator(i);
             try {
-                register = h.apply(this.register);
+                h.applyInPlace(this.register);
             } catch (BitOutOfBoundsException ex) {
                 System.out.println("Error applying the first set of Hadamard gates!");
             }
@@ -90,28 +135,10 @@ public class DeutschJozsaAlgorithm implements Algorithm {
         for (int i = 1; i < n; i++) {
             try {
                 h = new HadamardBitOperator(i);
-                register = h.apply(this.register);
+                h.applyInPlace(this.register);
             } catch (BitOutOfBoundsException ex) {
                 System.out.println("Error applying the second set of Hadamard gates");
             }
         }
-
-        /*
-         * The register (all qubits apart from the control qubit, the first one)
-         * is measured. 0 means the function is constant, any other number means
-         * the function is balanced
-         */
-        int result = 0;
-        try {
-            result = register.measure(1, register.getBitCount() - 1);
-        } catch (NormalizationException ex) {
-            System.out.println("Error measuring!");
-        } catch (VectorLengthException ex) {
-            System.out.println("Error measuring!");
-        }
-
-        //The result is returned using an DeutschJoszOutput object.
-        return new DeutschJozsaOutput(result);
-
     }
 }
\ No newline at end of file
@@ -5,11 +5,9 @@ import Core.AlgorithmOutput;
 import Core.Exceptions.BitOutOfBoundsException;
 import Core.Exceptions.DataValueException;
 import Core.Exceptions.VectorLengthException;
-import Core.Math.Complex;
 import Core.Math.ComplexVector;
 import Core.QRegister;
 import Operators.Hadamard.HadamardBitOperator;
-import Operators.Hadamard.HadamardOperator;
 
 /**
  * Class Implementing Grover Algorithm
@@ -45,9 +43,9 @@ public abstract class GroverAlgorithm implements Algorithm {
 
             //Apply hadamard to every bit
             for (int bitIdx = 0; bitIdx < oracle.getBitCount(); bitIdx++) {
-                HadamardOperator operator = new HadamardBitOperator(bitIdx);
+                HadamardBitOperator operator = new HadamardBitOperator(bitIdx);
 
-                register = operator.apply(register);
+                operator.applyInPlace(register);
             }
 
             return register;
@@ -73,16 +71,14 @@ public abstract class GroverAlgorithm implements Algorithm {
      * @return Grovers initial step QRegister.
      */
     protected QRegister getSuperpositionFast() {
-        //Initial vector of (1,...,1)
-        Complex[] vector = new Complex[oracle.getBaseCount()];
+        //Initial vector of (1,...,1) multiplied by inverse of sqrt to normalize
+        ComplexVector v = new ComplexVector(oracle.getBaseCount());
+        double amplitude = 1.0 / Math.sqrt(oracle.getBaseCount());
 
         for (int i = 0; i < oracle.getBaseCount(); i++) {
-            vector[i] = new Complex(1.0f, 0.0f);
+            v.setComponent(amplitude, 0.0, i);
         }
 
-        //Multiply by inverse of sqrt to normalize
-        ComplexVector v = new ComplexVector(vector);
-        v = v.scalarMultiply(new Complex(1.0f / (float) Math.sqrt(oracle.getBaseCount()), 0.0f));
         try {
             v.normalize();
         } catch (VectorLengthException E) {
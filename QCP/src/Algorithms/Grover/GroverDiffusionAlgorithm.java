@@ -29,17 +29,14 @@ public class GroverDiffusionAlgorithm extends GroverAlgorithm {
 
         int bases = oracle.getBaseCount();
 
-        Complex elements = new Complex(2.0f / bases, 0);
-        Complex elementsDiagonal = new Complex(2 / bases - 1, 0);
+        //2/N off the diagonal and 2/N - 1 on it
+        double element = 2.0 / bases;
+        double elementDiagonal = 2.0 / bases - 1.0;
 
         //if we had an intelligent matrix implementation we could save a ton of memory here...
         for (int row = 0; row < bases; row++) {
             for (int column = 0; column < bases; column++) {
-                if (row == column) {
-                    diffusion.setElement(row, column, elementsDiagonal);
-                } else {
-                    diffusion.setElement(row, column, elements);
-                }
+                diffusion.set(row, column, (row == column) ? elementDiagonal : element, 0.0);
             }
         }
     }
@@ -2,11 +2,11 @@ package Algorithms.Grover;
 
 import Core.Exceptions.BitOutOfBoundsException;
 import Core.Exceptions.NormalizationException;
-import Core.Exceptions.VectorLengthException;
-import Core.Math.Complex;
+import Core.Math.StateBuffer;
 import Core.QRegister;
+import Core.Sampler;
 import Operators.Hadamard.HadamardBitOperator;
-import Operators.Hadamard.HadamardOperator;
+import java.util.Map;
 
 /**
  * Runs Grovers Algorithm base-wise (using Hadamard gates)
@@ -31,72 +31,122 @@ public class GroverOptAlgorithm extends GroverAlgorithm {
     @Override
     public GroverOutput run() {
         //Calculate number of steps to take
-        int recursions = (int) Math.floor(Math.PI / 4.0f * Math.sqrt(oracle.getBaseCount()));
+        int recursions = this.steps();
         System.out.println("Steps: " + recursions);
 
         //Create initial QRegister
         QRegister initial = getSuperpositionFast();
 
         //Comment this out to save memory.
-        GroverDisplay display = new GroverDisplay(initial.getComplexVector(), oracle.getAnswerRegister().getComplexVector());
+        //The initial state is used as a basis by the display, it is copied as the register is changed in place.
+        GroverDisplay display = new GroverDisplay(initial.getComplexVector().copy(), oracle.getAnswerRegister().getComplexVector());
 
         //Start to iterator through steps
+        HadamardBitOperator[] hadamards = this.hadamards();
         for (int step = 0; step < recursions; step++) {
             System.out.println("Step: " + step);
 
-            //Apply Oracle
-            for (int base = 0; base < oracle.getBaseCount(); base++) {
-                if (oracle.recognize(base)) {
-                    initial.setAmplitude(base, initial.getAmplitude(base).multiply(new Complex(-1.0f, 0.0f)));
-                }
-            }
+            this.iterate(initial, hadamards);
 
-            //Apply hadamard to entire register
-            for (int bit = 0; bit < oracle.getBitCount(); bit++) {
-                HadamardOperator op = new HadamardBitOperator(bit);
+            //The display keeps every step, so it is given a copy of the state
+            display.vectors.add(initial.getComplexVector().copy());
+            display.repaint();
+        }
 
-                try {
-                    initial = op.apply(initial);
-                } catch (BitOutOfBoundsException E) {
-                    //Never happens due to oracle.
-                } catch (Throwable E) {
-                }
-            }
+        //Draw from the final state until the oracle recognizes the answer, instead of running again
+        Sampler sampler = null;
 
-            //Apply I_|0>
-            initial.setAmplitude(0, initial.getAmplitude(0).multiply(new Complex(-1.0f, 0.0f)));
+        try {
+            sampler = new Sampler(initial);
+        } catch (NormalizationException ex) {
+            System.exit(1);
+        }
 
-            //Apply hadamard to entire register
-            for (int bit = 0; bit < oracle.getBitCount(); bit++) {
-                HadamardOperator op = new HadamardBitOperator(bit);
+        int measure = (int) sampler.draw();
+        while (oracle.recognize(measure) != true) {
+            measure = (int) sampler.draw();
+        }
 
-                try {
-                    initial = op.apply(initial);
-                } catch (BitOutOfBoundsException E) {
-                    //Never happens due to oracle.
-                } catch (Throwable E) {
-                }
-            }
+        return new GroverOutput(measure);
+    }
 
-            display.vectors.add(initial.getComplexVector());
-            display.repaint();
+    /**
+     * Runs the algorithm once and draws a number of measurements from the
+     * final state, without running it again for every shot. Nothing is
+     * printed or displayed.
+     *
+     * @param shots Number of measurements to draw.
+     * @return Histogram from the bases measured to the number of times they
+     * were drawn.
+     * @throws NormalizationException The final state has no non-zero
+     * amplitude.
+     */
+    public Map<Long, Integer> sample(int shots) throws NormalizationException {
+        QRegister initial = getSuperpositionFast();
+
+        int recursions = this.steps();
+        HadamardBitOperator[] hadamards = this.hadamards();
+        for (int step = 0; step < recursions; step++) {
+            this.iterate(initial, hadamards);
         }
 
-        int measure = 0;
+        return initial.sample(shots);
+    }
 
-        try {
-            measure = initial.measure();
-        } catch (NormalizationException ex) {
-            System.exit(1);
-        } catch (VectorLengthException ex) {
-            System.exit(2);
+    /**
+     * Returns the number of Grover iterations for the oracle.
+     */
+    private int steps() {
+        return (int) Math.floor(Math.PI / 4.0f * Math.sqrt(oracle.getBaseCount()));
+    }
+
+    /**
+     * Returns the hadamard operators of every qubit, they are buffered and
+     * applied in place every step.
+     */
+    private HadamardBitOperator[] hadamards() {
+        HadamardBitOperator[] out = new HadamardBitOperator[oracle.getBitCount()];
+        for (int bit = 0; bit < oracle.getBitCount(); bit++) {
+            out[bit] = new HadamardBitOperator(bit);
         }
+        return out;
+    }
+
+    /**
+     * Applies one Grover iteration to the register in place.
+     *
+     * @param initial The register the iteration is applied to.
+     * @param hadamards The hadamard operators of every qubit.
+     */
+    private void iterate(QRegister initial, HadamardBitOperator[] hadamards) {
+        StateBuffer amplitudes = initial.getStateBuffer();
 
+        //Apply Oracle
+        for (int base = 0; base < oracle.getBaseCount(); base++) {
+            if (oracle.recognize(base)) {
+                amplitudes.set(base, -amplitudes.getReal(base), -amplitudes.getImaginary(base));
+            }
+        }
 
-        if (oracle.recognize(measure) != true) {
-            return this.run();
+        //Apply hadamard to entire register
+        for (int bit = 0; bit < oracle.getBitCount(); bit++) {
+            try {
+                hadamards[bit].applyInPlace(initial);
+            } catch (BitOutOfBoundsException E) {
+                //Never happens due to oracle.
+            }
         }
 
-        return new GroverOutput(measure);
+        //Apply I_|0>
+        amplitudes.set(0, -amplitudes.getReal(0), -amplitudes.getImaginary(0));
+
+        //Apply hadamard to entire register
+        for (int bit = 0; bit < oracle.getBitCount(); bit++) {
+            try {
+                hadamards[bit].applyInPlace(initial);
+            } catch (BitOutOfBoundsException E) {
+                //Never happens due to oracle.
+            }
+        }
     }
 }
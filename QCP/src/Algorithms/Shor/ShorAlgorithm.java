@@ -2,14 +2,13 @@ package Algorithms.Shor;
 
 import Classical.Algorithms.EuclidianAlgorithm;
 import Core.Algorithm;
+import Core.Exceptions.BitOutOfBoundsException;
 import Core.Exceptions.NegativeIndexException;
 import Core.Exceptions.NormalizationException;
 import Core.Exceptions.VectorLengthException;
-import Core.Math.Complex;
 import Core.Math.IsOdd;
-import Core.Math.Matrix;
 import Core.QRegister;
-import Operators.QFT.QFTMatrix;
+import Operators.QFT.QFTFFTOperator;
 import Operators.ShorFunction.ShorFunction;
 import java.math.BigInteger;
 import java.util.Random;
@@ -19,7 +18,17 @@ import java.util.Random;
  */
 public class ShorAlgorithm implements Algorithm {
 
-    private int n, m, L, period;
+    /**
+     * The number being factored, the random base and the number of qubits
+     * of the first register, used by the quantum part.
+     */
+    protected int n, m, L;
+    /**
+     * Number of times the quantum part is run for the same m before another
+     * m is drawn.
+     */
+    private static final int QUANTUM_ATTEMPTS = 4;
+    private int period;
     private BigInteger bigm, bign, bigperiod;
 
     /**
@@ -39,11 +48,12 @@ public class ShorAlgorithm implements Algorithm {
      * @return Output of Shor's Algorithm, can be converted to human readable
      * string using ShorOutput class
      * @throws NormalizationException
+     * @throws BitOutOfBoundsException
      * @throws Exception
      * @throws VectorLengthException
      * @throws NegativeIndexException
      */
-    public ShorOutput run() throws NormalizationException, Exception, VectorLengthException, NegativeIndexException {
+    public ShorOutput run() throws NormalizationException, BitOutOfBoundsException, Exception, VectorLengthException, NegativeIndexException {
         ShorOutput out = null;
         //Generating random value for m
         Random rand = new Random();
@@ -56,63 +66,26 @@ public class ShorAlgorithm implements Algorithm {
             out = this.run();
         } else {
             bigm = BigInteger.valueOf(m);
-
-            System.out.println("Quantum section started.");
-            //Doing quantum part of algorithm
-            int quantumout = this.quantumPart();
-            System.out.println("Quantum Part done");
-            //Running through continued fraction algorithm
-            double epsilon = (double) quantumout / Math.pow(2, L);
-            int aZero = (int) (epsilon);
-            int qZero = 1;
-            double epsilonZero = epsilon - aZero;
-            int a1 = (int) (1.0 / epsilonZero);
-            int q1 = a1;
-            //Ints to store previous values 
-
-            int qNMinus1 = q1;
-            int qUtil = 1;
-            int qNMinus2 = qZero;
-            // datatypes to store current values
-            int an = a1;
-            double epsilonN = (1.0 / epsilonZero) - a1;
-            int qn = q1;
-
-            //Iterating through testing the values of q to see if they are the period
-            while (epsilonN != 0) {
-                an = (int) (1.0 / epsilonN);
-                qUtil = qn;
-                qn = an * qNMinus1 + qNMinus2;
-
-                qNMinus2 = qNMinus1;
-                qNMinus1 = qUtil;
-                //System.out.println(qn + " qn     " + qNMinus1 + " qNMinus1 " + qNMinus2 + " qNMinus2    " + epsilonN + " epsilonN  " + an + "  an");
-                epsilonN = (1.0 / epsilonN) - an;
-
-                if (epsilonN < 1.0e-10) {
-
-                    epsilonN = 0;
-                }
-                BigInteger bigqn = BigInteger.valueOf(qn);
-
-
-                if (bigm.modPow(bigqn, bign).longValue() == 1) {
-                    // Below Needs to happen as if it is zero will go into if loop below and say fail when in reality it works
-                    epsilonN = 1;
-                    break;
-                }
-                if (epsilonN == 0) {
-
-                    break;
-
+            L = this.getL();
+
+            //The expansion fails for some outputs of the quantum part, those are retried with the same m and L
+            int qn = 0;
+            for (int attempt = 0; attempt < QUANTUM_ATTEMPTS && qn == 0; attempt++) {
+                System.out.println("Quantum section started.");
+                //Doing quantum part of algorithm
+                int quantumout = this.quantumPart();
+                System.out.println("Quantum Part done");
+                qn = this.period(quantumout);
+                if (qn == 0) {
+                    System.out.println("Failed to find Period as epsilonN became 0");
                 }
             }
 
-            if (epsilonN == 0) {
+            if (qn == 0) {
 
-                System.out.println("Failed to find Period as epsilonN became 0");
+                System.out.println("No period found for this m, running again");
                 out = this.run();
-            } //if the loop fails run again to redo the quantum part euclid step not nessecary but is fast
+            } //if the quantum part keeps failing run again with another m
             //if succesful in obtaining the period
             else {
                 period = qn;
@@ -149,6 +122,69 @@ public class ShorAlgorithm implements Algorithm {
 
     }
 
+    /**
+     * Runs the continued fraction algorithm on the output of the quantum part
+     * and returns the first denominator q with m^q = 1 mod N.
+     *
+     * @param quantumout Output from Quantum Part
+     * @return the period, or 0 if the expansion failed
+     */
+    private int period(int quantumout) {
+        //Running through continued fraction algorithm
+        double epsilon = (double) quantumout / Math.pow(2, L);
+        int aZero = (int) (epsilon);
+        int qZero = 1;
+        double epsilonZero = epsilon - aZero;
+        int a1 = (int) (1.0 / epsilonZero);
+        int q1 = a1;
+        //Ints to store previous values 
+
+        int qNMinus1 = q1;
+        int qUtil = 1;
+        int qNMinus2 = qZero;
+        // datatypes to store current values
+        int an = a1;
+        double epsilonN = (1.0 / epsilonZero) - a1;
+        int qn = q1;
+
+        //Iterating through testing the values of q to see if they are the period
+        while (epsilonN != 0) {
+            an = (int) (1.0 / epsilonN);
+            qUtil = qn;
+            qn = an * qNMinus1 + qNMinus2;
+
+            qNMinus2 = qNMinus1;
+            qNMinus1 = qUtil;
+            //System.out.println(qn + " qn     " + qNMinus1 + " qNMinus1 " + qNMinus2 + " qNMinus2    " + epsilonN + " epsilonN  " + an + "  an");
+            epsilonN = (1.0 / epsilonN) - an;
+
+            if (epsilonN < 1.0e-10) {
+
+                epsilonN = 0;
+            }
+            //The period is at most n, larger denominators (or overflowed ones) mean the expansion failed
+            if (qn <= 0 || qn > n) {
+                epsilonN = 0;
+                break;
+            }
+            BigInteger bigqn = BigInteger.valueOf(qn);
+
+
+            if (bigm.modPow(bigqn, bign).longValue() == 1) {
+                // Below Needs to happen as if it is zero will go into if loop below and say fail when in reality it works
+                epsilonN = 1;
+                break;
+            }
+            if (epsilonN == 0) {
+
+                break;
+
+            }
+        }
+
+        return (epsilonN == 0) ? 0 : qn;
+    }
+
     /**
      * Method to return N the number being factored
      *
@@ -159,34 +195,24 @@ public class ShorAlgorithm implements Algorithm {
     }
 
     /**
-     * Quantum Part of Algorithm
+     * Quantum Part of Algorithm, returns the measured value of the first
+     * register of L qubits for the base m. It may be run more than once for
+     * the same m and L. Subclasses may simulate it differently.
      *
      * @return Output from Quantum Part
      * @throws NormalizationException
+     * @throws BitOutOfBoundsException
      * @throws Exception
      * @throws VectorLengthException
      * @throws NegativeIndexException
      */
-    private int quantumPart() throws NormalizationException, Exception, VectorLengthException, NegativeIndexException {
-        L = this.getL();
-        //Setting up QRegisters to correct Size
-        QRegister QRegOne = new QRegister(L);
-        QRegOne.setAmplitude(0, new Complex(1, 0));
-        QRegister QRegTwo = new QRegister((int) Math.ceil(Math.log(n) / Math.log(2)));
-        QRegTwo.setAmplitude(1, new Complex(1, 0));
-        //Creating the Fourier transform Matrix
-        QFTMatrix FourierTransform = new QFTMatrix(L);
-        //Applying it to the first QRegister
-        QRegOne = FourierTransform.apply(QRegOne);
-        //Generating the function that applies the transformation |x>|1> -> |x>|m^x Mod N>
-        ShorFunction unitaryOperator = new ShorFunction(QRegOne, m, n);
-        //Applying this to the system, QRegisters entangled so now represented by a single QRegister
-        QRegister Register = unitaryOperator.apply(QRegTwo);
-        Matrix Identity = Matrix.identityMatrix(QRegTwo.getBaseCount());
-        //Generating QFT acting on first QRegister for the new Register representing whole system
-        Matrix QFTOnFirstRegister = FourierTransform.getMatrix().tensorProduct(Identity);
-        //QFT acting on first register
-        Register = new QRegister(QFTOnFirstRegister.multiply(Register.getComplexVector()));
+    protected int quantumPart() throws NormalizationException, BitOutOfBoundsException, Exception, VectorLengthException, NegativeIndexException {
+        //Size of the second QRegister, which holds m^x Mod N
+        int valueBits = (int) Math.ceil(Math.log(n) / Math.log(2));
+        //Preparing |x>|m^x Mod N> for the equal superposition of all x directly, the QFT of |0> is not needed
+        QRegister Register = ShorFunction.prepare(L, valueBits, m, n);
+        //QFT acting on first register, which holds the highest bits of the whole system
+        new QFTFFTOperator(valueBits, Register.getBitCount() - 1).applyInPlace(Register);
         //Measureing the first QRegister Bit by Bit to obtain the output
         int out = Register.measure(Register.getBitCount() - L, Register.getBitCount() - 1);
 
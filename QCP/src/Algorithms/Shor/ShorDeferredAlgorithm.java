@@ -0,0 +1,78 @@
+package Algorithms.Shor;
+
+import Core.Exceptions.BitOutOfBoundsException;
+import Core.Exceptions.NegativeIndexException;
+import Core.Exceptions.NormalizationException;
+import Core.Exceptions.VectorLengthException;
+import Core.Math.ModularExponentiation;
+import Core.Math.StateBuffer;
+import Core.QRegister;
+import Operators.QFT.QFTFFTOperator;
+import java.util.Random;
+
+/**
+ * Implementation of Shor's Algorithm which measures the second register
+ * before the quantum Fourier transform of the first.
+ *
+ * The QFT only acts on the first register, so measuring the second register
+ * first does not change the distribution of the output. The value m^x0 mod N
+ * is drawn by choosing x0 uniformly, which leaves the first register in the
+ * equal superposition of all x with m^x = m^x0 mod N, the x congruent to x0
+ * modulo the period. Only this register of 2^L amplitudes is simulated
+ * instead of the combined register of 2^(L+bits of N) amplitudes.
+ */
+public class ShorDeferredAlgorithm extends ShorAlgorithm {
+
+    /**
+     * Random number generator for the measurement of the second register.
+     */
+    private Random random = new Random();
+
+    /**
+     * Constructor to obtain data required to run Shor's
+     *
+     * @param numberToFactor Number being factored by Shor's Algorithm
+     */
+    public ShorDeferredAlgorithm(int numberToFactor) {
+        super(numberToFactor);
+    }
+
+    /**
+     * Quantum Part of Algorithm on the first register only
+     *
+     * @return Output from Quantum Part
+     * @throws NormalizationException
+     * @throws BitOutOfBoundsException
+     * @throws Exception
+     * @throws VectorLengthException
+     * @throws NegativeIndexException
+     */
+    @Override
+    protected int quantumPart() throws NormalizationException, BitOutOfBoundsException, Exception, VectorLengthException, NegativeIndexException {
+        int[] values = ModularExponentiation.table(m, n, L);
+        //Measuring the second QRegister, every x is equally likely so its value is that of a random x0
+        int value = values[random.nextInt(1 << L)];
+
+        //Counting the x with the measured value, they share the amplitude of the collapsed first QRegister
+        int count = 0;
+        for (int x = 0; x < values.length; x++) {
+            if (values[x] == value) {
+                count++;
+            }
+        }
+
+        QRegister Register = new QRegister(L);
+        StateBuffer amplitudes = Register.getStateBuffer();
+        double amplitude = 1.0 / Math.sqrt(count);
+        for (int x = 0; x < values.length; x++) {
+            if (values[x] == value) {
+                amplitudes.set(x, amplitude, 0.0);
+            }
+        }
+
+        //QFT acting on the first register, which is now the whole system
+        new QFTFFTOperator(0, L - 1).applyInPlace(Register);
+        //Measureing the first QRegister to obtain the output
+        return Register.measure(0, L - 1);
+    }
+}
@@ -0,0 +1,88 @@
+package Algorithms.Shor;
+
+import Core.Exceptions.BitOutOfBoundsException;
+import Core.Exceptions.NegativeIndexException;
+import Core.Exceptions.NormalizationException;
+import Core.Exceptions.VectorLengthException;
+import Core.QRegister;
+import Operators.Hadamard.HadamardBitOperator;
+import Operators.ModMul.ModMulOperator;
+import Operators.Phase.PhaseBitOperator;
+import Operators.Unitary.UnitaryBitOperator;
+import java.util.Arrays;
+
+/**
+ * Implementation of Shor's Algorithm with a semi-classical quantum Fourier
+ * transform, which recycles a single control qubit instead of keeping a first
+ * register of L qubits.
+ *
+ * The qubits of the first register are handled one at a time, highest first.
+ * Each is prepared as |+&gt;, controls the multiplication of the second
+ * register by m^(2^k) mod N, gets the phase corrections of the QFT from the
+ * bits measured before it, goes through a Hadamard gate and is measured. The
+ * measured bits give the same distribution as the QFT of the whole first
+ * register followed by its measurement, with only bits of N plus one qubits.
+ */
+public class ShorSemiClassicalAlgorithm extends ShorAlgorithm {
+
+    /**
+     * Constructor to obtain data required to run Shor's
+     *
+     * @param numberToFactor Number being factored by Shor's Algorithm
+     */
+    public ShorSemiClassicalAlgorithm(int numberToFactor) {
+        super(numberToFactor);
+    }
+
+    /**
+     * Quantum Part of Algorithm with one control qubit
+     *
+     * @return Output from Quantum Part
+     * @throws NormalizationException
+     * @throws BitOutOfBoundsException
+     * @throws Exception
+     * @throws VectorLengthException
+     * @throws NegativeIndexException
+     */
+    @Override
+    protected int quantumPart() throws NormalizationException, BitOutOfBoundsException, Exception, VectorLengthException, NegativeIndexException {
+        //The second QRegister holds m^x Mod N in the lowest bits, the control qubit is above it
+        int valueBits = (int) Math.ceil(Math.log(n) / Math.log(2));
+        int control = valueBits;
+        QRegister Register = new QRegister(valueBits + 1);
+        Register.getStateBuffer().set(1, 1.0, 0.0);
+
+        //Multiplications by m^(2^k) Mod N, all controlled by the same qubit
+        int[] controls = new int[L];
+        Arrays.fill(controls, control);
+        ModMulOperator[] multiplications = ModMulOperator.powers(controls, 0, valueBits, m, n);
+
+        HadamardBitOperator hadamard = new HadamardBitOperator(control);
+        int out = 0;
+        for (int k = L - 1; k >= 0; k--) {
+            hadamard.applyInPlace(Register);
+            multiplications[k].applyInPlace(Register);
+
+            //Phase corrections of the QFT controlled by the bits measured so far
+            double shift = 0.0;
+            for (int j = k + 1; j < L; j++) {
+                if ((out & (1 << (L - 1 - j))) != 0) {
+                    shift += Math.PI / (double) (1L << (j - k));
+                }
+            }
+            if (shift != 0.0) {
+                new PhaseBitOperator(control, shift).applyInPlace(Register);
+            }
+
+            hadamard.applyInPlace(Register);
+            //Qubit k of the first register gives bit L-1-k of the output, the QFT reverses the bits
+            if (Register.measure(control) == 1) {
+                out |= 1 << (L - 1 - k);
+                //Recycling the control qubit
+                UnitaryBitOperator.not(control).applyInPlace(Register);
+            }
+        }
+
+        return out;
+    }
+}
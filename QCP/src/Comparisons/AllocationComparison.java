@@ -0,0 +1,108 @@
+package Comparisons;
+
+import Core.InPlaceOperator;
+import Core.Math.Complex;
+import Core.Math.KernelPool;
+import Core.QRegister;
+import Operators.CCNot.CCNotBitOperator;
+import Operators.CCNot.CCNotCompositeOperator;
+import Operators.CNot.CNotBitOperator;
+import Operators.CNot.CNotCompositeOperator;
+import Operators.CV.CVBitOperator;
+import Operators.Hadamard.HadamardBitOperator;
+import Operators.Phase.PhaseBitOperator;
+import Operators.Swap.SwapBitOperator;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the number of bytes allocated per gate application, comparing the
+ * copying apply with the in place applyInPlace of the bit operators.
+ *
+ * Exits with status 1 if an in place application allocates memory, so it can
+ * be used as a regression check.
+ */
+public class AllocationComparison
+{
+    /**
+     * Number of qubits in the register the gates are applied to.
+     */
+    private static final int BITS = 16;
+    /**
+     * Number of applications that are averaged over.
+     */
+    private static final int REPEATS = 200;
+    /**
+     * Allowed allocation per in place gate, to absorb noise from the JVM.
+     */
+    private static final long TOLERANCE = 64;
+
+    public static void main( String[] args )
+    {
+        try
+        {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long thread = Thread.currentThread().getId();
+
+            InPlaceOperator[] operators = new InPlaceOperator[]{
+                new HadamardBitOperator( 3 ),
+                new PhaseBitOperator( 5, Math.PI / 4 ),
+                new CVBitOperator( 1, 7 ),
+                new SwapBitOperator( 0, 15 ),
+                new CNotBitOperator( 2, 9 ),
+                new CNotCompositeOperator( 4, 6 ),
+                new CCNotCompositeOperator( 1, 2, 12 ),
+                new CCNotBitOperator( 3, 8, 11 )
+            };
+
+            //Parallel kernels allocate their fork/join tasks, only the sequential kernels are checked
+            KernelPool.setThreshold( Integer.MAX_VALUE );
+
+            //A dense register, sparse registers allocate when their map is rebuilt
+            QRegister register = new QRegister( BITS );
+            register.setAmplitude( 5, new Complex( 1.0f, 0.0f ) );
+            boolean failed = false;
+
+            for( InPlaceOperator operator : operators )
+            {
+                //Warm up both paths so the JIT does not allocate during measurement
+                for( int i = 0; i < REPEATS; i++ )
+                {
+                    operator.apply( register );
+                    operator.applyInPlace( register );
+                }
+
+                long start = bean.getThreadAllocatedBytes( thread );
+                for( int i = 0; i < REPEATS; i++ )
+                {
+                    operator.apply( register );
+                }
+                long copying = ( bean.getThreadAllocatedBytes( thread ) - start ) / REPEATS;
+
+                start = bean.getThreadAllocatedBytes( thread );
+                for( int i = 0; i < REPEATS; i++ )
+                {
+                    operator.applyInPlace( register );
+                }
+                long inPlace = ( bean.getThreadAllocatedBytes( thread ) - start ) / REPEATS;
+
+                System.out.println( operator.getClass().getSimpleName() + ": apply " + copying + " bytes/gate, applyInPlace " + inPlace + " bytes/gate" );
+
+                if( inPlace > TOLERANCE )
+                {
+                    failed = true;
+                }
+            }
+
+            if( failed )
+            {
+                System.out.println( "In place application allocated memory." );
+                System.exit( 1 );
+            }
+        }
+        catch( Throwable E )
+        {
+            E.printStackTrace();
+            System.exit( 1 );
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package Comparisons;
+
+import Core.QRegister;
+import Operators.CCNot.CCNotBitOperator;
+import Operators.CCNot.CCNotCompositeOperator;
+import Operators.CCNot.CCNotOperator;
+
+public class CCNotComparison
+{
+    public static void main( String[] args )
+    {
+        try
+        {
+            QRegister initial = new QRegister( 3, 3 );
+            
+            System.out.println( "Initial:" );
+            System.out.println( initial );
+            System.out.println();
+            
+            CCNotOperator bitOp = new CCNotBitOperator( 0, 1, 2 );
+            CCNotOperator comOp = new CCNotCompositeOperator( 0, 1, 2 );
+             
+            QRegister bitRegister = bitOp.apply( initial );
+            System.out.println( "Bit: " );
+            System.out.println( bitRegister);
+            
+            QRegister comRegister = comOp.apply( initial );
+            System.out.println( "Composite: " );
+            System.out.println( comRegister );
+        }
+        catch( Throwable E )
+        {
+            E.printStackTrace();
+        }
+    }
+}
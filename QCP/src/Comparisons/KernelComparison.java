@@ -0,0 +1,230 @@
+package Comparisons;
+
+import Core.Math.ArrayStateBuffer;
+import Core.Math.KernelPool;
+import Core.Math.Precision;
+import Core.Math.StateBuffer;
+import java.util.Random;
+
+/**
+ * Compares the run kernels of ArrayStateBuffer with the generic per-element
+ * loops of StateBuffer, timing both and checking that they give the same
+ * amplitudes. The run kernels compute in the precision the amplitudes are
+ * stored in and the generic loops in doubles, so the amplitudes may differ by
+ * the rounding of a float.
+ *
+ * The kernels are timed on the lowest qubits, which have their own unrolled
+ * paths, and on middle and high qubits, which walk whole runs of amplitudes.
+ * Both run sequentially, so only the shape of the loops is compared.
+ *
+ * Exits with status 1 if any amplitude differs by more than the tolerance,
+ * so it can be used as a regression check.
+ */
+public class KernelComparison
+{
+    /**
+     * Number of qubits in the register the kernels are applied to.
+     */
+    private static final int BITS = 22;
+    /**
+     * Number of times every kernel is timed, the shortest time is kept.
+     */
+    private static final int REPEATS = 5;
+    /**
+     * Largest difference of an amplitude that is accepted.
+     */
+    private static final double TOLERANCE = 1e-5;
+
+    /**
+     * A kernel applied to a StateBuffer.
+     */
+    private interface Kernel
+    {
+        void apply( StateBuffer buffer );
+    }
+
+    public static void main( String[] args )
+    {
+        try
+        {
+            final double h = 1.0 / Math.sqrt( 2.0 );
+            final double cos = Math.cos( Math.PI / 3 );
+            final double sin = Math.sin( Math.PI / 3 );
+
+            String[] names = new String[]{
+                "Hadamard on qubit 0",
+                "Hadamard on qubit 1",
+                "Hadamard on qubit 13",
+                "Hadamard on qubit 21",
+                "Phase on qubit 0",
+                "Phase on qubit 20",
+                "CV on qubits 2, 17",
+                "CNot on qubits 19, 1",
+                "CNot on qubits 3, 16"
+            };
+            Kernel[] kernels = new Kernel[]{
+                hadamard( 0, h ),
+                hadamard( 1, h ),
+                hadamard( 13, h ),
+                hadamard( 21, h ),
+                phase( 1L, cos, sin ),
+                phase( 1L << 20, cos, sin ),
+                phase( ( 1L << 2 ) | ( 1L << 17 ), 0.0, 1.0 ),
+                cnot( 19, 1 ),
+                cnot( 3, 16 )
+            };
+
+            float[] real = new float[1 << BITS];
+            float[] imaginary = new float[1 << BITS];
+            Random random = new Random( 42 );
+            for( int i = 0; i < real.length; i++ )
+            {
+                real[i] = (float) random.nextGaussian();
+                imaginary[i] = (float) random.nextGaussian();
+            }
+
+            int threshold = KernelPool.getThreshold();
+            KernelPool.setThreshold( Integer.MAX_VALUE );
+
+            double worst = 0.0;
+            for( int k = 0; k < kernels.length; k++ )
+            {
+                ArrayStateBuffer array = new ArrayStateBuffer( real.clone(), imaginary.clone(), Precision.MIXED );
+                GenericStateBuffer generic = new GenericStateBuffer( real.clone(), imaginary.clone() );
+
+                long arrayTime = time( kernels[k], array );
+                long genericTime = time( kernels[k], generic );
+
+                double difference = 0.0;
+                for( long i = 0; i < array.length(); i++ )
+                {
+                    difference = Math.max( difference, Math.abs( array.getReal( i ) - generic.getReal( i ) ) );
+                    difference = Math.max( difference, Math.abs( array.getImaginary( i ) - generic.getImaginary( i ) ) );
+                }
+                worst = Math.max( worst, difference );
+
+                System.out.println( names[k] + ", run kernel: " + arrayTime / 1000 + " us, generic loop: "
+                        + genericTime / 1000 + " us, largest difference: " + difference );
+            }
+
+            KernelPool.setThreshold( threshold );
+
+            System.out.println( "Largest difference: " + worst );
+            if( worst > TOLERANCE )
+            {
+                System.exit( 1 );
+            }
+        }
+        catch( Throwable E )
+        {
+            E.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the Hadamard gate on a qubit.
+     */
+    private static Kernel hadamard( final int qubit, final double h )
+    {
+        return new Kernel()
+        {
+            public void apply( StateBuffer buffer )
+            {
+                buffer.transformPairs( 1L << qubit, h, h, h, -h );
+            }
+        };
+    }
+
+    /**
+     * Returns the multiplication of the amplitudes with all bits of a mask
+     * set by a phase.
+     */
+    private static Kernel phase( final long mask, final double real, final double imaginary )
+    {
+        return new Kernel()
+        {
+            public void apply( StateBuffer buffer )
+            {
+                buffer.multiplyWhereSet( mask, real, imaginary );
+            }
+        };
+    }
+
+    /**
+     * Returns the CNot gate on a control and a target qubit.
+     */
+    private static Kernel cnot( final int control, final int target )
+    {
+        return new Kernel()
+        {
+            public void apply( StateBuffer buffer )
+            {
+                long c = 1L << control;
+                long t = 1L << target;
+                buffer.swapWhere( c | t, c, t );
+            }
+        };
+    }
+
+    /**
+     * Applies a kernel to a buffer a few times and returns the shortest time
+     * taken in nanoseconds, so the first compilation is not counted.
+     */
+    private static long time( Kernel kernel, StateBuffer buffer )
+    {
+        long best = Long.MAX_VALUE;
+        for( int repeat = 0; repeat < REPEATS; repeat++ )
+        {
+            long start = System.nanoTime();
+            kernel.apply( buffer );
+            best = Math.min( best, System.nanoTime() - start );
+        }
+        return best;
+    }
+
+    /**
+     * Float arrays behind the accessors of StateBuffer only, so every kernel
+     * runs the generic per-element loop.
+     */
+    private static class GenericStateBuffer extends StateBuffer
+    {
+        private float[] real, imaginary;
+
+        GenericStateBuffer( float[] Real, float[] Imaginary )
+        {
+            real = Real;
+            imaginary = Imaginary;
+        }
+
+        public Precision getPrecision()
+        {
+            return Precision.MIXED;
+        }
+
+        public long length()
+        {
+            return real.length;
+        }
+
+        public double getReal( long index )
+        {
+            return real[(int) index];
+        }
+
+        public double getImaginary( long index )
+        {
+            return imaginary[(int) index];
+        }
+
+        public void set( long index, double Real, double Imaginary )
+        {
+            real[(int) index] = (float) Real;
+            imaginary[(int) index] = (float) Imaginary;
+        }
+
+        public StateBuffer create( long length )
+        {
+            return new GenericStateBuffer( new float[(int) length], new float[(int) length] );
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package Comparisons;
+
+import Core.Math.CSRMatrix;
+import Core.Math.Complex;
+import Core.Math.ComplexVector;
+import Core.Math.DenseMatrix;
+import Core.Math.KroneckerMatrix;
+import Core.Math.Matrix;
+import Core.Math.SparseMatrix;
+import Core.Math.StructuredMatrix;
+import java.util.Random;
+
+/**
+ * Compares the products of CSRMatrix, and of the sparse, Kronecker and
+ * structured matrices which are converted to it, with the products of
+ * DenseMatrix on small random matrices, and times the sparse products on a
+ * large matrix.
+ *
+ * Exits with status 1 if any element differs by more than the tolerance,
+ * so it can be used as a regression check.
+ */
+public class MatrixComparison
+{
+    /**
+     * Order of the matrices compared with DenseMatrix.
+     */
+    private static final int ORDER = 64;
+    /**
+     * Order of the matrix the sparse products are timed on.
+     */
+    private static final int TIMED_ORDER = 1 << 16;
+    /**
+     * Fraction of the elements of the random sparse matrices which are not
+     * zero.
+     */
+    private static final double DENSITY = 0.1;
+    /**
+     * Largest difference of an element that is accepted, the elements are
+     * read as floats.
+     */
+    private static final double TOLERANCE = 1e-4;
+
+    public static void main( String[] args )
+    {
+        try
+        {
+            Random random = new Random( 42 );
+            double worst = 0.0;
+
+            SparseMatrix a = randomSparse( ORDER, DENSITY, random );
+            SparseMatrix b = randomSparse( ORDER, DENSITY, random );
+            SparseMatrix c = randomSparse( 4, 0.5, random );
+            DenseMatrix u = dense( randomSparse( 2, 1.0, random ) );
+            Matrix kronecker = new KroneckerMatrix( 4, u, ORDER / 8 );
+            Matrix structured = randomStructured( ORDER, random );
+            ComplexVector v = randomVector( ORDER, random );
+
+            //The conversions hold the same elements
+            double conversions = Math.max( difference( a, new CSRMatrix( a ) ),
+                    Math.max( difference( kronecker, new CSRMatrix( kronecker ) ),
+                            difference( structured, new CSRMatrix( structured ) ) ) );
+            System.out.println( "Conversions to CSRMatrix: " + conversions );
+
+            double sparse = difference( dense( a ).multiply( dense( b ) ), a.multiply( b ) );
+            System.out.println( "Sparse * sparse: " + sparse );
+
+            double mixed = Math.max( difference( dense( a ).multiply( dense( kronecker ) ), a.multiply( kronecker ) ),
+                    difference( dense( a ).multiply( dense( structured ) ), new CSRMatrix( a ).multiply( structured ) ) );
+            System.out.println( "Sparse * Kronecker and CSR * structured: " + mixed );
+
+            double vector = vectorDifference( dense( a ).multiply( v ), a.multiply( v ) );
+            System.out.println( "Sparse * vector: " + vector );
+
+            double tensor = difference( dense( a ).tensorProduct( dense( c ) ), a.tensorProduct( c ) );
+            System.out.println( "Sparse x sparse: " + tensor );
+
+            worst = Math.max( Math.max( conversions, sparse ), Math.max( mixed, Math.max( vector, tensor ) ) );
+
+            SparseMatrix timed = randomBanded( TIMED_ORDER, random );
+            long start = System.nanoTime();
+            Matrix square = timed.multiply( timed );
+            System.out.println( "Sparse * sparse of order " + TIMED_ORDER + " with " + timed.getNonZeroElmentCount()
+                    + " elements: " + ( System.nanoTime() - start ) / 1000000 + " ms, "
+                    + square.getNonZeroElmentCount() + " elements in the product" );
+
+            Matrix gate = new KroneckerMatrix( TIMED_ORDER / 4, u, 2 );
+            start = System.nanoTime();
+            CSRMatrix converted = new CSRMatrix( gate );
+            System.out.println( "Kronecker of order " + gate.getOrder() + " to CSRMatrix: "
+                    + ( System.nanoTime() - start ) / 1000000 + " ms, " + converted.getNonZeroElmentCount() + " elements" );
+
+            System.out.println( "Largest difference: " + worst );
+            if( worst > TOLERANCE )
+            {
+                System.exit( 1 );
+            }
+        }
+        catch( Throwable E )
+        {
+            E.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns a sparse matrix with random elements at random positions.
+     */
+    private static SparseMatrix randomSparse( int order, double density, Random random )
+    {
+        SparseMatrix out = new SparseMatrix( order );
+        for( int row = 0; row < order; row++ )
+        {
+            for( int column = 0; column < order; column++ )
+            {
+                if( random.nextDouble() < density )
+                {
+                    out.setElement( row, column, new Complex( random.nextGaussian(), random.nextGaussian() ) );
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns a sparse matrix with random elements on the diagonal and a
+     * few diagonals next to it.
+     */
+    private static SparseMatrix randomBanded( int order, Random random )
+    {
+        SparseMatrix out = new SparseMatrix( order );
+        for( int row = 0; row < order; row++ )
+        {
+            for( int offset = -2; offset <= 2; offset++ )
+            {
+                if( row + offset >= 0 && row + offset < order )
+                {
+                    out.setElement( row, row + offset, new Complex( random.nextGaussian(), random.nextGaussian() ) );
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns a matrix with one random element in every column, at a random
+     * row.
+     */
+    private static Matrix randomStructured( int order, Random random )
+    {
+        int[] rows = new int[order];
+        double[] real = new double[order];
+        double[] imaginary = new double[order];
+        for( int column = 0; column < order; column++ )
+        {
+            rows[column] = column;
+            real[column] = random.nextGaussian();
+            imaginary[column] = random.nextGaussian();
+        }
+        //Shuffle the rows into a permutation
+        for( int column = order - 1; column > 0; column-- )
+        {
+            int other = random.nextInt( column + 1 );
+            int row = rows[column];
+            rows[column] = rows[other];
+            rows[other] = row;
+        }
+        return StructuredMatrix.of( rows, real, imaginary );
+    }
+
+    /**
+     * Returns a vector with random components.
+     */
+    private static ComplexVector randomVector( int order, Random random )
+    {
+        ComplexVector out = new ComplexVector( order );
+        for( int i = 0; i < order; i++ )
+        {
+            out.setComponent( new Complex( random.nextGaussian(), random.nextGaussian() ), i );
+        }
+        return out;
+    }
+
+    /**
+     * Returns a DenseMatrix holding the elements of a matrix.
+     */
+    private static DenseMatrix dense( Matrix m )
+    {
+        DenseMatrix out = new DenseMatrix( m.getOrder() );
+        for( int row = 0; row < m.getOrder(); row++ )
+        {
+            for( int column = 0; column < m.getOrder(); column++ )
+            {
+                out.setElement( row, column, m.getElement( row, column ) );
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns the largest difference of the parts of the elements of two
+     * matrices.
+     */
+    private static double difference( Matrix x, Matrix y )
+    {
+        if( x.getOrder() != y.getOrder() )
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double out = 0.0;
+        for( int row = 0; row < x.getOrder(); row++ )
+        {
+            for( int column = 0; column < x.getOrder(); column++ )
+            {
+                Complex p = x.getElement( row, column );
+                Complex q = y.getElement( row, column );
+                out = Math.max( out, Math.abs( p.getReal() - q.getReal() ) );
+                out = Math.max( out, Math.abs( p.getImaginary() - q.getImaginary() ) );
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns the largest difference of the parts of the components of two
+     * vectors.
+     */
+    private static double vectorDifference( ComplexVector x, ComplexVector y )
+    {
+        if( x.numberOfComponents() != y.numberOfComponents() )
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double out = 0.0;
+        for( int i = 0; i < x.numberOfComponents(); i++ )
+        {
+            Complex p = x.getComponent( i );
+            Complex q = y.getComponent( i );
+            out = Math.max( out, Math.abs( p.getReal() - q.getReal() ) );
+            out = Math.max( out, Math.abs( p.getImaginary() - q.getImaginary() ) );
+        }
+        return out;
+    }
+}
@@ -0,0 +1,124 @@
+package Comparisons;
+
+import Core.InPlaceOperator;
+import Core.Math.KernelPool;
+import Core.Math.StateBuffer;
+import Core.QRegister;
+import Operators.CCNot.CCNotBitOperator;
+import Operators.CCNot.CCNotCompositeOperator;
+import Operators.CNot.CNotBitOperator;
+import Operators.CV.CVBitOperator;
+import Operators.Hadamard.HadamardBitOperator;
+import Operators.ModMul.ModMulOperator;
+import Operators.Phase.PhaseBitOperator;
+import Operators.QFT.QFTFFTOperator;
+import Operators.Swap.SwapBitOperator;
+import java.util.Random;
+
+/**
+ * Compares the sequential and the parallel gate kernels, timing both and
+ * checking that they give exactly the same amplitudes.
+ *
+ * Exits with status 1 if any amplitude differs, so it can be used as a
+ * regression check.
+ */
+public class ParallelComparison
+{
+    /**
+     * Number of qubits in the register the gates are applied to.
+     */
+    private static final int BITS = 22;
+    /**
+     * Number of threads used for the parallel kernels.
+     */
+    private static final int THREADS = Math.max( 4, Runtime.getRuntime().availableProcessors() );
+
+    public static void main( String[] args )
+    {
+        try
+        {
+            InPlaceOperator[] operators = new InPlaceOperator[]{
+                new HadamardBitOperator( 0 ),
+                new HadamardBitOperator( 1 ),
+                new HadamardBitOperator( 13 ),
+                new HadamardBitOperator( 21 ),
+                new PhaseBitOperator( 0, Math.PI / 3 ),
+                new PhaseBitOperator( 20, Math.PI / 5 ),
+                new CVBitOperator( 2, 17 ),
+                new SwapBitOperator( 0, 21 ),
+                new SwapBitOperator( 6, 12 ),
+                new CNotBitOperator( 19, 1 ),
+                new CNotBitOperator( 3, 16 ),
+                new CCNotCompositeOperator( 5, 8, 20 ),
+                new CCNotBitOperator( 0, 9, 14 ),
+                new QFTFFTOperator( 4, 15 ),
+                new ModMulOperator( 21, 3, 10, 7, 1000 )
+            };
+
+            QRegister initial = new QRegister( BITS );
+            StateBuffer amplitudes = initial.getStateBuffer();
+            Random random = new Random( 42 );
+            for( long i = 0; i < amplitudes.length(); i++ )
+            {
+                amplitudes.set( i, random.nextGaussian(), random.nextGaussian() );
+            }
+            initial.getComplexVector().normalize();
+
+            int threshold = KernelPool.getThreshold();
+            int parallelism = KernelPool.getParallelism();
+
+            KernelPool.setThreshold( Integer.MAX_VALUE );
+            QRegister sequential = initial.copy();
+            long sequentialTime = run( operators, sequential );
+
+            KernelPool.setThreshold( KernelPool.DEFAULT_THRESHOLD );
+            KernelPool.setParallelism( THREADS );
+            QRegister parallel = initial.copy();
+            long parallelTime = run( operators, parallel );
+
+            KernelPool.setThreshold( threshold );
+            KernelPool.setParallelism( parallelism );
+
+            long differences = 0;
+            StateBuffer a = sequential.getStateBuffer();
+            StateBuffer b = parallel.getStateBuffer();
+            for( long i = 0; i < a.length(); i++ )
+            {
+                if( a.getReal( i ) != b.getReal( i ) || a.getImaginary( i ) != b.getImaginary( i ) )
+                {
+                    differences++;
+                }
+            }
+
+            System.out.println( "Sequential: " + sequentialTime / 1000000 + " ms, parallel on " + THREADS + " threads: "
+                    + parallelTime / 1000000 + " ms (" + Runtime.getRuntime().availableProcessors() + " processors)" );
+            System.out.println( "Differing amplitudes: " + differences );
+
+            if( differences != 0 )
+            {
+                System.exit( 1 );
+            }
+        }
+        catch( Throwable E )
+        {
+            E.printStackTrace();
+        }
+    }
+
+    /**
+     * Applies the operators to the register a few times and returns the time
+     * taken in nanoseconds.
+     */
+    private static long run( InPlaceOperator[] operators, QRegister register ) throws Throwable
+    {
+        long start = System.nanoTime();
+        for( int repeat = 0; repeat < 5; repeat++ )
+        {
+            for( InPlaceOperator operator : operators )
+            {
+                operator.applyInPlace( register );
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,93 @@
+package Comparisons;
+
+import Core.Math.Precision;
+import Core.Math.StateBuffer;
+import Core.QRegister;
+import Operators.Hadamard.HadamardBitOperator;
+import Operators.Phase.PhaseBitOperator;
+
+/**
+ * Compares the throughput, memory use and accuracy of the precisions a
+ * register can be simulated in.
+ *
+ * Every round applies a Hadamard and a phase shift to each qubit, the norm
+ * drift is the distance of the squared norm from one after all rounds, summed
+ * exactly in doubles.
+ */
+public class PrecisionComparison
+{
+    /**
+     * Number of qubits in the register the gates are applied to.
+     */
+    private static final int BITS = 20;
+    /**
+     * Number of rounds of gates applied to each qubit.
+     */
+    private static final int ROUNDS = 50;
+
+    public static void main( String[] args )
+    {
+        try
+        {
+            Precision original = StateBuffer.getDefaultPrecision();
+
+            for( Precision precision : Precision.values() )
+            {
+                StateBuffer.setDefaultPrecision( precision );
+                QRegister register = new QRegister( BITS, 0 );
+
+                //Warm up the kernels before timing
+                applyRound( register );
+
+                long start = System.nanoTime();
+                for( int round = 0; round < ROUNDS; round++ )
+                {
+                    applyRound( register );
+                }
+                double seconds = ( System.nanoTime() - start ) / 1e9;
+
+                double updates = 2.0 * BITS * ROUNDS * register.getBaseCount();
+                long bytes = register.getBaseCount() * precision.getAmplitudeBytes();
+
+                System.out.println( precision + ": " + String.format( "%.1f", updates / seconds / 1e6 ) + " M amplitudes/s, "
+                        + precision.getAmplitudeBytes() + " bytes/amplitude (" + ( bytes >> 20 ) + " MB), norm drift "
+                        + Math.abs( exactNormSquared( register.getStateBuffer() ) - 1.0 ) + ", reported norm "
+                        + register.getStateBuffer().normSquared() );
+            }
+
+            StateBuffer.setDefaultPrecision( original );
+        }
+        catch( Throwable E )
+        {
+            E.printStackTrace();
+        }
+    }
+
+    /**
+     * Applies a Hadamard and a phase shift to every qubit of the register.
+     */
+    private static void applyRound( QRegister register ) throws Throwable
+    {
+        for( int bit = 0; bit < BITS; bit++ )
+        {
+            new HadamardBitOperator( bit ).applyInPlace( register );
+            new PhaseBitOperator( bit, 0.1 * ( bit + 1 ) ).applyInPlace( register );
+        }
+    }
+
+    /**
+     * Sums the squared norm in doubles regardless of the precision of the
+     * buffer.
+     */
+    private static double exactNormSquared( StateBuffer buffer )
+    {
+        double out = 0.0;
+        for( long i = 0; i < buffer.length(); i++ )
+        {
+            double re = buffer.getReal( i );
+            double im = buffer.getImaginary( i );
+            out += re * re + im * im;
+        }
+        return out;
+    }
+}
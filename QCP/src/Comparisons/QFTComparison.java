@@ -0,0 +1,132 @@
+package Comparisons;
+
+import Core.InPlaceOperator;
+import Core.Math.ComplexVector;
+import Core.Math.Matrix;
+import Core.Math.StateBuffer;
+import Core.QRegister;
+import Operators.QFT.QFTFFTOperator;
+import Operators.QFT.QFTMatrix;
+import Operators.QFT.QFTOperator;
+import java.util.Random;
+
+/**
+ * Compares the gate level and the FFT quantum Fourier transforms with
+ * QFTMatrix on small registers, on the whole register and on a range of
+ * qubits inside a larger register, and times them on a larger register.
+ *
+ * Exits with status 1 if any amplitude differs by more than the tolerance,
+ * so it can be used as a regression check.
+ */
+public class QFTComparison
+{
+    /**
+     * Largest number of qubits the QFTMatrix is built for.
+     */
+    private static final int MATRIX_BITS = 8;
+    /**
+     * Number of qubits of the register the transforms are timed on.
+     */
+    private static final int TIMED_BITS = 20;
+    /**
+     * Largest difference of an amplitude that is accepted, the amplitudes
+     * are stored as floats.
+     */
+    private static final double TOLERANCE = 1e-5;
+
+    public static void main( String[] args )
+    {
+        try
+        {
+            Random random = new Random( 42 );
+            double worst = 0.0;
+
+            for( int bits = 1; bits <= MATRIX_BITS; bits++ )
+            {
+                //The whole register
+                QRegister initial = randomRegister( bits, random );
+                QRegister expected = new QFTMatrix( bits ).apply( initial );
+                double gates = difference( expected, new QFTOperator( 0, bits - 1 ).apply( initial ) );
+                double fft = difference( expected, new QFTFFTOperator( 0, bits - 1 ).apply( initial ) );
+                double inverse = difference( initial, new QFTFFTOperator( 0, bits - 1, true ).apply( expected ) );
+
+                //The highest qubits of a register with two qubits more, QFT x Identity
+                QRegister larger = randomRegister( bits + 2, random );
+                Matrix tensor = new QFTMatrix( bits ).getMatrix().tensorProduct( Matrix.identityMatrix( 4 ) );
+                QRegister tensorExpected = new QRegister( tensor.multiply( larger.getComplexVector() ) );
+                double strided = difference( tensorExpected, new QFTFFTOperator( 2, bits + 1 ).apply( larger ) );
+
+                System.out.println( bits + " qubits, gates: " + gates + ", FFT: " + fft + ", inverse FFT: " + inverse
+                        + ", FFT on range: " + strided );
+                worst = Math.max( worst, Math.max( Math.max( gates, fft ), Math.max( inverse, strided ) ) );
+            }
+
+            QRegister timed = randomRegister( TIMED_BITS, random );
+            System.out.println( "Gates on " + TIMED_BITS + " qubits: "
+                    + time( new QFTOperator( 0, TIMED_BITS - 1 ), timed.copy() ) / 1000000 + " ms" );
+            System.out.println( "FFT on " + TIMED_BITS + " qubits: "
+                    + time( new QFTFFTOperator( 0, TIMED_BITS - 1 ), timed.copy() ) / 1000000 + " ms" );
+            System.out.println( "FFT on the highest " + ( TIMED_BITS - 4 ) + " of " + TIMED_BITS + " qubits: "
+                    + time( new QFTFFTOperator( 4, TIMED_BITS - 1 ), timed.copy() ) / 1000000 + " ms" );
+
+            System.out.println( "Largest difference: " + worst );
+            if( worst > TOLERANCE )
+            {
+                System.exit( 1 );
+            }
+        }
+        catch( Throwable E )
+        {
+            E.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns a normalised register with random amplitudes.
+     */
+    private static QRegister randomRegister( int bits, Random random ) throws Throwable
+    {
+        QRegister register = new QRegister( bits );
+        StateBuffer amplitudes = register.getStateBuffer();
+        for( long i = 0; i < amplitudes.length(); i++ )
+        {
+            amplitudes.set( i, random.nextGaussian(), random.nextGaussian() );
+        }
+        ComplexVector vector = register.getComplexVector();
+        vector.normalize();
+        return register;
+    }
+
+    /**
+     * Returns the largest difference of the parts of the amplitudes of two
+     * registers.
+     */
+    private static double difference( QRegister a, QRegister b )
+    {
+        StateBuffer x = a.getStateBuffer();
+        StateBuffer y = b.getStateBuffer();
+        double out = 0.0;
+        for( long i = 0; i < x.length(); i++ )
+        {
+            out = Math.max( out, Math.abs( x.getReal( i ) - y.getReal( i ) ) );
+            out = Math.max( out, Math.abs( x.getImaginary( i ) - y.getImaginary( i ) ) );
+        }
+        return out;
+    }
+
+    /**
+     * Applies an operator to a register a few times and returns the shortest
+     * time taken in nanoseconds, so the first compilation is not counted.
+     */
+    private static long time( InPlaceOperator operator, QRegister register ) throws Throwable
+    {
+        long best = Long.MAX_VALUE;
+        for( int repeat = 0; repeat < 5; repeat++ )
+        {
+            long start = System.nanoTime();
+            operator.applyInPlace( register );
+            best = Math.min( best, System.nanoTime() - start );
+        }
+        return best;
+    }
+}
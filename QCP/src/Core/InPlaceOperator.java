@@ -0,0 +1,19 @@
+package Core;
+
+/**
+ * This is the interface for a linear operator that can transform a register
+ * in place.
+ *
+ * Applying an InPlaceOperator overwrites the amplitudes of the given register
+ * instead of building a new one, so no memory is allocated per application.
+ */
+public interface InPlaceOperator extends Operator {
+
+    /**
+     * This method declares that a linear operator can be applied to a register
+     * by changing its amplitudes directly.
+     *
+     * @param QReg QRegister to be transformed, it is changed by this method.
+     */
+    void applyInPlace(QRegister QReg) throws Throwable;
+}
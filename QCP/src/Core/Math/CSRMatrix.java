@@ -0,0 +1,486 @@
+package Core.Math;
+
+import java.util.Arrays;
+
+/**
+ * Matrix extention in compressed sparse row form, only the non-zero elements
+ * are stored, in primitive arrays.
+ *
+ * The elements of row r are found at the positions rowStart[r] up to but
+ * excluding rowStart[r + 1] of the column, real and imaginary arrays, sorted
+ * by column. No index is ever computed as row * order + column, so matrices of
+ * any int order can be stored. The products with vectors and matrices and the
+ * tensor product only visit the non-zero elements, rows are computed in
+ * parallel on the KernelPool when there are enough elements. Inserting into
+ * the arrays would move all later elements, so setting an element switches
+ * the matrix to a dense or sparse copy of its elements instead, which then
+ * holds all further changes.
+ */
+public class CSRMatrix extends Matrix {
+
+    /**
+     * Position of the first element of each row, the last entry is the
+     * number of elements.
+     */
+    private int[] rowStart;
+    /**
+     * Columns of the elements.
+     */
+    private int[] columns;
+    /**
+     * Real and imaginary parts of the elements.
+     */
+    private double[] real;
+    private double[] imaginary;
+    /**
+     * The copy of the elements once an element has been set, null before.
+     * All calls are passed on to it from then.
+     */
+    private Matrix written;
+
+    /**
+     * Constructs a matrix from its arrays, which are used directly and not
+     * copied.
+     */
+    private CSRMatrix(int Order, int[] RowStart, int[] Columns, double[] Real, double[] Imaginary) {
+        setOrder(Order);
+        rowStart = RowStart;
+        columns = Columns;
+        real = Real;
+        imaginary = Imaginary;
+    }
+
+    /**
+     * Constructs a matrix from a list of elements in coordinate form, in any
+     * order. Elements at the same position are added and zero elements are
+     * dropped.
+     *
+     * @param Order matrix order
+     * @param Rows rows of the elements
+     * @param Columns columns of the elements
+     * @param Real real parts of the elements
+     * @param Imaginary imaginary parts of the elements
+     * @param Count number of elements in the arrays
+     */
+    public CSRMatrix(int Order, int[] Rows, int[] Columns, double[] Real, double[] Imaginary, int Count) {
+        setOrder(Order);
+
+        //Counting sort by column, then stable counting sort by row
+        int[] byColumn = countingSort(Columns, Order, identity(Count), Count);
+        int[] order = countingSort(Rows, Order, byColumn, Count);
+
+        rowStart = new int[Order + 1];
+        columns = new int[Count];
+        real = new double[Count];
+        imaginary = new double[Count];
+
+        int count = 0;
+        int row = -1;
+        for (int k = 0; k < Count; k++) {
+            int e = order[k];
+
+            //Start new rows up to the row of this element
+            while (row < Rows[e]) {
+                row++;
+                rowStart[row] = count;
+            }
+
+            if (count > rowStart[row] && columns[count - 1] == Columns[e]) {
+                //Same position as the previous element
+                real[count - 1] += Real[e];
+                imaginary[count - 1] += Imaginary[e];
+            } else {
+                columns[count] = Columns[e];
+                real[count] = Real[e];
+                imaginary[count] = Imaginary[e];
+                count++;
+            }
+        }
+        while (row < Order) {
+            row++;
+            rowStart[row] = count;
+        }
+
+        compact();
+    }
+
+    /**
+     * Constructs a matrix holding the non-zero elements of another matrix.
+     * Only the non-zero elements of sparse, compressed, Kronecker and
+     * structured matrices are visited, every element of other matrices is
+     * read.
+     *
+     * @param m the matrix to convert
+     */
+    public CSRMatrix(Matrix m) {
+        //The conversion is a new matrix, its arrays are taken over
+        CSRMatrix c = m.toCSRMatrix();
+        setOrder(c.getOrder());
+        rowStart = c.rowStart;
+        columns = c.columns;
+        real = c.real;
+        imaginary = c.imaginary;
+    }
+
+    /**
+     * Returns a matrix as a CSRMatrix, the matrix itself if it is a CSRMatrix
+     * that has not been changed.
+     */
+    private static CSRMatrix asCSRMatrix(Matrix m) {
+        if (m instanceof CSRMatrix && ((CSRMatrix) m).written == null) {
+            return (CSRMatrix) m;
+        }
+        return m.toCSRMatrix();
+    }
+
+    /**
+     * Returns the identity permutation of a number of elements.
+     */
+    private static int[] identity(int Count) {
+        int[] out = new int[Count];
+        for (int k = 0; k < Count; k++) {
+            out[k] = k;
+        }
+        return out;
+    }
+
+    /**
+     * Stably sorts a permutation of elements by a key between zero and
+     * <var>Range</var>.
+     */
+    private static int[] countingSort(int[] Keys, int Range, int[] Order, int Count) {
+        int[] start = new int[Range + 1];
+        for (int k = 0; k < Count; k++) {
+            start[Keys[Order[k]] + 1]++;
+        }
+        for (int key = 0; key < Range; key++) {
+            start[key + 1] += start[key];
+        }
+
+        int[] out = new int[Count];
+        for (int k = 0; k < Count; k++) {
+            out[start[Keys[Order[k]]]++] = Order[k];
+        }
+        return out;
+    }
+
+    /**
+     * Drops the elements that are zero and trims the arrays.
+     */
+    private void compact() {
+        int count = 0;
+        int from = 0;
+        for (int row = 0; row < getOrder(); row++) {
+            int to = rowStart[row + 1];
+            rowStart[row] = count;
+            for (int k = from; k < to; k++) {
+                if (real[k] != 0 || imaginary[k] != 0) {
+                    columns[count] = columns[k];
+                    real[count] = real[k];
+                    imaginary[count] = imaginary[k];
+                    count++;
+                }
+            }
+            from = to;
+        }
+        rowStart[getOrder()] = count;
+
+        if (count < columns.length) {
+            columns = Arrays.copyOf(columns, count);
+            real = Arrays.copyOf(real, count);
+            imaginary = Arrays.copyOf(imaginary, count);
+        }
+    }
+
+    @Override
+    public int getNonZeroElmentCount() {
+        if (written != null) {
+            return written.getNonZeroElmentCount();
+        }
+        return rowStart[getOrder()];
+    }
+
+    @Override
+    public Complex getElement(int row, int column) {
+        if (written != null) {
+            return written.getElement(row, column);
+        }
+
+        int k = Arrays.binarySearch(columns, rowStart[row], rowStart[row + 1], column);
+        if (k < 0) {
+            return new Complex();
+        }
+        return new Complex(real[k], imaginary[k]);
+    }
+
+    /**
+     * Sets an element. The first change copies the elements into a dense or
+     * sparse matrix, which is changed instead. To build a large matrix
+     * element by element use the constructor from coordinates.
+     *
+     * @param row
+     * @param column
+     * @param z complex number to put at (row, column)
+     */
+    @Override
+    public void setElement(int row, int column, Complex z) {
+        if (written == null) {
+            written = writableCopy();
+        }
+        written.setElement(row, column, z);
+    }
+
+    /**
+     * Returns a dense or sparse matrix holding the stored elements.
+     */
+    @Override
+    Matrix writableCopy() {
+        int n = getOrder();
+        Matrix out = makeResult(n, getNonZeroElmentCount() > (long) n * n / 2);
+        for (int row = 0; row < n; row++) {
+            for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+                out.setElement(row, columns[k], new Complex(real[k], imaginary[k]));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns a CSRMatrix holding copies of the arrays, or the conversion of
+     * the changed copy once an element has been set.
+     *
+     * @return the elements in compressed sparse row form
+     */
+    @Override
+    CSRMatrix toCSRMatrix() {
+        if (written != null) {
+            return written.toCSRMatrix();
+        }
+        return new CSRMatrix(getOrder(), rowStart.clone(), columns.clone(), real.clone(), imaginary.clone());
+    }
+
+    /**
+     * Returns a copy of the matrix, see CSRMatrix(Matrix).
+     *
+     * @return the copy
+     */
+    @Override
+    public Matrix copy() {
+        if (written != null) {
+            return written.copy();
+        }
+        return new CSRMatrix(this);
+    }
+
+    /**
+     * Multiplies matrix by a vector, visiting only the non-zero elements.
+     * Every row gives one component, so the rows may run in parallel.
+     *
+     * @param v vector
+     * @return matrix * v
+     */
+    @Override
+    public ComplexVector multiply(ComplexVector v) {
+        if (written != null) {
+            return written.multiply(v);
+        }
+
+        final StateBuffer in = v.getStateBuffer();
+        final StateBuffer out = in.create(getOrder());
+
+        KernelPool.RangeKernel kernel = new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                for (int row = from; row < to; row++) {
+                    double sumRe = 0.0;
+                    double sumIm = 0.0;
+                    for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+                        double re = in.getReal(columns[k]);
+                        double im = in.getImaginary(columns[k]);
+                        sumRe += real[k] * re - imaginary[k] * im;
+                        sumIm += real[k] * im + imaginary[k] * re;
+                    }
+                    if (sumRe != 0 || sumIm != 0) {
+                        out.set(row, sumRe, sumIm);
+                    }
+                }
+            }
+        };
+
+        if (KernelPool.isParallel(getNonZeroElmentCount()) && out.isConcurrentWriteSafe()) {
+            KernelPool.forRange(getOrder(), kernel);
+        } else {
+            kernel.run(0, getOrder());
+        }
+
+        return new ComplexVector(out);
+    }
+
+    /**
+     * Multiplies matrix by another matrix, visiting only pairs of non-zero
+     * elements. Each row of the result is accumulated in a dense row with a
+     * list of the columns touched, rows may run in parallel.
+     *
+     * Use: A.multiply(B) = AB
+     *
+     * @param m
+     * @return matrix * m
+     */
+    @Override
+    public Matrix multiply(Matrix m) {
+        if (written != null) {
+            return written.multiply(m);
+        }
+
+        final CSRMatrix b = asCSRMatrix(m);
+        final int n = getOrder();
+
+        final int[][] rowColumns = new int[n][];
+        final double[][] rowReal = new double[n][];
+        final double[][] rowImaginary = new double[n][];
+
+        KernelPool.RangeKernel kernel = new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                //Dense accumulator of one row, reused for the rows of the range
+                double[] accRe = new double[n];
+                double[] accIm = new double[n];
+                boolean[] used = new boolean[n];
+                int[] touched = new int[n];
+
+                for (int row = from; row < to; row++) {
+                    int count = 0;
+                    for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+                        double aRe = real[k];
+                        double aIm = imaginary[k];
+                        int r = columns[k];
+
+                        for (int l = b.rowStart[r]; l < b.rowStart[r + 1]; l++) {
+                            int column = b.columns[l];
+                            if (!used[column]) {
+                                used[column] = true;
+                                touched[count++] = column;
+                            }
+                            accRe[column] += aRe * b.real[l] - aIm * b.imaginary[l];
+                            accIm[column] += aRe * b.imaginary[l] + aIm * b.real[l];
+                        }
+                    }
+
+                    Arrays.sort(touched, 0, count);
+                    rowColumns[row] = Arrays.copyOf(touched, count);
+                    rowReal[row] = new double[count];
+                    rowImaginary[row] = new double[count];
+                    for (int c = 0; c < count; c++) {
+                        int column = touched[c];
+                        rowReal[row][c] = accRe[column];
+                        rowImaginary[row][c] = accIm[column];
+                        accRe[column] = 0.0;
+                        accIm[column] = 0.0;
+                        used[column] = false;
+                    }
+                }
+            }
+        };
+
+        if (KernelPool.isParallel((long) getNonZeroElmentCount() + b.getNonZeroElmentCount())) {
+            KernelPool.forRange(n, 1, kernel);
+        } else {
+            kernel.run(0, n);
+        }
+
+        //Concatenate the rows
+        long total = 0;
+        for (int row = 0; row < n; row++) {
+            total += rowColumns[row].length;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many non-zero elements in product");
+        }
+
+        int[] start = new int[n + 1];
+        int[] outColumns = new int[(int) total];
+        double[] outReal = new double[(int) total];
+        double[] outImaginary = new double[(int) total];
+        for (int row = 0; row < n; row++) {
+            int count = rowColumns[row].length;
+            start[row + 1] = start[row] + count;
+            System.arraycopy(rowColumns[row], 0, outColumns, start[row], count);
+            System.arraycopy(rowReal[row], 0, outReal, start[row], count);
+            System.arraycopy(rowImaginary[row], 0, outImaginary, start[row], count);
+        }
+
+        CSRMatrix out = new CSRMatrix(n, start, outColumns, outReal, outImaginary);
+        out.compact();
+        return out;
+    }
+
+    /**
+     * Performs matrix tensor product, visiting only pairs of non-zero
+     * elements. The rows of the result come out sorted, so no sorting is
+     * needed.
+     *
+     * Use: A.tensorProduct(B) = AxB
+     *
+     * @param m
+     * @return matrix x m
+     */
+    @Override
+    public Matrix tensorProduct(Matrix m) {
+        if (written != null) {
+            return written.tensorProduct(m);
+        }
+
+        CSRMatrix b = asCSRMatrix(m);
+        int n = getOrder();
+        int bn = b.getOrder();
+
+        long order = (long) n * bn;
+        long total = (long) getNonZeroElmentCount() * b.getNonZeroElmentCount();
+        if (order > Integer.MAX_VALUE - 1 || total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tensor product too large");
+        }
+
+        int[] start = new int[(int) order + 1];
+        int[] outColumns = new int[(int) total];
+        double[] outReal = new double[(int) total];
+        double[] outImaginary = new double[(int) total];
+
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < bn; k++) {
+                //Row bn * i + k holds the products of row i of this and row k of m
+                start[i * bn + k] = count;
+                for (int j = rowStart[i]; j < rowStart[i + 1]; j++) {
+                    for (int l = b.rowStart[k]; l < b.rowStart[k + 1]; l++) {
+                        outColumns[count] = columns[j] * bn + b.columns[l];
+                        outReal[count] = real[j] * b.real[l] - imaginary[j] * b.imaginary[l];
+                        outImaginary[count] = real[j] * b.imaginary[l] + imaginary[j] * b.real[l];
+                        count++;
+                    }
+                }
+            }
+        }
+        start[(int) order] = count;
+
+        return new CSRMatrix((int) order, start, outColumns, outReal, outImaginary);
+    }
+
+    /**
+     * Returns a string representation of the matrix. Indexing is from 1, not 0.
+     *
+     * @return string representation of matrix
+     */
+    @Override
+    public String toString() {
+        if (written != null) {
+            return written.toString();
+        }
+
+        StringBuilder out = new StringBuilder();
+        for (int row = 0; row < getOrder(); row++) {
+            for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+                out.append("([").append(row + 1).append(", ").append(columns[k] + 1).append("] ")
+                        .append(new Complex(real[k], imaginary[k])).append(")\n");
+            }
+        }
+        return out.toString();
+    }
+}
@@ -9,28 +9,25 @@ import Core.Exceptions.VectorLengthException;
 public class ComplexVector {
 
     /**
-     * Complex Vector represented by an array of Complex
-     * numbers(,<var>amplitudes</amplitudes> where each element of the array is
-     * a component of the vector in a user defined basis
+     * Complex Vector represented by a StateBuffer holding the components of
+     * the vector in a user defined basis.
      *
+     * The buffer stores the components as primitives, by default in java
+     * arrays (ArrayStateBuffer), so each component takes 8 bytes, or 16 bytes
+     * with the DOUBLE precision, and the operators can work directly on the
+     * buffer.
      */
-    //array storing the magnitudes of each component of the vector
-    private Complex[] amplitudes;
+    private StateBuffer amplitudes;
 
     /**
      * Constructs a vector with a number of components set by
-     * <var>noofcomps</var> all the components bar the first are set to zero
+     * <var>noofcomps</var> all the components are set to zero
      *
      * @param noofcomps Number of components the vector has
      */
-    //creating a unnormalized complex vector with n components with the first being one and the rest being 0
     public ComplexVector(int noOfComps) {
-        //initializing the array
-        amplitudes = new Complex[noOfComps];
-
-        for (int i = 0; i < noOfComps; i++) {
-            amplitudes[i] = new Complex(0, 0);
-        }
+        //initializing the buffer in the default precision, all the components start at zero
+        amplitudes = StateBuffer.allocate(noOfComps);
     }
 
     /**
@@ -39,8 +36,33 @@ public class ComplexVector {
      * @param components array containing the components of the vector
      */
     public ComplexVector(Complex[] components) {
-        //Setting the value for amplitudes to the array provided 
-        amplitudes = components;
+        this(components.length);
+
+        //Copying the components into the buffer
+        for (int i = 0; i < components.length; i++) {
+            setComponent(components[i], i);
+        }
+    }
+
+    /**
+     * Constructs a vector from the real and imaginary parts of its components.
+     * The arrays are used directly and not copied.
+     *
+     * @param Real array containing the real parts of the components
+     * @param Imaginary array containing the imaginary parts of the components
+     */
+    public ComplexVector(float[] Real, float[] Imaginary) {
+        amplitudes = new ArrayStateBuffer(Real, Imaginary);
+    }
+
+    /**
+     * Constructs a vector on top of a StateBuffer, the buffer is shared and not
+     * copied.
+     *
+     * @param Amplitudes buffer holding the components of the vector
+     */
+    public ComplexVector(StateBuffer Amplitudes) {
+        amplitudes = Amplitudes;
     }
 
     /**
@@ -49,7 +71,27 @@ public class ComplexVector {
      * @param Vector Copy of the original complex vector
      */
     public ComplexVector(ComplexVector Vector) {
-        amplitudes = Vector.getArray();
+        amplitudes = Vector.amplitudes;
+    }
+
+    /**
+     * Creates a deep copy of the vector, changes to the copy do not change
+     * this vector.
+     *
+     * @return Copy of the vector
+     */
+    public ComplexVector copy() {
+        return new ComplexVector(amplitudes.copy());
+    }
+
+    /**
+     * Returns the buffer holding the components of the vector. Changes to the
+     * buffer change the vector.
+     *
+     * @return buffer of the components
+     */
+    public StateBuffer getStateBuffer() {
+        return amplitudes;
     }
 
     /**
@@ -59,7 +101,27 @@ public class ComplexVector {
      * @return the component of the vector
      */
     public Complex getComponent(int i) {
-        return amplitudes[i];
+        return new Complex(amplitudes.getReal(i), amplitudes.getImaginary(i));
+    }
+
+    /**
+     * Returns the real part of a component of the vector
+     *
+     * @param i index of the component
+     * @return the real part of the component
+     */
+    public double getReal(int i) {
+        return amplitudes.getReal(i);
+    }
+
+    /**
+     * Returns the imaginary part of a component of the vector
+     *
+     * @param i index of the component
+     * @return the imaginary part of the component
+     */
+    public double getImaginary(int i) {
+        return amplitudes.getImaginary(i);
     }
 
     /**
@@ -69,7 +131,18 @@ public class ComplexVector {
      * @param i index of component that is being changed
      */
     public void setComponent(Complex complexSet, int indexSet) {
-        amplitudes[indexSet] = complexSet;
+        amplitudes.set(indexSet, complexSet.getReal(), complexSet.getImaginary());
+    }
+
+    /**
+     * Sets a component of the vector from its real and imaginary parts
+     *
+     * @param Real real part of the component
+     * @param Imaginary imaginary part of the component
+     * @param indexSet index of component that is being changed
+     */
+    public void setComponent(double Real, double Imaginary, int indexSet) {
+        amplitudes.set(indexSet, Real, Imaginary);
     }
 
     /**
@@ -78,8 +151,8 @@ public class ComplexVector {
      * @return numberOfComponents the number of components
      */
     public int numberOfComponents() {
-        //Number of components is equal to the number of elements in the array
-        return amplitudes.length;
+        //Number of components is equal to the number of amplitudes in the buffer
+        return (int) amplitudes.length();
     }
 
     /**
@@ -92,14 +165,14 @@ public class ComplexVector {
      */
     public ComplexVector add(ComplexVector q) throws VectorLengthException {
         //initializing a complex vector for the sum of the two vectors
-        ComplexVector sum = new ComplexVector(amplitudes.length);
-        if (amplitudes.length != q.numberOfComponents()) {
+        ComplexVector sum = new ComplexVector(this.length());
+        if (this.length() != q.numberOfComponents()) {
             //throwing exception if the vectors dont have the same number of components 
             throw new VectorLengthException();
         } else {
-            for (int i = 0; i < amplitudes.length; i++) {
+            for (int i = 0; i < this.length(); i++) {
                 //iterating through the loop and adding each corresponding component of the vectors together
-                sum.amplitudes[i] = amplitudes[i].add(q.amplitudes[i]);
+                sum.setComponent(getReal(i) + q.getReal(i), getImaginary(i) + q.getImaginary(i), i);
             }
 
         }
@@ -115,9 +188,10 @@ public class ComplexVector {
      * same length
      */
     public Complex dotprod(ComplexVector q) throws VectorLengthException {
-        //Initializing a complex number to represent the dot product of the two vectors
-        Complex dot = new Complex();
-        if (amplitudes.length != q.numberOfComponents()) {
+        //Running sums of the real and imaginary parts of the dot product
+        double dotreal = 0.0;
+        double dotimaginary = 0.0;
+        if (this.length() != q.numberOfComponents()) {
             //throwing an exception if the two vectors dont have the same number of components
             throw new VectorLengthException();
         } else {
@@ -127,22 +201,27 @@ public class ComplexVector {
              * A0*B0+A1*B1....AN-1*BN-1
              */
 
-            for (int i = 0; i < amplitudes.length; i++) {
-                dot = dot.add(amplitudes[i].multiply(q.amplitudes[i]));
+            for (int i = 0; i < this.length(); i++) {
+                dotreal += getReal(i) * q.getReal(i) - getImaginary(i) * q.getImaginary(i);
+                dotimaginary += getReal(i) * q.getImaginary(i) + getImaginary(i) * q.getReal(i);
             }
         }
-        return dot;
+        return new Complex(dotreal, dotimaginary);
 
     }
 
     /**
-     * Method to obtain an array containing all of the components of the vector
+     * Method to obtain an array containing all of the components of the
+     * vector. The array is a copy, changing it does not change the vector.
      *
      * @return Array containing all the components of the complex vector
      */
     public Complex[] getArray() {
-        //returning the array containing the amplitudes of the complex vector
-        return amplitudes;
+        Complex[] output = new Complex[this.length()];
+        for (int i = 0; i < this.length(); i++) {
+            output[i] = getComponent(i);
+        }
+        return output;
     }
 
     /**
@@ -151,15 +230,27 @@ public class ComplexVector {
      * @return Magnitude of the vector
      */
     /*
-     * Calculating the magnitude of the complex vector by its conjuagte, the
-     * magnitude method then square roots the dot product to obtain the
-     * magnitude value as a float
+     * Calculating the magnitude of the complex vector as the dot product with
+     * its conjugate, which is the sum of the squared magnitudes of the
+     * components. This is summed directly so that no conjugate vector has to
+     * be built, and rounded to a float as it always has been.
      */
     public float magnitude() throws VectorLengthException {
-        float out = this.dotprod(this.conjugate()).magnitude();
+        float out = (float) amplitudes.normSquared();
         return out;
     }
 
+    /**
+     * Returns the sum of the squared magnitudes of the components, the same
+     * value as magnitude but not rounded to a float, summed in the precision
+     * of the amplitudes.
+     *
+     * @return squared norm of the vector
+     */
+    public double normSquared() {
+        return amplitudes.normSquared();
+    }
+
     /**
      * C
      * Calculates the outer (Tensor) product between two vectors
@@ -173,8 +264,8 @@ public class ComplexVector {
      */
 //Calculates the outer (TENSOR) product between two vectors
     public DenseMatrix outerProduct(ComplexVector q) throws VectorLengthException {
-        DenseMatrix output = new DenseMatrix(amplitudes.length);
-        if (amplitudes.length != q.amplitudes.length) {
+        DenseMatrix output = new DenseMatrix(this.length());
+        if (this.length() != q.length()) {
             /*
              * Throwing a vector length exception if the vectors are not the
              * same size such that the matrix produced would not be a squre
@@ -187,9 +278,9 @@ public class ComplexVector {
             throw new VectorLengthException();
         } else {
             //filling up the matrix with the with the elements of the tensor product of the two vectors
-            for (int i = 0; i < amplitudes.length; i++) {
-                for (int j = 0; j < amplitudes.length; j++) {
-                    output.setElement(i, j, amplitudes[i].multiply(q.amplitudes[j]));
+            for (int i = 0; i < this.length(); i++) {
+                for (int j = 0; j < this.length(); j++) {
+                    output.setElement(i, j, this.getComponent(i).multiply(q.getComponent(j)));
                 }
             }
         }
@@ -204,10 +295,12 @@ public class ComplexVector {
      */
     public ComplexVector scalarMultiply(Complex p) {
         //initialzing the new complex vector
-        ComplexVector output = new ComplexVector(amplitudes.length);
-        for (int i = 0; i < amplitudes.length; i++) {
+        ComplexVector output = new ComplexVector(this.length());
+        double pr = p.getReal();
+        double pi = p.getImaginary();
+        for (int i = 0; i < this.length(); i++) {
             //setting each component of the new vector to the product of the old vector with the scalar
-            output.amplitudes[i] = p.multiply(amplitudes[i]);
+            output.setComponent(pr * getReal(i) - pi * getImaginary(i), pr * getImaginary(i) + pi * getReal(i), i);
         }
         return output;
     }
@@ -218,18 +311,13 @@ public class ComplexVector {
      * @return Vector in string format
      */
     public String toString() {
-        /*
-         * String output = "{"; for(int i=0;i<amplitudes.length;i++){ output =
-         * output+amplitudes[i]+" "; }
-         */
-
         String output = "";
 
-        for (int i = 0; i < amplitudes.length; i++) {
+        for (int i = 0; i < this.length(); i++) {
             //Convert to binary representation
             String base = "|";
 
-            int bits = (int) (Math.log(amplitudes.length) / Math.log(2));
+            int bits = (int) (Math.log(this.length()) / Math.log(2));
 
             for (int t = (bits - 1); t >= 0; t--) {
                 int filter = 1 << t;
@@ -241,7 +329,7 @@ public class ComplexVector {
 
             base += ">";
 
-            output += "(" + amplitudes[i] + ")" + base + " ";
+            output += "(" + this.getComponent(i) + ")" + base + " ";
         }
 
         return output;
@@ -253,7 +341,7 @@ public class ComplexVector {
      * @return integer value for the number of the components in the vector
      */
     public int length() {
-        return amplitudes.length;
+        return (int) amplitudes.length();
     }
 
     /**
@@ -263,9 +351,9 @@ public class ComplexVector {
      */
     public void normalize() throws VectorLengthException {
         //finds the magnitude of the vector
-        float mag = this.magnitude();
+        double mag = this.normSquared();
         //multiplies the vector by 1/magnitude to give a vector with megnitude 1
-        this.scale(new Complex((float) Math.sqrt(1.0f / mag), 0));
+        amplitudes.scale(Math.sqrt(1.0 / mag));
 
     }
 
@@ -277,35 +365,19 @@ public class ComplexVector {
 //obtains the complex conjugate of the current vector
     public ComplexVector conjugate() {
         //initializing the conjugate vector
-        Complex[] output = new Complex[this.length()];
+        ComplexVector out = new ComplexVector(this.length());
         for (int i = 0; i < this.length(); i++) {
             //iterating through and obtaining the conjugate of each element
-            output[i] = amplitudes[i].conjugate();
+            out.setComponent(getReal(i), -getImaginary(i), i);
         }
-        ComplexVector out = new ComplexVector(output);
         return out;
     }
 
-    /**
-     * Private method used in the normalization method
-     *
-     * @param p Scalar multiplying the vector
-     */
-    private void scale(Complex p) {
-        for (int i = 0; i < amplitudes.length; i++) {
-            //basically applys the scalar multiply method to the current vector 
-            amplitudes[i] = p.multiply(amplitudes[i]);
-        }
-
-    }
-
     /**
      *Sets all components of the vector to 0
      */
     public void clear() {
-        for (int idx = 0; idx < this.length(); idx++) {
-            this.setComponent(new Complex(0, 0), idx);
-        }
+        amplitudes.clear();
     }
 
     /**
@@ -317,8 +389,9 @@ public class ComplexVector {
         ComplexVector output = new ComplexVector(this.length() * V.length());
         for (int i = 0; i < this.length(); i++) {
             for (int j = 0; j < V.length(); j++) {
-                output.setComponent(this.getComponent(i).multiply(V.getComponent(j)), (V.length() * i) + j);
-                //System.out.println(this.getComponent(i).multiply(V.getComponent(j))+" comp "+ ((V.length()*i) + j)+"  index");
+                int idx = (V.length() * i) + j;
+                output.setComponent(getReal(i) * V.getReal(j) - getImaginary(i) * V.getImaginary(j),
+                        getReal(i) * V.getImaginary(j) + getImaginary(i) * V.getReal(j), idx);
             }
         }
         return output;
@@ -2,15 +2,27 @@ package Core.Math;
 
 /**
  * Matrix extention where all elements of the matrix are stored.
+ *
+ * The elements are stored row by row in two flat arrays of doubles, one for
+ * the real parts and one for the imaginary parts. The number of non-zero
+ * elements is only counted when it is asked for. Products with vectors and
+ * other dense matrices work on the arrays directly, the matrix product in
+ * blocks that fit in the cache, and both run in parallel on the KernelPool
+ * for large matrices.
  */
 public class DenseMatrix extends Matrix {
 
     /**
-     * The two-dimensional array containing the values
+     * Order of the square blocks the matrix product works on.
      */
-    private Complex values[][];
+    private static final int BLOCK = 64;
     /**
-     * The number of zero elements
+     * The real and imaginary parts of the elements, row by row.
+     */
+    private double[] real;
+    private double[] imaginary;
+    /**
+     * The number of non-zero elements, or -1 if it has to be counted again.
      */
     private int nonZeroElementCount = 0;
 
@@ -20,15 +32,13 @@ public class DenseMatrix extends Matrix {
      * @param n
      */
     public DenseMatrix(int n) {
-        setOrder(n);
-        values = new Complex[n][n];
-
-        //Initialize all elements to 0.
-        for (int x = 0; x < n; x++) {
-            for (int y = 0; y < n; y++) {
-                values[x][y] = new Complex(0.0, 0.0);
-            }
+        if ((long) n * n > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Matrix order too large for a DenseMatrix");
         }
+
+        setOrder(n);
+        real = new double[n * n];
+        imaginary = new double[n * n];
     }
 
     /**
@@ -44,51 +54,91 @@ public class DenseMatrix extends Matrix {
      * @param vals values to put in matrix
      */
     public DenseMatrix(int ord, Complex[] vals) {
-        setOrder(ord);
-        values = new Complex[getOrder()][getOrder()];
-        for (int row = 0; row < getOrder(); row++) {
-            for (int col = 0; col < getOrder(); col++) {
-                int elem = row * getOrder() + col;
-                setElement(row, col, vals[elem]);
-            }
+        this(ord);
+        for (int elem = 0; elem < ord * ord; elem++) {
+            real[elem] = vals[elem].getReal();
+            imaginary[elem] = vals[elem].getImaginary();
         }
+        nonZeroElementCount = -1;
     }
 
     /**
-     * Constructor that creates a matrix from a 2D array of complex elements
+     * Constructor that creates a matrix from a 2D array of complex elements,
+     * the elements are copied.
      *
      * @param val 2D array of complex elements representing the matrix
      */
     public DenseMatrix(Complex[][] val) {
-        values = val;
-        setOrder(val.length);
+        this(val.length);
+        for (int row = 0; row < val.length; row++) {
+            for (int col = 0; col < val.length; col++) {
+                real[row * val.length + col] = val[row][col].getReal();
+                imaginary[row * val.length + col] = val[row][col].getImaginary();
+            }
+        }
+        nonZeroElementCount = -1;
     }
 
     @Override
     public int getNonZeroElmentCount() {
+        if (nonZeroElementCount < 0) {
+            int count = 0;
+            for (int elem = 0; elem < real.length; elem++) {
+                if (real[elem] != 0 || imaginary[elem] != 0) {
+                    count++;
+                }
+            }
+            nonZeroElementCount = count;
+        }
         return nonZeroElementCount;
     }
 
     public Complex getElement(int row, int column) {
-        return values[row][column];
+        int elem = row * getOrder() + column;
+        return new Complex(real[elem], imaginary[elem]);
     }
 
     public void setElement(int row, int column, Complex z) {
-        //adjust the counter for number of non-zero elements in the matrix
-        try {
-            if (getElement(row, column).magnitude() == 0 && z.magnitude() != 0) {
-                nonZeroElementCount++;
-            } else if (getElement(row, column).magnitude() != 0 && z.magnitude() == 0) {
-                nonZeroElementCount--;
-            }
-        } catch (NullPointerException e) {
-            //null element is treated as a zero element
-            if (z.magnitude() != 0) {
-                nonZeroElementCount++;
-            }
-        }
+        set(row, column, z.getReal(), z.getImaginary());
+    }
+
+    /**
+     * Returns the real part of an element.
+     *
+     * @param row
+     * @param column
+     * @return real part of the element at (row, column)
+     */
+    public double getReal(int row, int column) {
+        return real[row * getOrder() + column];
+    }
 
-        values[row][column] = z;
+    /**
+     * Returns the imaginary part of an element.
+     *
+     * @param row
+     * @param column
+     * @return imaginary part of the element at (row, column)
+     */
+    public double getImaginary(int row, int column) {
+        return imaginary[row * getOrder() + column];
+    }
+
+    /**
+     * Sets an element from its real and imaginary parts.
+     *
+     * @param row
+     * @param column
+     * @param Real real part of the element
+     * @param Imaginary imaginary part of the element
+     */
+    public void set(int row, int column, double Real, double Imaginary) {
+        int elem = row * getOrder() + column;
+        real[elem] = Real;
+        imaginary[elem] = Imaginary;
+
+        //Counted again when asked for
+        nonZeroElementCount = -1;
     }
 
     /**
@@ -98,14 +148,14 @@ public class DenseMatrix extends Matrix {
      */
     @Override
     public String toString() {
-        String out = "";
+        StringBuilder out = new StringBuilder();
         for (int i = 0; i < getOrder(); i++) {
             for (int j = 0; j < getOrder(); j++) {
-                out = out + values[i][j] + "  ";
+                out.append(getElement(i, j)).append("  ");
             }
-            out = out + "\n";
+            out.append("\n");
         }
-        return out;
+        return out.toString();
     }
 
     /**
@@ -115,12 +165,8 @@ public class DenseMatrix extends Matrix {
      * @return The resulting matrix
      */
     public DenseMatrix multiply(Complex scalar) {
-        DenseMatrix out = new DenseMatrix(values.length);
-        for (int i = 0; i < values.length; i++) {
-            for (int j = 0; j < values.length; j++) {
-                out.setElement(i, j, values[i][j].multiply(scalar));
-            }
-        }
+        DenseMatrix out = copy();
+        out.scale(scalar.getReal(), scalar.getImaginary());
         return out;
     }
 
@@ -131,12 +177,168 @@ public class DenseMatrix extends Matrix {
      * @return The resulting matrix
      */
     public DenseMatrix multiply(float scalar) {
-        DenseMatrix out = new DenseMatrix(values.length);
-        for (int i = 0; i < values.length; i++) {
-            for (int j = 0; j < values.length; j++) {
-                out.setElement(i, j, values[i][j].scalarmultiply(scalar));
-            }
+        DenseMatrix out = copy();
+        out.scale(scalar, 0.0);
+        return out;
+    }
+
+    /**
+     * Multiplies the matrix by a complex scalar in place.
+     *
+     * @param Real real part of the scalar
+     * @param Imaginary imaginary part of the scalar
+     */
+    public void scale(double Real, double Imaginary) {
+        for (int elem = 0; elem < real.length; elem++) {
+            double re = real[elem];
+            double im = imaginary[elem];
+            real[elem] = re * Real - im * Imaginary;
+            imaginary[elem] = re * Imaginary + im * Real;
+        }
+
+        if (Real == 0 && Imaginary == 0) {
+            nonZeroElementCount = 0;
         }
+    }
+
+    /**
+     * Returns a copy of the matrix.
+     *
+     * @return the copy
+     */
+    @Override
+    public DenseMatrix copy() {
+        DenseMatrix out = new DenseMatrix(getOrder());
+        System.arraycopy(real, 0, out.real, 0, real.length);
+        System.arraycopy(imaginary, 0, out.imaginary, 0, imaginary.length);
+        out.nonZeroElementCount = nonZeroElementCount;
         return out;
     }
+
+    /**
+     * Multiplies matrix by a vector. Every row gives one component, so rows
+     * may run in parallel.
+     *
+     * @param v vector
+     * @return matrix * v
+     */
+    @Override
+    public ComplexVector multiply(ComplexVector v) {
+        final int n = getOrder();
+        StateBuffer in = v.getStateBuffer();
+        final StateBuffer out = in.create(n);
+
+        //Read the vector once into arrays
+        final double[] xRe = new double[n];
+        final double[] xIm = new double[n];
+        for (int j = 0; j < n; j++) {
+            xRe[j] = in.getReal(j);
+            xIm[j] = in.getImaginary(j);
+        }
+
+        KernelPool.RangeKernel kernel = new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                for (int row = from; row < to; row++) {
+                    int offset = row * n;
+                    double sumRe = 0.0;
+                    double sumIm = 0.0;
+                    for (int j = 0; j < n; j++) {
+                        double aRe = real[offset + j];
+                        double aIm = imaginary[offset + j];
+                        sumRe += aRe * xRe[j] - aIm * xIm[j];
+                        sumIm += aRe * xIm[j] + aIm * xRe[j];
+                    }
+                    out.set(row, sumRe, sumIm);
+                }
+            }
+        };
+
+        if (KernelPool.isParallel((long) n * n) && out.isConcurrentWriteSafe()) {
+            KernelPool.forRange(n, 1, kernel);
+        } else {
+            kernel.run(0, n);
+        }
+
+        return new ComplexVector(out);
+    }
+
+    /**
+     * Multiplies matrix by another matrix. A dense matrix is multiplied in
+     * blocks of BLOCK rows and columns so the blocks of both matrices stay in
+     * the cache, blocks of rows of the result may run in parallel. Every
+     * element is summed in the same order whatever the number of threads.
+     *
+     * Use: A.multiply(B) = AB
+     *
+     * @param m
+     * @return matrix * m
+     */
+    @Override
+    public Matrix multiply(Matrix m) {
+        if (!(m instanceof DenseMatrix)) {
+            return super.multiply(m);
+        }
+
+        final int n = getOrder();
+        final DenseMatrix b = (DenseMatrix) m;
+        final DenseMatrix c = new DenseMatrix(n);
+        final int blocks = (n + BLOCK - 1) / BLOCK;
+
+        KernelPool.RangeKernel kernel = new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                for (int ib = from; ib < to; ib++) {
+                    multiplyBlockRow(b, c, ib * BLOCK, Math.min((ib + 1) * BLOCK, n));
+                }
+            }
+        };
+
+        if (KernelPool.isParallel((long) n * n)) {
+            KernelPool.forRange(blocks, 1, kernel);
+        } else {
+            kernel.run(0, blocks);
+        }
+
+        c.nonZeroElementCount = -1;
+        return c;
+    }
+
+    /**
+     * Adds the product of the rows <var>rowFrom</var> up to
+     * <var>rowTo</var> of this matrix with <var>b</var> to the same rows of
+     * <var>c</var>, block by block.
+     */
+    private void multiplyBlockRow(DenseMatrix b, DenseMatrix c, int rowFrom, int rowTo) {
+        int n = getOrder();
+        double[] bRe = b.real;
+        double[] bIm = b.imaginary;
+        double[] cRe = c.real;
+        double[] cIm = c.imaginary;
+
+        for (int kb = 0; kb < n; kb += BLOCK) {
+            int kEnd = Math.min(kb + BLOCK, n);
+            for (int jb = 0; jb < n; jb += BLOCK) {
+                int jEnd = Math.min(jb + BLOCK, n);
+
+                for (int i = rowFrom; i < rowTo; i++) {
+                    int cRow = i * n;
+                    for (int k = kb; k < kEnd; k++) {
+                        double aRe = real[i * n + k];
+                        double aIm = imaginary[i * n + k];
+                        if (aRe == 0 && aIm == 0) {
+                            continue;
+                        }
+
+                        //Contiguous rows of b and c, the inner loop has no branches
+                        int bRow = k * n;
+                        for (int j = jb; j < jEnd; j++) {
+                            double re = bRe[bRow + j];
+                            double im = bIm[bRow + j];
+                            cRe[cRow + j] += aRe * re - aIm * im;
+                            cIm[cRow + j] += aRe * im + aIm * re;
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
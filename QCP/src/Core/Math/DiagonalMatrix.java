@@ -0,0 +1,70 @@
+package Core.Math;
+
+/**
+ * StructuredMatrix extention for diagonal matrices, only the diagonal is
+ * stored, as primitives.
+ */
+public class DiagonalMatrix extends StructuredMatrix {
+
+    /**
+     * The real and imaginary parts of the diagonal elements.
+     */
+    private double[] real;
+    private double[] imaginary;
+
+    /**
+     * Constructs a diagonal matrix from the parts of its diagonal elements,
+     * the arrays are used directly and not copied.
+     *
+     * @param Real real parts of the diagonal elements
+     * @param Imaginary imaginary parts of the diagonal elements
+     */
+    public DiagonalMatrix(double[] Real, double[] Imaginary) {
+        setOrder(Real.length);
+        real = Real;
+        imaginary = Imaginary;
+    }
+
+    /**
+     * Constructs a diagonal matrix from its diagonal elements.
+     *
+     * @param Diagonal the diagonal elements
+     */
+    public DiagonalMatrix(Complex[] Diagonal) {
+        this(new double[Diagonal.length], new double[Diagonal.length]);
+        for (int i = 0; i < Diagonal.length; i++) {
+            real[i] = Diagonal[i].getReal();
+            imaginary[i] = Diagonal[i].getImaginary();
+        }
+    }
+
+    @Override
+    int rowOf(int column) {
+        return column;
+    }
+
+    @Override
+    double realOf(int column) {
+        return real[column];
+    }
+
+    @Override
+    double imaginaryOf(int column) {
+        return imaginary[column];
+    }
+
+    @Override
+    public int getNonZeroElmentCount() {
+        if (written != null) {
+            return written.getNonZeroElmentCount();
+        }
+
+        int count = 0;
+        for (int i = 0; i < real.length; i++) {
+            if (real[i] != 0 || imaginary[i] != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
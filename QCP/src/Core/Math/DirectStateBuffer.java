@@ -0,0 +1,677 @@
+package Core.Math;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * StateBuffer extention where the amplitudes are stored off the java heap in
+ * direct ByteBuffers.
+ *
+ * The amplitudes are split into chunks of 2^CHUNK_BITS amplitudes, each chunk
+ * holding the real and imaginary part of an amplitude next to each other.
+ * Since the chunks are addressed with <code>long</code> indices a register is
+ * only limited by the available memory, and the garbage collector never has
+ * to scan or move the amplitudes.
+ *
+ * The amount of direct memory available can be set with the JVM option
+ * -XX:MaxDirectMemorySize. The amplitudes are stored as floats, with the
+ * FLOAT or MIXED precision.
+ */
+public class DirectStateBuffer extends StateBuffer {
+
+    /**
+     * Number of amplitudes per chunk as a power of two.
+     */
+    public static final int CHUNK_BITS = 24;
+    /**
+     * Mask giving the index of an amplitude within its chunk.
+     */
+    protected static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+    /**
+     * Number of bytes used by one amplitude.
+     */
+    protected static final int AMPLITUDE_BYTES = 8;
+    /**
+     * The number of amplitudes.
+     */
+    private long length;
+    /**
+     * The chunks holding the amplitudes.
+     */
+    private ByteBuffer[] chunks;
+    /**
+     * The precision, FLOAT or MIXED.
+     */
+    private Precision precision;
+
+    /**
+     * Constructs a buffer with all amplitudes set to zero, using the default
+     * precision.
+     *
+     * @param Length number of amplitudes
+     */
+    public DirectStateBuffer(long Length) {
+        this(Length, getDefaultPrecision());
+    }
+
+    /**
+     * Constructs a buffer with all amplitudes set to zero.
+     *
+     * @param Length number of amplitudes
+     * @param Precision precision of the buffer, DOUBLE is taken as MIXED
+     */
+    public DirectStateBuffer(long Length, Precision Precision) {
+        length = Length;
+        precision = floatPrecision(Precision);
+
+        chunks = new ByteBuffer[chunkCount(length)];
+
+        for (int c = 0; c < chunks.length; c++) {
+            //Direct buffers are initialized to zero
+            chunks[c] = ByteBuffer.allocateDirect((int) (chunkLength(length, c) * AMPLITUDE_BYTES)).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Constructs a buffer from chunks that have already been allocated, each
+     * but the last chunk has to hold 2^CHUNK_BITS amplitudes.
+     *
+     * @param Length number of amplitudes
+     * @param Chunks the chunks holding the amplitudes
+     * @param Precision precision of the buffer, DOUBLE is taken as MIXED
+     */
+    protected DirectStateBuffer(long Length, ByteBuffer[] Chunks, Precision Precision) {
+        length = Length;
+        chunks = Chunks;
+        precision = floatPrecision(Precision);
+    }
+
+    /**
+     * Returns the number of chunks needed for a number of amplitudes.
+     *
+     * @param Length number of amplitudes
+     * @return number of chunks
+     */
+    protected static int chunkCount(long Length) {
+        return (int) ((Length + CHUNK_MASK) >>> CHUNK_BITS);
+    }
+
+    /**
+     * Returns the number of amplitudes in a chunk, the last chunk may be
+     * shorter.
+     *
+     * @param Length number of amplitudes of the buffer
+     * @param Chunk index of the chunk
+     * @return number of amplitudes in the chunk
+     */
+    protected static long chunkLength(long Length, int Chunk) {
+        return Math.min(1L << CHUNK_BITS, Length - ((long) Chunk << CHUNK_BITS));
+    }
+
+    /**
+     * Returns one of the chunks holding the amplitudes.
+     *
+     * @param Chunk index of the chunk
+     * @return the chunk
+     */
+    protected ByteBuffer getChunk(int Chunk) {
+        return chunks[Chunk];
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public double getReal(long index) {
+        return chunks[(int) (index >>> CHUNK_BITS)].getFloat((int) (index & CHUNK_MASK) * AMPLITUDE_BYTES);
+    }
+
+    @Override
+    public double getImaginary(long index) {
+        return chunks[(int) (index >>> CHUNK_BITS)].getFloat((int) (index & CHUNK_MASK) * AMPLITUDE_BYTES + 4);
+    }
+
+    @Override
+    public void set(long index, double real, double imaginary) {
+        ByteBuffer chunk = chunks[(int) (index >>> CHUNK_BITS)];
+        int offset = (int) (index & CHUNK_MASK) * AMPLITUDE_BYTES;
+
+        chunk.putFloat(offset, (float) real);
+        chunk.putFloat(offset + 4, (float) imaginary);
+    }
+
+    @Override
+    public StateBuffer create(long Length) {
+        return new DirectStateBuffer(Length, precision);
+    }
+
+    @Override
+    public StateBuffer copy() {
+        DirectStateBuffer out = (DirectStateBuffer) create(length);
+
+        //Bulk copy every chunk, duplicates are used to leave the positions untouched
+        for (int c = 0; c < chunks.length; c++) {
+            ByteBuffer source = chunks[c].duplicate();
+            source.clear();
+
+            ByteBuffer destination = out.chunks[c].duplicate();
+            destination.clear();
+            destination.put(source);
+        }
+
+        return out;
+    }
+
+    @Override
+    public void clear() {
+        for (int c = 0; c < chunks.length; c++) {
+            ByteBuffer chunk = chunks[c];
+
+            for (int offset = 0; offset < chunk.capacity(); offset += AMPLITUDE_BYTES) {
+                chunk.putLong(offset, 0L);
+            }
+        }
+    }
+
+    /**
+     * A kernel working on a range of the amplitudes of one chunk.
+     */
+    private interface ChunkKernel {
+
+        /**
+         * Processes the amplitudes from <var>from</var> up to but excluding
+         * <var>to</var> of a chunk whose first amplitude has the index
+         * <var>base</var>.
+         */
+        void run(ByteBuffer chunk, long base, int from, int to);
+    }
+
+    /**
+     * Runs a kernel over the chunks in order, skipping the chunks in which no
+     * index i satisfies (i &amp; mask) == value. The amplitudes of a chunk
+     * are split into ranges which may run in parallel, so the threads work
+     * on neighbouring parts of the same chunk.
+     */
+    private void forChunks(long mask, long value, final ChunkKernel kernel) {
+        long chunkMask = mask & ~CHUNK_MASK;
+
+        for (int c = 0; c < chunks.length; c++) {
+            final ByteBuffer chunk = chunks[c];
+            final long base = (long) c << CHUNK_BITS;
+            int amplitudes = chunk.capacity() / AMPLITUDE_BYTES;
+
+            //Skip chunks whose indices do not have the high bits of the mask right
+            if ((base & chunkMask) != (value & chunkMask)) {
+                continue;
+            }
+
+            if (KernelPool.isParallel(amplitudes)) {
+                KernelPool.forRange(amplitudes, new KernelPool.RangeKernel() {
+                    public void run(int from, int to) {
+                        kernel.run(chunk, base, from, to);
+                    }
+                });
+            } else {
+                kernel.run(chunk, base, 0, amplitudes);
+            }
+        }
+    }
+
+    /**
+     * Returns the chunk holding an amplitude.
+     */
+    private ByteBuffer chunkOf(long index) {
+        return chunks[(int) (index >>> CHUNK_BITS)];
+    }
+
+    /**
+     * Returns the byte offset of an amplitude within its chunk.
+     */
+    private static int offsetOf(long index) {
+        return (int) (index & CHUNK_MASK) * AMPLITUDE_BYTES;
+    }
+
+    /**
+     * Returns the length of the runs of indices in which the bits of a mask
+     * do not change, at most a chunk.
+     */
+    private static int runLength(long mask) {
+        return (mask == 0) ? 1 << CHUNK_BITS : (int) Math.min(Long.lowestOneBit(mask), 1L << CHUNK_BITS);
+    }
+
+    @Override
+    public double normSquared() {
+        if (precision.hasDoubleAccumulation()) {
+            double out = 0.0;
+            for (int c = 0; c < chunks.length; c++) {
+                ByteBuffer chunk = chunks[c];
+                for (int offset = 0; offset < chunk.capacity(); offset += AMPLITUDE_BYTES) {
+                    double re = chunk.getFloat(offset);
+                    double im = chunk.getFloat(offset + 4);
+                    out += re * re + im * im;
+                }
+            }
+            return out;
+        }
+
+        float out = 0.0f;
+        for (int c = 0; c < chunks.length; c++) {
+            ByteBuffer chunk = chunks[c];
+            for (int offset = 0; offset < chunk.capacity(); offset += AMPLITUDE_BYTES) {
+                float re = chunk.getFloat(offset);
+                float im = chunk.getFloat(offset + 4);
+                out += re * re + im * im;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns the sum of the squared magnitudes of the selected amplitudes in
+     * a block, read from the chunks directly. A block never crosses a chunk,
+     * the sum is the same as that of StateBuffer.
+     */
+    @Override
+    protected double normSquaredWhere(long start, long mask, long value) {
+        long end = Math.min(start + CUMULATIVE_BLOCK, length);
+        ByteBuffer chunk = chunkOf(start);
+        int offset = offsetOf(start);
+        double out = 0.0;
+
+        for (long i = start; i < end; i++, offset += AMPLITUDE_BYTES) {
+            if ((i & mask) == value) {
+                double re = chunk.getFloat(offset);
+                double im = chunk.getFloat(offset + 4);
+                out += re * re + im * im;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Adds the squared norms of a range of amplitudes to their outcomes, read
+     * from the chunks directly, one chunk at a time.
+     */
+    @Override
+    protected void marginalNorms(long from, long to, long mask, double[] out) {
+        int shift = Long.numberOfTrailingZeros(mask);
+        boolean contiguous = (((mask >>> shift) + 1) & (mask >>> shift)) == 0;
+
+        for (long i = from; i < to;) {
+            ByteBuffer chunk = chunkOf(i);
+            long end = Math.min(to, ((i >>> CHUNK_BITS) + 1) << CHUNK_BITS);
+
+            for (int offset = offsetOf(i); i < end; i++, offset += AMPLITUDE_BYTES) {
+                double re = chunk.getFloat(offset);
+                double im = chunk.getFloat(offset + 4);
+
+                if (re != 0.0 || im != 0.0) {
+                    int k = (int) (contiguous ? (i & mask) >>> shift : compressBits(i, mask));
+                    out[k] += re * re + im * im;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void scale(double Scalar) {
+        projectWhere(0, 0, Scalar);
+    }
+
+    /**
+     * Projects the state vector onto the indices i satisfying (i &amp; mask)
+     * == value. Chunks are processed in order, the ranges of a chunk may run
+     * in parallel.
+     */
+    @Override
+    public void projectWhere(final long mask, final long value, double Scalar) {
+        final float scalar = (float) Scalar;
+
+        forChunks(0, 0, new ChunkKernel() {
+            public void run(ByteBuffer chunk, long base, int from, int to) {
+                for (int j = from; j < to; j++) {
+                    int offset = j * AMPLITUDE_BYTES;
+                    if (((base + j) & mask) == value) {
+                        chunk.putFloat(offset, scalar * chunk.getFloat(offset));
+                        chunk.putFloat(offset + 4, scalar * chunk.getFloat(offset + 4));
+                    } else {
+                        chunk.putLong(offset, 0L);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns a buffer of half the length holding the amplitudes whose index
+     * has the bit <var>stride</var> equal to <var>value</var>.
+     *
+     * The kept amplitudes form runs as long as the stride, each of which is
+     * copied from one chunk into one chunk of the new buffer. The chunks of
+     * the new buffer are filled in order, their ranges may run in parallel.
+     */
+    @Override
+    public StateBuffer removeBit(final long stride, final long value, double Scalar) {
+        final float scalar = (float) Scalar;
+        DirectStateBuffer out = (DirectStateBuffer) create(length >> 1);
+        final int run = runLength(stride);
+
+        out.forChunks(0, 0, new ChunkKernel() {
+            public void run(ByteBuffer chunk, long base, int from, int to) {
+                for (int j = from; j < to;) {
+                    long o = base + j;
+                    int end = Math.min(to, j + run - (int) (o & (run - 1)));
+
+                    //Insert the removed bit into the index
+                    long i = ((o & ~(stride - 1)) << 1) | (o & (stride - 1)) | value;
+                    ByteBuffer source = chunkOf(i);
+                    int offset = offsetOf(i);
+
+                    for (; j < end; j++, offset += AMPLITUDE_BYTES) {
+                        chunk.putFloat(j * AMPLITUDE_BYTES, scalar * source.getFloat(offset));
+                        chunk.putFloat(j * AMPLITUDE_BYTES + 4, scalar * source.getFloat(offset + 4));
+                    }
+                }
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Applies a real two-by-two matrix to every pair of amplitudes whose
+     * indices differ only in the bit <var>stride</var>.
+     *
+     * The indices with the bit clear form runs as long as the stride, each
+     * run is streamed alongside the run of its partners, which lies in the
+     * same chunk for low qubits and in a partner chunk for high ones. Chunks
+     * with the bit set are skipped, their amplitudes are written as partners.
+     * Every amplitude is read and written sequentially, which keeps the
+     * number of pages in use small when the chunks are mapped from a file,
+     * and the ranges of a chunk may run in parallel.
+     *
+     * @param stride the bit of the target qubit, 1 &lt;&lt; qubit
+     * @param a top left element
+     * @param b top right element
+     * @param c bottom left element
+     * @param d bottom right element
+     */
+    @Override
+    public void transformPairs(final long stride, double A, double B, double C, double D) {
+        //The gate is applied in the precision the amplitudes are stored in
+        final float a = (float) A;
+        final float b = (float) B;
+        final float c = (float) C;
+        final float d = (float) D;
+        final int run = runLength(stride);
+
+        forChunks(stride, 0, new ChunkKernel() {
+            public void run(ByteBuffer chunk, long base, int from, int to) {
+                for (int j = from; j < to;) {
+                    long i0 = base + j;
+                    int end = Math.min(to, j + run - (int) (i0 & (run - 1)));
+
+                    if ((i0 & stride) == 0) {
+                        long i1 = i0 + stride;
+                        transformChunks(chunk, j * AMPLITUDE_BYTES, chunkOf(i1), offsetOf(i1), (end - j) * AMPLITUDE_BYTES,
+                                a, b, c, d);
+                    }
+                    j = end;
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies a real two-by-two matrix to two runs of amplitudes of the same
+     * length, pairing the amplitudes of the runs in order.
+     *
+     * @param Low chunk holding the amplitudes with the bit clear
+     * @param LowOffset byte offset of the first run
+     * @param High chunk holding the amplitudes with the bit set
+     * @param HighOffset byte offset of the second run
+     * @param Bytes length of the runs in bytes
+     */
+    private static void transformChunks(ByteBuffer Low, int LowOffset, ByteBuffer High, int HighOffset, int Bytes,
+            float a, float b, float c, float d) {
+        for (int offset = 0; offset < Bytes; offset += AMPLITUDE_BYTES) {
+            int i0 = LowOffset + offset;
+            int i1 = HighOffset + offset;
+
+            float re0 = Low.getFloat(i0);
+            float im0 = Low.getFloat(i0 + 4);
+            float re1 = High.getFloat(i1);
+            float im1 = High.getFloat(i1 + 4);
+
+            Low.putFloat(i0, a * re0 + b * re1);
+            Low.putFloat(i0 + 4, a * im0 + b * im1);
+            High.putFloat(i1, c * re0 + d * re1);
+            High.putFloat(i1 + 4, c * im0 + d * im1);
+        }
+    }
+
+    /**
+     * Applies a complex two-by-two matrix to every pair of amplitudes whose
+     * indices differ only in the bit <var>stride</var>, run by run as the
+     * real version.
+     */
+    @Override
+    public void transformPairs(final long stride, double ARe, double AIm, double BRe, double BIm,
+            double CRe, double CIm, double DRe, double DIm) {
+        transformPairsWhere(stride, 0, 0, ARe, AIm, BRe, BIm, CRe, CIm, DRe, DIm);
+    }
+
+    /**
+     * Applies a complex two-by-two matrix to the pairs of amplitudes whose
+     * indices differ only in the bit <var>stride</var> and satisfy (i &amp;
+     * mask) == value.
+     *
+     * The indices with the target bit clear are walked in runs as long as the
+     * lowest bit of the controls and the target, the condition is tested once
+     * per run and each matching run is streamed alongside the run of its
+     * partners. Chunks that cannot match are skipped and the ranges of a
+     * chunk may run in parallel, a range only writes the pairs of its own
+     * indices.
+     */
+    @Override
+    public void transformPairsWhere(final long stride, long Mask, final long value, double ARe, double AIm, double BRe,
+            double BIm, double CRe, double CIm, double DRe, double DIm) {
+        final long mask = Mask | stride;
+        final int run = runLength(mask);
+
+        //The gate is applied in the precision the amplitudes are stored in
+        final float aRe = (float) ARe;
+        final float aIm = (float) AIm;
+        final float bRe = (float) BRe;
+        final float bIm = (float) BIm;
+        final float cRe = (float) CRe;
+        final float cIm = (float) CIm;
+        final float dRe = (float) DRe;
+        final float dIm = (float) DIm;
+
+        forChunks(mask, value, new ChunkKernel() {
+            public void run(ByteBuffer chunk, long base, int from, int to) {
+                for (int j = from; j < to;) {
+                    long i0 = base + j;
+                    int end = Math.min(to, j + run - (int) (i0 & (run - 1)));
+
+                    if ((i0 & mask) == value) {
+                        long i1 = i0 + stride;
+                        transformChunks(chunk, j * AMPLITUDE_BYTES, chunkOf(i1), offsetOf(i1), (end - j) * AMPLITUDE_BYTES,
+                                aRe, aIm, bRe, bIm, cRe, cIm, dRe, dIm);
+                    }
+                    j = end;
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies a complex two-by-two matrix to two runs of amplitudes of the
+     * same length, pairing the amplitudes of the runs in order.
+     */
+    private static void transformChunks(ByteBuffer Low, int LowOffset, ByteBuffer High, int HighOffset, int Bytes,
+            float aRe, float aIm, float bRe, float bIm, float cRe, float cIm, float dRe, float dIm) {
+        for (int offset = 0; offset < Bytes; offset += AMPLITUDE_BYTES) {
+            int i0 = LowOffset + offset;
+            int i1 = HighOffset + offset;
+
+            float re0 = Low.getFloat(i0);
+            float im0 = Low.getFloat(i0 + 4);
+            float re1 = High.getFloat(i1);
+            float im1 = High.getFloat(i1 + 4);
+
+            Low.putFloat(i0, aRe * re0 - aIm * im0 + bRe * re1 - bIm * im1);
+            Low.putFloat(i0 + 4, aRe * im0 + aIm * re0 + bRe * im1 + bIm * re1);
+            High.putFloat(i1, cRe * re0 - cIm * im0 + dRe * re1 - dIm * im1);
+            High.putFloat(i1 + 4, cRe * im0 + cIm * re0 + dRe * im1 + dIm * re1);
+        }
+    }
+
+    /**
+     * Multiplies the amplitudes with the bit <var>stride</var> clear by a and
+     * those with the bit set by d, run by run without testing each index.
+     */
+    @Override
+    public void multiplyPairs(final long stride, double ARe, double AIm, double DRe, double DIm) {
+        //The gate is applied in the precision the amplitudes are stored in
+        final float aRe = (float) ARe;
+        final float aIm = (float) AIm;
+        final float dRe = (float) DRe;
+        final float dIm = (float) DIm;
+        final int run = runLength(stride);
+
+        forChunks(0, 0, new ChunkKernel() {
+            public void run(ByteBuffer chunk, long base, int from, int to) {
+                for (int j = from; j < to;) {
+                    long i = base + j;
+                    int end = Math.min(to, j + run - (int) (i & (run - 1)));
+
+                    if ((i & stride) == 0) {
+                        multiplyChunk(chunk, j, end, aRe, aIm);
+                    } else {
+                        multiplyChunk(chunk, j, end, dRe, dIm);
+                    }
+                    j = end;
+                }
+            }
+        });
+    }
+
+    /**
+     * Multiplies the amplitudes from <var>from</var> up to <var>to</var> of a
+     * chunk by a complex number.
+     */
+    private static void multiplyChunk(ByteBuffer chunk, int from, int to, float real, float imaginary) {
+        for (int offset = from * AMPLITUDE_BYTES; offset < to * AMPLITUDE_BYTES; offset += AMPLITUDE_BYTES) {
+            float re = chunk.getFloat(offset);
+            float im = chunk.getFloat(offset + 4);
+
+            chunk.putFloat(offset, re * real - im * imaginary);
+            chunk.putFloat(offset + 4, re * imaginary + im * real);
+        }
+    }
+
+    /**
+     * Multiplies every amplitude whose index has all bits of <var>mask</var>
+     * set by a complex number, see multiplyWhere.
+     */
+    @Override
+    public void multiplyWhereSet(long mask, double Real, double Imaginary) {
+        multiplyWhere(mask, mask, Real, Imaginary);
+    }
+
+    /**
+     * Multiplies every amplitude whose index i satisfies (i &amp; mask) ==
+     * value by a complex number.
+     *
+     * Chunks in which none of the indices can match are skipped entirely, so
+     * e.g. a phase shift on a high qubit never touches half of the chunks.
+     * Within a chunk the indices are walked in runs as long as the lowest bit
+     * of the mask, the mask is tested once per run and the matching runs are
+     * multiplied in order. The ranges of a chunk may run in parallel.
+     */
+    @Override
+    public void multiplyWhere(final long mask, final long value, double Real, double Imaginary) {
+        final float real = (float) Real;
+        final float imaginary = (float) Imaginary;
+        final int run = runLength(mask);
+
+        forChunks(mask, value, new ChunkKernel() {
+            public void run(ByteBuffer chunk, long base, int from, int to) {
+                for (int j = from; j < to;) {
+                    long i = base + j;
+                    int end = Math.min(to, j + run - (int) (i & (run - 1)));
+
+                    if ((i & mask) == value) {
+                        multiplyChunk(chunk, j, end, real, imaginary);
+                    }
+                    j = end;
+                }
+            }
+        });
+    }
+
+    /**
+     * Swaps every amplitude whose index i satisfies (i &amp; mask) == value
+     * with the amplitude at i ^ flip.
+     *
+     * If no bit of <var>flip</var> lies below the lowest bit of the mask, a
+     * matching run of indices is swapped with a run of partners, which lies
+     * within one chunk. Otherwise every index is tested and its partner
+     * looked up. Amplitudes are swapped as a whole, real and imaginary part in
+     * one long. Chunks that cannot match are skipped and the ranges of a chunk
+     * may run in parallel, a range only swaps its own indices with partners
+     * which never match themselves.
+     */
+    @Override
+    public void swapWhere(final long mask, final long value, final long flip) {
+        final int run = runLength(mask);
+        final boolean runs = (flip & (run - 1)) == 0;
+
+        forChunks(mask, value, new ChunkKernel() {
+            public void run(ByteBuffer chunk, long base, int from, int to) {
+                if (!runs) {
+                    //Element by element, the partners of a run are scattered
+                    for (int j = from; j < to; j++) {
+                        long i = base + j;
+                        if ((i & mask) == value) {
+                            long l = i ^ flip;
+                            ByteBuffer partner = chunkOf(l);
+                            int offset = offsetOf(l);
+
+                            long amplitude = chunk.getLong(j * AMPLITUDE_BYTES);
+                            chunk.putLong(j * AMPLITUDE_BYTES, partner.getLong(offset));
+                            partner.putLong(offset, amplitude);
+                        }
+                    }
+                    return;
+                }
+
+                for (int j = from; j < to;) {
+                    long i = base + j;
+                    int end = Math.min(to, j + run - (int) (i & (run - 1)));
+
+                    if ((i & mask) == value) {
+                        long l = i ^ flip;
+                        ByteBuffer partner = chunkOf(l);
+                        int offset = offsetOf(l);
+
+                        for (; j < end; j++, offset += AMPLITUDE_BYTES) {
+                            long amplitude = chunk.getLong(j * AMPLITUDE_BYTES);
+                            chunk.putLong(j * AMPLITUDE_BYTES, partner.getLong(offset));
+                            partner.putLong(offset, amplitude);
+                        }
+                    }
+                    j = end;
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,593 @@
+package Core.Math;
+
+import java.util.Arrays;
+
+/**
+ * StateBuffer extention where the amplitudes are stored as doubles in two java
+ * arrays, one for the real parts and one for the imaginary parts.
+ *
+ * This is the buffer of the DOUBLE precision. It takes twice the memory of an
+ * ArrayStateBuffer, but the norm of the state vector stays accurate over many
+ * more gates, e.g. over hundreds of Grover iterations.
+ */
+public class DoubleArrayStateBuffer extends StateBuffer {
+
+    /**
+     * The real and imaginary parts of the amplitudes.
+     */
+    private double[] real;
+    private double[] imaginary;
+
+    /**
+     * Constructs a buffer with all amplitudes set to zero.
+     *
+     * @param length number of amplitudes
+     */
+    public DoubleArrayStateBuffer(int length) {
+        real = new double[length];
+        imaginary = new double[length];
+    }
+
+    /**
+     * Constructs a buffer from the real and imaginary parts of the amplitudes.
+     * The arrays are used directly and not copied.
+     *
+     * @param Real array containing the real parts
+     * @param Imaginary array containing the imaginary parts
+     */
+    public DoubleArrayStateBuffer(double[] Real, double[] Imaginary) {
+        real = Real;
+        imaginary = Imaginary;
+    }
+
+    /**
+     * Returns the array holding the real parts of the amplitudes. Changes to
+     * the array change the buffer.
+     *
+     * @return array of the real parts
+     */
+    public double[] getRealArray() {
+        return real;
+    }
+
+    /**
+     * Returns the array holding the imaginary parts of the amplitudes.
+     * Changes to the array change the buffer.
+     *
+     * @return array of the imaginary parts
+     */
+    public double[] getImaginaryArray() {
+        return imaginary;
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return Precision.DOUBLE;
+    }
+
+    @Override
+    public long length() {
+        return real.length;
+    }
+
+    @Override
+    public double getReal(long index) {
+        return real[(int) index];
+    }
+
+    @Override
+    public double getImaginary(long index) {
+        return imaginary[(int) index];
+    }
+
+    @Override
+    public void set(long index, double Real, double Imaginary) {
+        real[(int) index] = Real;
+        imaginary[(int) index] = Imaginary;
+    }
+
+    @Override
+    public StateBuffer create(long length) {
+        return new DoubleArrayStateBuffer((int) length);
+    }
+
+    @Override
+    public StateBuffer copy() {
+        return new DoubleArrayStateBuffer(real.clone(), imaginary.clone());
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(real, 0.0);
+        Arrays.fill(imaginary, 0.0);
+    }
+
+    @Override
+    public double normSquared() {
+        double out = 0.0;
+        for (int i = 0; i < real.length; i++) {
+            out += real[i] * real[i] + imaginary[i] * imaginary[i];
+        }
+        return out;
+    }
+
+    @Override
+    public void scale(final double scalar) {
+        if (!KernelPool.isParallel(real.length)) {
+            scaleRange(0, real.length, scalar);
+            return;
+        }
+
+        KernelPool.forRange(real.length, new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                scaleRange(from, to, scalar);
+            }
+        });
+    }
+
+    /**
+     * Multiplies a range of amplitudes by a real scalar.
+     */
+    private void scaleRange(int from, int to, double scalar) {
+        for (int i = from; i < to; i++) {
+            real[i] = scalar * real[i];
+            imaginary[i] = scalar * imaginary[i];
+        }
+    }
+
+    @Override
+    public void projectWhere(long Mask, long Value, final double scalar) {
+        final int mask = (int) Mask;
+        final int value = (int) Value;
+        if (!KernelPool.isParallel(real.length)) {
+            projectRange(0, real.length, mask, value, scalar);
+            return;
+        }
+
+        KernelPool.forRange(real.length, new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                projectRange(from, to, mask, value, scalar);
+            }
+        });
+    }
+
+    /**
+     * Projects a range of amplitudes, see projectWhere.
+     */
+    private void projectRange(int from, int to, int mask, int value, double scalar) {
+        for (int i = from; i < to; i++) {
+            if ((i & mask) == value) {
+                real[i] = scalar * real[i];
+                imaginary[i] = scalar * imaginary[i];
+            } else {
+                real[i] = 0;
+                imaginary[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Applies a real two-by-two matrix to every pair of amplitudes whose
+     * indices differ only in the bit <var>stride</var>.
+     *
+     * The pairs are numbered and split into ranges which may run in
+     * parallel, see transformRange.
+     */
+    @Override
+    public void transformPairs(long Stride, final double a, final double b, final double c, final double d) {
+        final int stride = (int) Stride;
+        if (!KernelPool.isParallel(real.length)) {
+            transformRange(0, real.length >> 1, stride, a, b, c, d);
+            return;
+        }
+
+        KernelPool.forRange(real.length >> 1, new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                transformRange(from, to, stride, a, b, c, d);
+            }
+        });
+    }
+
+    /**
+     * Applies a real two-by-two matrix to a range of pairs, pair p being made
+     * of the indices with bit <var>stride</var> clear and set and the other
+     * bits those of p.
+     *
+     * For the two lowest qubits the pairs lie within blocks of two or four
+     * amplitudes and are handled in one unrolled pass, the range has to start
+     * on an even pair. Otherwise consecutive pairs form two contiguous runs
+     * which are walked side by side, the inner loop has no branches so the
+     * JIT can vectorize it.
+     */
+    private void transformRange(int from, int to, int stride, double a, double b, double c, double d) {
+        double[] re = real;
+        double[] im = imaginary;
+
+        if (stride == 1) {
+            //Neighbouring pairs
+            for (int i0 = from << 1; i0 < to << 1; i0 += 2) {
+                double re0 = re[i0];
+                double im0 = im[i0];
+                double re1 = re[i0 + 1];
+                double im1 = im[i0 + 1];
+
+                re[i0] = a * re0 + b * re1;
+                im[i0] = a * im0 + b * im1;
+                re[i0 + 1] = c * re0 + d * re1;
+                im[i0 + 1] = c * im0 + d * im1;
+            }
+            return;
+        }
+
+        if (stride == 2) {
+            //Two interleaved pairs in every block of four
+            for (int i0 = from << 1; i0 < to << 1; i0 += 4) {
+                double re0 = re[i0];
+                double im0 = im[i0];
+                double re1 = re[i0 + 1];
+                double im1 = im[i0 + 1];
+                double re2 = re[i0 + 2];
+                double im2 = im[i0 + 2];
+                double re3 = re[i0 + 3];
+                double im3 = im[i0 + 3];
+
+                re[i0] = a * re0 + b * re2;
+                im[i0] = a * im0 + b * im2;
+                re[i0 + 1] = a * re1 + b * re3;
+                im[i0 + 1] = a * im1 + b * im3;
+                re[i0 + 2] = c * re0 + d * re2;
+                im[i0 + 2] = c * im0 + d * im2;
+                re[i0 + 3] = c * re1 + d * re3;
+                im[i0 + 3] = c * im1 + d * im3;
+            }
+            return;
+        }
+
+        //Runs of pairs within a block of bases in which the bit is first clear and then set
+        for (int p = from; p < to;) {
+            int offset = p & (stride - 1);
+            int run = Math.min(stride - offset, to - p);
+            int start = ((p - offset) << 1) + offset;
+            int end = start + run;
+
+            for (int i0 = start; i0 < end; i0++) {
+                int i1 = i0 + stride;
+
+                double re0 = re[i0];
+                double im0 = im[i0];
+                double re1 = re[i1];
+                double im1 = im[i1];
+
+                re[i0] = a * re0 + b * re1;
+                im[i0] = a * im0 + b * im1;
+                re[i1] = c * re0 + d * re1;
+                im[i1] = c * im0 + d * im1;
+            }
+
+            p += run;
+        }
+    }
+
+    /**
+     * Applies a complex two-by-two matrix to every pair of amplitudes whose
+     * indices differ only in the bit <var>stride</var>.
+     *
+     * The pairs are numbered and split into ranges which may run in
+     * parallel, see transformComplexRange.
+     */
+    @Override
+    public void transformPairs(long Stride, final double aRe, final double aIm, final double bRe, final double bIm,
+            final double cRe, final double cIm, final double dRe, final double dIm) {
+        final int stride = (int) Stride;
+        if (!KernelPool.isParallel(real.length)) {
+            transformComplexRange(0, real.length >> 1, stride, aRe, aIm, bRe, bIm, cRe, cIm, dRe, dIm);
+            return;
+        }
+
+        KernelPool.forRange(real.length >> 1, new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                transformComplexRange(from, to, stride, aRe, aIm, bRe, bIm, cRe, cIm, dRe, dIm);
+            }
+        });
+    }
+
+    /**
+     * Applies a complex two-by-two matrix to a range of pairs, pair p being
+     * made of the indices with bit <var>stride</var> clear and set and the
+     * other bits those of p. Consecutive pairs form two contiguous runs which
+     * are walked side by side, the inner loop has no branches.
+     */
+    private void transformComplexRange(int from, int to, int stride, double aRe, double aIm, double bRe, double bIm,
+            double cRe, double cIm, double dRe, double dIm) {
+        double[] re = real;
+        double[] im = imaginary;
+
+        for (int p = from; p < to;) {
+            int offset = p & (stride - 1);
+            int run = Math.min(stride - offset, to - p);
+            int start = ((p - offset) << 1) + offset;
+            int end = start + run;
+
+            for (int i0 = start; i0 < end; i0++) {
+                int i1 = i0 + stride;
+
+                double re0 = re[i0];
+                double im0 = im[i0];
+                double re1 = re[i1];
+                double im1 = im[i1];
+
+                re[i0] = aRe * re0 - aIm * im0 + bRe * re1 - bIm * im1;
+                im[i0] = aRe * im0 + aIm * re0 + bRe * im1 + bIm * re1;
+                re[i1] = cRe * re0 - cIm * im0 + dRe * re1 - dIm * im1;
+                im[i1] = cRe * im0 + cIm * re0 + dRe * im1 + dIm * re1;
+            }
+
+            p += run;
+        }
+    }
+
+    /**
+     * Applies a complex two-by-two matrix to the pairs of amplitudes whose
+     * other bits match the controls.
+     *
+     * The indices with the target bit clear are walked in runs as long as the
+     * lowest bit of the controls and the target, the condition is tested once
+     * per run and runs that do not match are skipped. Ranges of indices may
+     * run in parallel, a range only writes the pairs of its own indices.
+     */
+    @Override
+    public void transformPairsWhere(long Stride, long Mask, long Value, final double aRe, final double aIm, final double bRe, final double bIm,
+            final double cRe, final double cIm, final double dRe, final double dIm) {
+        final int stride = (int) Stride;
+        final int mask = (int) Mask | stride;
+        final int value = (int) Value;
+        if (!KernelPool.isParallel(real.length)) {
+            transformControlledRange(0, real.length, stride, mask, value, aRe, aIm, bRe, bIm, cRe, cIm, dRe, dIm);
+            return;
+        }
+
+        KernelPool.forRange(real.length, new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                transformControlledRange(from, to, stride, mask, value, aRe, aIm, bRe, bIm, cRe, cIm, dRe, dIm);
+            }
+        });
+    }
+
+    /**
+     * Applies a complex two-by-two matrix to the pairs of a range of indices,
+     * see transformPairsWhere. The mask includes the target bit.
+     */
+    private void transformControlledRange(int from, int to, int stride, int mask, int value, double aRe, double aIm, double bRe,
+            double bIm, double cRe, double cIm, double dRe, double dIm) {
+        double[] re = real;
+        double[] im = imaginary;
+        int low = Integer.lowestOneBit(mask);
+
+        for (int run = from - (from & (low - 1)); run < to; run += low) {
+            if ((run & mask) != value) {
+                continue;
+            }
+
+            int end = Math.min(run + low, to);
+
+            for (int i0 = Math.max(run, from); i0 < end; i0++) {
+                int i1 = i0 + stride;
+
+                double re0 = re[i0];
+                double im0 = im[i0];
+                double re1 = re[i1];
+                double im1 = im[i1];
+
+                re[i0] = aRe * re0 - aIm * im0 + bRe * re1 - bIm * im1;
+                im[i0] = aRe * im0 + aIm * re0 + bRe * im1 + bIm * re1;
+                re[i1] = cRe * re0 - cIm * im0 + dRe * re1 - dIm * im1;
+                im[i1] = cRe * im0 + cIm * re0 + dRe * im1 + dIm * re1;
+            }
+        }
+    }
+
+    /**
+     * Multiplies the amplitudes with the bit <var>stride</var> clear by a and
+     * those with the bit set by d.
+     *
+     * The pairs are numbered and split into ranges which may run in
+     * parallel, both runs of a block of pairs are multiplied without testing
+     * each index.
+     */
+    @Override
+    public void multiplyPairs(long Stride, final double aRe, final double aIm, final double dRe, final double dIm) {
+        final int stride = (int) Stride;
+        if (!KernelPool.isParallel(real.length)) {
+            multiplyPairRange(0, real.length >> 1, stride, aRe, aIm, dRe, dIm);
+            return;
+        }
+
+        KernelPool.forRange(real.length >> 1, new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                multiplyPairRange(from, to, stride, aRe, aIm, dRe, dIm);
+            }
+        });
+    }
+
+    /**
+     * Multiplies the amplitudes of a range of pairs, see multiplyPairs.
+     */
+    private void multiplyPairRange(int from, int to, int stride, double aRe, double aIm, double dRe, double dIm) {
+        double[] re = real;
+        double[] im = imaginary;
+
+        for (int p = from; p < to;) {
+            int offset = p & (stride - 1);
+            int run = Math.min(stride - offset, to - p);
+            int start = ((p - offset) << 1) + offset;
+            int end = start + run;
+
+            for (int i0 = start; i0 < end; i0++) {
+                int i1 = i0 + stride;
+
+                double re0 = re[i0];
+                double im0 = im[i0];
+                double re1 = re[i1];
+                double im1 = im[i1];
+
+                re[i0] = re0 * aRe - im0 * aIm;
+                im[i0] = re0 * aIm + im0 * aRe;
+                re[i1] = re1 * dRe - im1 * dIm;
+                im[i1] = re1 * dIm + im1 * dRe;
+            }
+
+            p += run;
+        }
+    }
+
+    /**
+     * Multiplies every amplitude whose index has all bits of <var>mask</var>
+     * set by a complex number.
+     */
+    @Override
+    public void multiplyWhereSet(long Mask, double re1, double im1) {
+        multiplyWhere(Mask, Mask, re1, im1);
+    }
+
+    /**
+     * Multiplies every amplitude whose index i satisfies (i &amp; mask) ==
+     * value by a complex number.
+     *
+     * The indices are walked in runs as long as the lowest bit of the mask,
+     * within a run only the bits below it change, so the mask is tested once
+     * per run and the inner loop has no branches. Ranges of indices may run
+     * in parallel.
+     */
+    @Override
+    public void multiplyWhere(long Mask, long Value, final double re1, final double im1) {
+        final int mask = (int) Mask;
+        final int value = (int) Value;
+        if (!KernelPool.isParallel(real.length)) {
+            multiplyRange(0, real.length, mask, value, re1, im1);
+            return;
+        }
+
+        KernelPool.forRange(real.length, new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                multiplyRange(from, to, mask, value, re1, im1);
+            }
+        });
+    }
+
+    /**
+     * Multiplies the amplitudes of a range of indices, see multiplyWhere.
+     */
+    private void multiplyRange(int from, int to, int mask, int value, double re1, double im1) {
+        double[] re = real;
+        double[] im = imaginary;
+
+        //Without a mask every amplitude is one run
+        int low = (mask == 0) ? real.length : Integer.lowestOneBit(mask);
+
+        if (low < 4) {
+            //Element by element, runs this short do not pay off
+            for (int i = from; i < to; i++) {
+                if ((i & mask) == value) {
+                    double re0 = re[i];
+                    double im0 = im[i];
+
+                    re[i] = re0 * re1 - im0 * im1;
+                    im[i] = re0 * im1 + im0 * re1;
+                }
+            }
+            return;
+        }
+
+        for (int run = from - (from & (low - 1)); run < to; run += low) {
+            if ((run & mask) != value) {
+                continue;
+            }
+
+            int end = Math.min(run + low, to);
+
+            for (int i = Math.max(run, from); i < end; i++) {
+                double re0 = re[i];
+                double im0 = im[i];
+
+                re[i] = re0 * re1 - im0 * im1;
+                im[i] = re0 * im1 + im0 * re1;
+            }
+        }
+    }
+
+    /**
+     * Swaps every amplitude whose index i satisfies (i &amp; mask) == value
+     * with the amplitude at i ^ flip.
+     *
+     * If no bit of <var>flip</var> lies below the lowest bit of the mask, a
+     * run of indices as long as that bit is swapped with a run of partners
+     * without testing each index. Otherwise, or if the runs are very short,
+     * every index is tested. Ranges of indices may run in parallel, a range
+     * only swaps the indices in it which satisfy the condition and their
+     * partners never do.
+     */
+    @Override
+    public void swapWhere(long Mask, long Value, long Flip) {
+        final int mask = (int) Mask;
+        final int value = (int) Value;
+        final int flip = (int) Flip;
+        final int low = Integer.lowestOneBit(mask);
+
+        if (!KernelPool.isParallel(real.length)) {
+            swapRange(0, real.length, mask, value, flip, low);
+            return;
+        }
+
+        KernelPool.forRange(real.length, new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                swapRange(from, to, mask, value, flip, low);
+            }
+        });
+    }
+
+    /**
+     * Swaps the amplitudes of a range of indices, see swapWhere.
+     */
+    private void swapRange(int from, int to, int mask, int value, int flip, int low) {
+        double[] re = real;
+        double[] im = imaginary;
+
+        if (low < 4 || (flip & (low - 1)) != 0) {
+            //Element by element, runs this short do not pay off
+            for (int i = from; i < to; i++) {
+                if ((i & mask) == value) {
+                    int l = i ^ flip;
+
+                    double re0 = re[i];
+                    double im0 = im[i];
+                    re[i] = re[l];
+                    im[i] = im[l];
+                    re[l] = re0;
+                    im[l] = im0;
+                }
+            }
+            return;
+        }
+
+        //Run by run, the partners of a run form a run as well
+        for (int run = from - (from & (low - 1)); run < to; run += low) {
+            if ((run & mask) != value) {
+                continue;
+            }
+
+            int offset = (run ^ flip) - run;
+            int end = Math.min(run + low, to);
+
+            for (int i = Math.max(run, from); i < end; i++) {
+                int l = i + offset;
+
+                double re0 = re[i];
+                double im0 = im[i];
+                re[i] = re[l];
+                im[i] = im[l];
+                re[l] = re0;
+                im[l] = im0;
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package Core.Math;
+
+/**
+ * Iterative fast Fourier transform of a complex sequence of length 2^L, with
+ * the convention of the quantum Fourier transform: x_k becomes 1/sqrt(N) sum
+ * over j of e^(2*pi*i*j*k/N) x_j.
+ *
+ * After the bit reversal the first stages run block by block within the
+ * cache, the later stages sweep the whole sequence. Stages are done two at a
+ * time as radix-4 steps, so the sequence is read half as often.
+ *
+ * The twiddle factors and the bit reversal permutation only depend on L, so
+ * they are computed once per L and shared by all transforms. Once computed
+ * they are found without locking, transforms running in parallel do not
+ * wait on each other.
+ */
+public final class FourierTransform {
+
+    /**
+     * Largest L a transform can have.
+     */
+    public static final int MAX_BITS = 30;
+    /**
+     * Length of the blocks the first stages work on, small enough for the
+     * cache.
+     */
+    private static final int BLOCK = 1 << 11;
+    /**
+     * The tables of a length.
+     */
+    private static final class Tables {
+
+        /**
+         * Cosines and sines of 2*pi*k/N for k below N/2.
+         */
+        final double[] cos, sin;
+        /**
+         * Bit reversal permutation of 0 up to N.
+         */
+        final int[] reversal;
+
+        Tables(double[] Cos, double[] Sin, int[] Reversal) {
+            cos = Cos;
+            sin = Sin;
+            reversal = Reversal;
+        }
+    }
+
+    /**
+     * The tables by L, null until computed. The fields of Tables are final,
+     * so a thread that sees an entry also sees the contents of its arrays.
+     */
+    private static final Tables[] tables = new Tables[MAX_BITS + 1];
+
+    private FourierTransform() {
+    }
+
+    /**
+     * Computes the tables of L if they do not exist yet. Transforms do this
+     * themselves, calling it once before transforming many sequences in
+     * parallel keeps the computation out of the parallel part.
+     *
+     * @param Bits L, at most MAX_BITS
+     */
+    public static void prepare(int Bits) {
+        tables(Bits);
+    }
+
+    /**
+     * Returns the tables of L, computing them on the first call.
+     */
+    private static Tables tables(int Bits) {
+        if (Bits < 0 || Bits > MAX_BITS) {
+            throw new IllegalArgumentException("Cannot transform more than " + MAX_BITS + " qubits");
+        }
+
+        Tables out = tables[Bits];
+        if (out == null) {
+            out = compute(Bits);
+        }
+        return out;
+    }
+
+    /**
+     * Computes and stores the tables of L, unless another thread has done so
+     * first.
+     */
+    private static synchronized Tables compute(int Bits) {
+        if (tables[Bits] != null) {
+            return tables[Bits];
+        }
+
+        int size = 1 << Bits;
+        double[] cos = new double[Math.max(size / 2, 1)];
+        double[] sin = new double[cos.length];
+        for (int k = 0; k < size / 2; k++) {
+            double angle = 2.0 * Math.PI * k / size;
+            cos[k] = Math.cos(angle);
+            sin[k] = Math.sin(angle);
+        }
+
+        int[] reversal = new int[size];
+        for (int k = 1; k < size; k++) {
+            reversal[k] = (reversal[k >> 1] >> 1) | ((k & 1) << (Bits - 1));
+        }
+
+        tables[Bits] = new Tables(cos, sin, reversal);
+        return tables[Bits];
+    }
+
+    /**
+     * Transforms a sequence of length 2^L in place and scales it by
+     * 1/sqrt(2^L), the inverse uses e^(-2*pi*i*j*k/N).
+     *
+     * @param Real real parts of the sequence, at least 2^L long
+     * @param Imaginary imaginary parts of the sequence, at least 2^L long
+     * @param Bits L, at most MAX_BITS
+     * @param Inverse true for the inverse transform
+     */
+    public static void transform(double[] Real, double[] Imaginary, int Bits, boolean Inverse) {
+        Tables table = tables(Bits);
+
+        int size = 1 << Bits;
+        double[] cos = table.cos;
+        double[] sin = table.sin;
+        int[] reversal = table.reversal;
+        double sign = Inverse ? -1.0 : 1.0;
+
+        //Bit reversed order, so the butterflies can work in place
+        for (int k = 0; k < size; k++) {
+            int r = reversal[k];
+            if (r > k) {
+                double re = Real[k];
+                Real[k] = Real[r];
+                Real[r] = re;
+                double im = Imaginary[k];
+                Imaginary[k] = Imaginary[r];
+                Imaginary[r] = im;
+            }
+        }
+
+        //The first stages only combine elements within a block, which stays in the cache
+        int block = Math.min(size, BLOCK);
+        for (int from = 0; from < size; from += block) {
+            stages(Real, Imaginary, cos, sin, sign, size, from, from + block, 1);
+        }
+
+        //The later stages sweep the whole sequence
+        stages(Real, Imaginary, cos, sin, sign, size, 0, size, block);
+
+        double scale = 1.0 / Math.sqrt(size);
+        for (int k = 0; k < size; k++) {
+            Real[k] *= scale;
+            Imaginary[k] *= scale;
+        }
+    }
+
+    /**
+     * The stages from half span <var>first</var> up to transforms of length
+     * <var>to</var> - <var>from</var> on the elements from <var>from</var>
+     * up to <var>to</var>, two stages at a time.
+     */
+    private static void stages(double[] Real, double[] Imaginary, double[] cos, double[] sin, double sign,
+            int size, int from, int to, int first) {
+        int h = first;
+        for (; 4 * h <= to - from; h <<= 2) {
+            radix4(Real, Imaginary, cos, sin, sign, size, from, to, h);
+        }
+        if (2 * h <= to - from) {
+            radix2(Real, Imaginary, cos, sin, sign, size, from, to, h);
+        }
+    }
+
+    /**
+     * One stage of butterflies of half span h, combining pairs of transforms
+     * of length h into transforms of length 2h, on the elements from
+     * <var>from</var> up to <var>to</var>.
+     */
+    private static void radix2(double[] Real, double[] Imaginary, double[] cos, double[] sin, double sign,
+            int size, int from, int to, int h) {
+        int step = size / (2 * h);
+        for (int start = from; start < to; start += 2 * h) {
+            for (int k = 0; k < h; k++) {
+                double wRe = cos[k * step];
+                double wIm = sign * sin[k * step];
+                int i = start + k;
+                int j = i + h;
+
+                double tRe = wRe * Real[j] - wIm * Imaginary[j];
+                double tIm = wRe * Imaginary[j] + wIm * Real[j];
+                Real[j] = Real[i] - tRe;
+                Imaginary[j] = Imaginary[i] - tIm;
+                Real[i] += tRe;
+                Imaginary[i] += tIm;
+            }
+        }
+    }
+
+    /**
+     * The stages of half span h and 2h in one sweep, combining four
+     * transforms of length h into transforms of length 4h. The twiddle of
+     * the second stage for k + h is that for k times sign * i, so the result
+     * is the same as of the two radix-2 stages.
+     */
+    private static void radix4(double[] Real, double[] Imaginary, double[] cos, double[] sin, double sign,
+            int size, int from, int to, int h) {
+        int step1 = size / (2 * h);
+        int step2 = size / (4 * h);
+        for (int start = from; start < to; start += 4 * h) {
+            for (int k = 0; k < h; k++) {
+                double w1Re = cos[k * step1];
+                double w1Im = sign * sin[k * step1];
+                double w2Re = cos[k * step2];
+                double w2Im = sign * sin[k * step2];
+                int i0 = start + k;
+                int i1 = i0 + h;
+                int i2 = i1 + h;
+                int i3 = i2 + h;
+
+                //First stage, pairs (i0, i1) and (i2, i3)
+                double tRe = w1Re * Real[i1] - w1Im * Imaginary[i1];
+                double tIm = w1Re * Imaginary[i1] + w1Im * Real[i1];
+                double b0Re = Real[i0] + tRe;
+                double b0Im = Imaginary[i0] + tIm;
+                double b1Re = Real[i0] - tRe;
+                double b1Im = Imaginary[i0] - tIm;
+                tRe = w1Re * Real[i3] - w1Im * Imaginary[i3];
+                tIm = w1Re * Imaginary[i3] + w1Im * Real[i3];
+                double b2Re = Real[i2] + tRe;
+                double b2Im = Imaginary[i2] + tIm;
+                double b3Re = Real[i2] - tRe;
+                double b3Im = Imaginary[i2] - tIm;
+
+                //Second stage, pairs (i0, i2) and (i1, i3)
+                tRe = w2Re * b2Re - w2Im * b2Im;
+                tIm = w2Re * b2Im + w2Im * b2Re;
+                Real[i0] = b0Re + tRe;
+                Imaginary[i0] = b0Im + tIm;
+                Real[i2] = b0Re - tRe;
+                Imaginary[i2] = b0Im - tIm;
+                double uRe = w2Re * b3Re - w2Im * b3Im;
+                double uIm = w2Re * b3Im + w2Im * b3Re;
+                tRe = -sign * uIm;
+                tIm = sign * uRe;
+                Real[i1] = b1Re + tRe;
+                Imaginary[i1] = b1Im + tIm;
+                Real[i3] = b1Re - tRe;
+                Imaginary[i3] = b1Im - tIm;
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package Core.Math;
+
+/**
+ * StructuredMatrix extention for the identity matrix, only the order is
+ * stored.
+ */
+public class IdentityMatrix extends StructuredMatrix {
+
+    /**
+     * Constructs the identity matrix of an order.
+     *
+     * @param n order
+     */
+    public IdentityMatrix(int n) {
+        setOrder(n);
+    }
+
+    /**
+     * Returns a copy of the matrix.
+     *
+     * @return the copy
+     */
+    @Override
+    public Matrix copy() {
+        if (written != null) {
+            return written.copy();
+        }
+        return new IdentityMatrix(getOrder());
+    }
+
+    @Override
+    int rowOf(int column) {
+        return column;
+    }
+
+    @Override
+    double realOf(int column) {
+        return 1.0;
+    }
+
+    @Override
+    double imaginaryOf(int column) {
+        return 0.0;
+    }
+
+    /**
+     * Multiplies matrix by a vector, which is a copy of the vector.
+     *
+     * @param v vector
+     * @return copy of v
+     */
+    @Override
+    public ComplexVector multiply(ComplexVector v) {
+        if (written != null) {
+            return written.multiply(v);
+        }
+        return v.copy();
+    }
+
+    /**
+     * Multiplies matrix by another matrix, which gives a copy of the other
+     * matrix, so changing the product does not change m.
+     *
+     * @param m
+     * @return copy of m
+     */
+    @Override
+    public Matrix multiply(Matrix m) {
+        if (written != null) {
+            return written.multiply(m);
+        }
+        return m.copy();
+    }
+
+    /**
+     * Performs matrix tensor product, the tensor product of two identity
+     * matrices is the identity matrix of the product of their orders.
+     *
+     * @param m
+     * @return matrix x m
+     */
+    @Override
+    public Matrix tensorProduct(Matrix m) {
+        if (written != null) {
+            return written.tensorProduct(m);
+        }
+        if (m instanceof IdentityMatrix && isStructured(m)) {
+            if ((long) getOrder() * m.getOrder() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Tensor product too large");
+            }
+            return new IdentityMatrix(getOrder() * m.getOrder());
+        }
+        return super.tensorProduct(m);
+    }
+}
@@ -0,0 +1,158 @@
+package Core.Math;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The thread pool the gate kernels of the state buffers run on.
+ *
+ * A kernel splits its index space into ranges which are processed by a
+ * ForkJoinPool. Every range writes a disjoint set of amplitudes with the same
+ * arithmetic as the sequential loop, so the results do not depend on the
+ * number of threads. Buffers smaller than the threshold are processed
+ * sequentially on the calling thread.
+ */
+public class KernelPool {
+
+    /**
+     * Smallest number of amplitudes for which kernels run in parallel.
+     */
+    public static final int DEFAULT_THRESHOLD = 1 << 16;
+    /**
+     * Smallest range handed to one task, ranges are kept a multiple of four
+     * so the unrolled low qubit loops stay aligned.
+     */
+    private static final int MIN_GRAIN = 1 << 12;
+    /**
+     * The pool the kernels run on.
+     */
+    private static volatile ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    /**
+     * Smallest number of amplitudes for which kernels run in parallel.
+     */
+    private static volatile int threshold = DEFAULT_THRESHOLD;
+
+    /**
+     * Part of a kernel working on a range of indices.
+     */
+    interface RangeKernel {
+
+        /**
+         * Processes the indices from <var>from</var> up to but excluding
+         * <var>to</var>.
+         */
+        void run(int from, int to);
+    }
+
+    /**
+     * Task splitting a range in halves until it is small enough.
+     */
+    private static class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private RangeKernel kernel;
+        private int from, to, grain;
+
+        RangeTask(RangeKernel Kernel, int From, int To, int Grain) {
+            kernel = Kernel;
+            from = From;
+            to = To;
+            grain = Grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                kernel.run(from, to);
+            } else {
+                //Split on a multiple of the grain
+                int middle = from + ((((to - from) / grain) >>> 1) * grain);
+                invokeAll(new RangeTask(kernel, from, middle, grain), new RangeTask(kernel, middle, to, grain));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of amplitudes from which kernels run in parallel.
+     *
+     * @return the threshold
+     */
+    public static int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Sets the number of amplitudes from which kernels run in parallel,
+     * Integer.MAX_VALUE keeps every kernel sequential.
+     *
+     * @param Threshold the new threshold
+     */
+    public static void setThreshold(int Threshold) {
+        threshold = Threshold;
+    }
+
+    /**
+     * Returns the number of threads the kernels run on.
+     *
+     * @return the parallelism of the pool
+     */
+    public static int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Replaces the pool by a pool with a number of threads.
+     *
+     * The old pool is not shut down, kernels which read it before the change
+     * run there until they finish. Its threads are daemon threads which end
+     * once they have been idle for a while.
+     *
+     * @param Parallelism number of threads
+     */
+    public static synchronized void setParallelism(int Parallelism) {
+        if (Parallelism != pool.getParallelism()) {
+            pool = new ForkJoinPool(Parallelism);
+        }
+    }
+
+    /**
+     * Returns whether the kernels of a buffer run in parallel, otherwise they
+     * run sequentially on the calling thread without creating any tasks.
+     *
+     * @param Amplitudes number of amplitudes of the buffer
+     * @return true if the buffer is large enough and there are several
+     * threads
+     */
+    static boolean isParallel(long Amplitudes) {
+        return Amplitudes >= threshold && pool.getParallelism() > 1;
+    }
+
+    /**
+     * Runs a kernel in parallel over the indices from zero up to but
+     * excluding <var>Length</var>.
+     *
+     * @param Length number of indices
+     * @param Kernel the kernel
+     */
+    static void forRange(int Length, RangeKernel Kernel) {
+        forRange(Length, MIN_GRAIN, Kernel);
+    }
+
+    /**
+     * Runs a kernel in parallel over the indices from zero up to but
+     * excluding <var>Length</var>, with a smallest range for kernels whose
+     * indices are not amplitudes.
+     *
+     * @param Length number of indices
+     * @param MinGrain smallest range handed to one task, a power of two
+     * @param Kernel the kernel
+     */
+    static void forRange(int Length, int MinGrain, RangeKernel Kernel) {
+        //Pools are never shut down, so this one accepts the task even if it is replaced meanwhile
+        ForkJoinPool current = pool;
+
+        //A few ranges per thread so the threads stay busy, as a power of two
+        int grain = Integer.highestOneBit(Math.max(Length / (4 * current.getParallelism()), MinGrain));
+        current.invoke(new RangeTask(Kernel, 0, Length, grain));
+    }
+}
@@ -0,0 +1,264 @@
+package Core.Math;
+
+/**
+ * Matrix extention representing the Kronecker product I (x) U (x) I of a small
+ * matrix U with two identity matrices, without storing it.
+ *
+ * Row and column indices are split as (outer * order(U) + u) * inner + i, so U
+ * acts on the digit u and the element is zero unless the outer and inner
+ * digits of row and column agree. For a gate U on qubit k of an n qubit
+ * register the inner identity has order 2^k and the outer one 2^(n-1-k).
+ * Multiplying a vector visits every component order(U) times instead of the
+ * whole matrix. U is copied when the product is constructed, so later
+ * changes to U do not change it. Setting an element switches the matrix to a
+ * dense or sparse copy of its elements, which then holds all further changes.
+ */
+public class KroneckerMatrix extends Matrix {
+
+    /**
+     * Order of the identity on the left, acting on the high digits.
+     */
+    private int outer;
+    /**
+     * Order of the identity on the right, acting on the low digits.
+     */
+    private int inner;
+    /**
+     * A copy of the small matrix U, later changes to U do not change the
+     * product.
+     */
+    private Matrix matrix;
+    /**
+     * Order of U.
+     */
+    private int size;
+    /**
+     * The elements of U row by row, real and imaginary parts. All elements
+     * of the product are read from them.
+     */
+    private double[] real;
+    private double[] imaginary;
+    /**
+     * Number of non-zero elements of U.
+     */
+    private int elements;
+    /**
+     * The copy of the elements once an element has been set, null before.
+     * All calls are passed on to it from then.
+     */
+    private Matrix written;
+
+    /**
+     * Constructs the Kronecker product I(Outer) (x) U (x) I(Inner).
+     *
+     * @param Outer order of the identity on the left
+     * @param U the matrix in the middle
+     * @param Inner order of the identity on the right
+     */
+    public KroneckerMatrix(int Outer, Matrix U, int Inner) {
+        if ((long) Outer * U.getOrder() * Inner > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Matrix order too large");
+        }
+
+        outer = Outer;
+        inner = Inner;
+        matrix = U.copy();
+        size = U.getOrder();
+        setOrder(Outer * size * Inner);
+
+        //Buffer the elements of U as primitives
+        real = new double[size * size];
+        imaginary = new double[size * size];
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                Complex z = U.getElement(row, column);
+                real[row * size + column] = z.getReal();
+                imaginary[row * size + column] = z.getImaginary();
+                if (z.getReal() != 0 || z.getImaginary() != 0) {
+                    elements++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the matrix in the middle of the product, as it was
+     * when the product was constructed.
+     *
+     * @return U
+     */
+    public Matrix getMatrix() {
+        return matrix.copy();
+    }
+
+    @Override
+    public Complex getElement(int row, int column) {
+        if (written != null) {
+            return written.getElement(row, column);
+        }
+
+        //The outer and inner digits have to agree
+        if (row / (size * inner) != column / (size * inner) || row % inner != column % inner) {
+            return new Complex();
+        }
+
+        int k = ((row / inner) % size) * size + (column / inner) % size;
+        return new Complex(real[k], imaginary[k]);
+    }
+
+    /**
+     * Sets an element. The product is not stored, so the first change copies
+     * the elements into a dense or sparse matrix, which is changed instead.
+     *
+     * @param row
+     * @param column
+     * @param z complex number to put at (row, column)
+     */
+    @Override
+    public void setElement(int row, int column, Complex z) {
+        if (written == null) {
+            written = writableCopy();
+        }
+        written.setElement(row, column, z);
+    }
+
+    @Override
+    public int getNonZeroElmentCount() {
+        if (written != null) {
+            return written.getNonZeroElmentCount();
+        }
+        //The count can exceed an int even when the order does not
+        return (int) Math.min(Integer.MAX_VALUE, (long) outer * inner * elements);
+    }
+
+    /**
+     * Returns a dense or sparse matrix holding the elements of the product,
+     * visiting only the non-zero elements of U for every pair of outer and
+     * inner digits.
+     */
+    @Override
+    Matrix writableCopy() {
+        return toCSRMatrix().writableCopy();
+    }
+
+    /**
+     * Returns a CSRMatrix holding the elements of the product, visiting only
+     * the non-zero elements of U for every pair of outer and inner digits.
+     *
+     * @return the elements in compressed sparse row form
+     */
+    @Override
+    CSRMatrix toCSRMatrix() {
+        if (written != null) {
+            return written.toCSRMatrix();
+        }
+
+        long total = (long) outer * inner * elements;
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many non-zero elements for a CSRMatrix");
+        }
+
+        int[] rows = new int[(int) total];
+        int[] columns = new int[(int) total];
+        double[] re = new double[(int) total];
+        double[] im = new double[(int) total];
+        int block = size * inner;
+        int count = 0;
+
+        for (int o = 0; o < outer; o++) {
+            for (int i = 0; i < inner; i++) {
+                int base = o * block + i;
+                for (int row = 0; row < size; row++) {
+                    for (int column = 0; column < size; column++) {
+                        int k = row * size + column;
+                        if (real[k] != 0 || imaginary[k] != 0) {
+                            rows[count] = base + row * inner;
+                            columns[count] = base + column * inner;
+                            re[count] = real[k];
+                            im[count] = imaginary[k];
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return new CSRMatrix(getOrder(), rows, columns, re, im, count);
+    }
+
+    /**
+     * Returns a copy of the matrix, the product of a copy of U with the same
+     * identities.
+     *
+     * @return the copy
+     */
+    @Override
+    public Matrix copy() {
+        if (written != null) {
+            return written.copy();
+        }
+        return new KroneckerMatrix(outer, matrix, inner);
+    }
+
+    /**
+     * Multiplies the matrix by a vector.
+     *
+     * For every pair of outer and inner digits the order(U) components that
+     * differ only in the middle digit are multiplied by U. The result is
+     * stored in a buffer of the same kind as that of the vector.
+     *
+     * @param v vector
+     * @return matrix * v
+     */
+    @Override
+    public ComplexVector multiply(ComplexVector v) {
+        if (written != null) {
+            return written.multiply(v);
+        }
+
+        StateBuffer in = v.getStateBuffer();
+        StateBuffer out = in.create(getOrder());
+
+        double[] re = new double[size];
+        double[] im = new double[size];
+        long block = (long) size * inner;
+
+        for (long o = 0; o < outer; o++) {
+            for (long i = 0; i < inner; i++) {
+                long base = o * block + i;
+
+                //Components that differ only in the middle digit
+                for (int column = 0; column < size; column++) {
+                    re[column] = in.getReal(base + column * (long) inner);
+                    im[column] = in.getImaginary(base + column * (long) inner);
+                }
+
+                for (int row = 0; row < size; row++) {
+                    double sumRe = 0.0;
+                    double sumIm = 0.0;
+                    for (int column = 0; column < size; column++) {
+                        double aRe = real[row * size + column];
+                        double aIm = imaginary[row * size + column];
+                        sumRe += aRe * re[column] - aIm * im[column];
+                        sumIm += aRe * im[column] + aIm * re[column];
+                    }
+                    out.set(base + row * (long) inner, sumRe, sumIm);
+                }
+            }
+        }
+
+        return new ComplexVector(out);
+    }
+
+    /**
+     * Returns string representation of matrix.
+     *
+     * @return string representation of matrix
+     */
+    @Override
+    public String toString() {
+        if (written != null) {
+            return written.toString();
+        }
+        return "I(" + outer + ") x\n" + matrix + "x I(" + inner + ")\n";
+    }
+}
@@ -0,0 +1,155 @@
+package Core.Math;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * DirectStateBuffer extention where the amplitudes are kept in a memory-mapped
+ * file, so a register can be larger than the physical memory.
+ *
+ * The file is mapped in segments of 2^CHUNK_BITS amplitudes, which are a
+ * multiple of the page size. The operating system pages the segments in and
+ * out of its page cache, the gate kernels of DirectStateBuffer sweep through
+ * the segments sequentially so this stays efficient even for gates on the
+ * highest qubits.
+ *
+ * A mapping is released when the buffer is garbage collected, the file is
+ * left behind unless it is a temporary file.
+ */
+public class MappedStateBuffer extends DirectStateBuffer {
+
+    /**
+     * The file holding the amplitudes.
+     */
+    private File file;
+
+    /**
+     * Constructs a buffer mapped from a file, using the default precision. The
+     * file is created or resized if necessary, amplitudes already stored in
+     * the file are kept so a state can be reopened.
+     *
+     * @param Length number of amplitudes
+     * @param File file holding the amplitudes
+     * @throws IOException if the file could not be mapped
+     */
+    public MappedStateBuffer(long Length, File File) throws IOException {
+        this(Length, File, getDefaultPrecision());
+    }
+
+    /**
+     * Constructs a buffer mapped from a file. The file is created or resized
+     * if necessary, amplitudes already stored in the file are kept so a state
+     * can be reopened.
+     *
+     * @param Length number of amplitudes
+     * @param File file holding the amplitudes
+     * @param Precision precision of the buffer, DOUBLE is taken as MIXED
+     * @throws IOException if the file could not be mapped
+     */
+    public MappedStateBuffer(long Length, File File, Precision Precision) throws IOException {
+        super(Length, map(Length, File), Precision);
+        file = File;
+    }
+
+    /**
+     * Constructs a buffer with all amplitudes set to zero, mapped from a
+     * temporary file which is deleted when the virtual machine exits.
+     *
+     * @param Length number of amplitudes
+     * @param Directory directory of the temporary file, or null for the
+     * default temporary directory
+     * @return the new buffer
+     * @throws IOException if the file could not be created or mapped
+     */
+    public static MappedStateBuffer createTemporary(long Length, File Directory) throws IOException {
+        return createTemporary(Length, Directory, getDefaultPrecision());
+    }
+
+    /**
+     * Constructs a buffer with all amplitudes set to zero, mapped from a
+     * temporary file which is deleted when the virtual machine exits.
+     *
+     * @param Length number of amplitudes
+     * @param Directory directory of the temporary file, or null for the
+     * default temporary directory
+     * @param Precision precision of the buffer, DOUBLE is taken as MIXED
+     * @return the new buffer
+     * @throws IOException if the file could not be created or mapped
+     */
+    public static MappedStateBuffer createTemporary(long Length, File Directory, Precision Precision) throws IOException {
+        File temporary = File.createTempFile("qregister", ".state", Directory);
+        temporary.deleteOnExit();
+        return new MappedStateBuffer(Length, temporary, Precision);
+    }
+
+    /**
+     * Maps a file into chunks of 2^CHUNK_BITS amplitudes.
+     *
+     * @param Length number of amplitudes
+     * @param File file holding the amplitudes
+     * @return the mapped chunks
+     * @throws IOException if the file could not be mapped
+     */
+    private static ByteBuffer[] map(long Length, File File) throws IOException {
+        RandomAccessFile access = new RandomAccessFile(File, "rw");
+
+        try {
+            //New parts of the file read as zero
+            access.setLength(Length * AMPLITUDE_BYTES);
+
+            FileChannel channel = access.getChannel();
+            ByteBuffer[] out = new ByteBuffer[chunkCount(Length)];
+
+            for (int c = 0; c < out.length; c++) {
+                long position = ((long) c << CHUNK_BITS) * AMPLITUDE_BYTES;
+                long size = chunkLength(Length, c) * AMPLITUDE_BYTES;
+
+                out[c] = channel.map(FileChannel.MapMode.READ_WRITE, position, size).order(ByteOrder.nativeOrder());
+            }
+
+            return out;
+        } finally {
+            //The mappings stay valid after the channel is closed
+            access.close();
+        }
+    }
+
+    /**
+     * Returns the file holding the amplitudes.
+     *
+     * @return the mapped file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Writes all changed amplitudes to the file.
+     */
+    public void force() {
+        for (int c = 0; c < chunkCount(length()); c++) {
+            ((MappedByteBuffer) getChunk(c)).force();
+        }
+    }
+
+    /**
+     * Creates an empty buffer mapped from a new temporary file in the same
+     * directory as this buffer.
+     *
+     * @param Length number of amplitudes of the new buffer
+     * @return buffer with all amplitudes set to zero
+     */
+    @Override
+    public StateBuffer create(long Length) {
+        try {
+            return createTemporary(Length, file.getAbsoluteFile().getParentFile(), getPrecision());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map a state file: " + e.getMessage(), e);
+        }
+    }
+}
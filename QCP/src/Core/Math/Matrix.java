@@ -1,5 +1,7 @@
 package Core.Math;
 
+import java.util.Arrays;
+
 /**
  * An abstract class for matrix algebra.
  */
@@ -47,23 +49,30 @@ public abstract class Matrix {
      * Decides and returns zero matrix of most memory efficient type.
      *
      * Multiplies the non zero element count in m1 with that in m2 to estimate
-     * non zero entry count in resulting matrix. If the product is more than
-     * half of total element count in matrix, return a dense matrix. Otherwise
-     * return a sparse matrix.
+     * non zero entry count in resulting matrix. A StructuredMatrix has one
+     * element in every column, so the product has at most as many non zero
+     * entries as the other matrix. If the estimate is more than half of total
+     * element count in matrix, return a dense matrix. Otherwise return a
+     * sparse matrix.
+     *
+     * The product of two StructuredMatrix is not a zero matrix to be filled,
+     * it is computed in closed form by StructuredMatrix and returned complete,
+     * as the most specific type that fits it.
      *
      * @param m1
      * @param m2
-     * @return zero matrix of most memory efficient type
+     * @return zero matrix of most memory efficient type, or the product of
+     * two structured matrices
      */
     public Matrix makeMultiplyResult(Matrix m1, Matrix m2) {
-        int resultNonZeroElementCount = m1.getNonZeroElmentCount() * m2.getNonZeroElmentCount();
-        int resultOrder = m1.getOrder();
-
-        if (resultNonZeroElementCount > (resultOrder * resultOrder / 2)) {
-            return new DenseMatrix(resultOrder);
-        } else {
-            return new SparseMatrix(resultOrder);
+        if (StructuredMatrix.isStructured(m1) && StructuredMatrix.isStructured(m2)) {
+            return StructuredMatrix.product((StructuredMatrix) m1, (StructuredMatrix) m2);
         }
+
+        long resultNonZeroElementCount = estimateNonZeroElementCount(m1, m2);
+        long resultOrder = m1.getOrder();
+
+        return makeResult((int) resultOrder, resultNonZeroElementCount > (resultOrder * resultOrder / 2));
     }
 
     /**
@@ -75,19 +84,123 @@ public abstract class Matrix {
      * return a sparse matrix. The resulting matrix of a tensor product is of
      * dimensions m1.order x m2.order.
      *
+     * The tensor product of two StructuredMatrix is not a zero matrix to be
+     * filled, it is computed in closed form by StructuredMatrix and returned
+     * complete, as the most specific type that fits it.
+     *
      * @param m1
      * @param m2
-     * @return zero matrix of most memory efficient type
+     * @return zero matrix of most memory efficient type, or the tensor
+     * product of two structured matrices
      */
     public Matrix makeTensorResult(Matrix m1, Matrix m2) {
-        int resultNonZeroElementCount = m1.getNonZeroElmentCount() * m2.getNonZeroElmentCount();
-        int resultOrder = m1.getOrder() * m2.getOrder();
+        if (StructuredMatrix.isStructured(m1) && StructuredMatrix.isStructured(m2)) {
+            return StructuredMatrix.tensor((StructuredMatrix) m1, (StructuredMatrix) m2);
+        }
+
+        long resultNonZeroElementCount = (long) m1.getNonZeroElmentCount() * m2.getNonZeroElmentCount();
+        long resultOrder = (long) m1.getOrder() * m2.getOrder();
+
+        if (resultOrder > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tensor product too large");
+        }
+        return makeResult((int) resultOrder, resultNonZeroElementCount > (resultOrder * resultOrder / 2));
+    }
+
+    /**
+     * Estimates the number of non zero entries of the product of two
+     * matrices, a StructuredMatrix only moves and scales the entries of the
+     * other matrix.
+     */
+    private static long estimateNonZeroElementCount(Matrix m1, Matrix m2) {
+        if (StructuredMatrix.isStructured(m1)) {
+            return m2.getNonZeroElmentCount();
+        }
+        if (StructuredMatrix.isStructured(m2)) {
+            return m1.getNonZeroElmentCount();
+        }
+        return (long) m1.getNonZeroElmentCount() * m2.getNonZeroElmentCount();
+    }
 
-        if (resultNonZeroElementCount > (resultOrder * resultOrder / 2)) {
-            return new DenseMatrix(resultOrder);
+    /**
+     * Returns a zero dense or sparse matrix of an order.
+     */
+    static Matrix makeResult(int Order, boolean Dense) {
+        if (Dense) {
+            return new DenseMatrix(Order);
         } else {
-            return new SparseMatrix(resultOrder);
+            return new SparseMatrix(Order);
+        }
+    }
+
+    /**
+     * Returns a dense or sparse matrix holding the elements of this matrix,
+     * dense if more than half of the elements are non zero. Matrices which
+     * are not stored element by element switch to such a copy when an element
+     * is set, so every matrix can be changed.
+     *
+     * @return copy of the matrix which can be changed
+     */
+    Matrix writableCopy() {
+        int n = getOrder();
+        Matrix out = makeResult(n, getNonZeroElmentCount() > (long) n * n / 2);
+        for (int row = 0; row < n; row++) {
+            for (int column = 0; column < n; column++) {
+                Complex z = getElement(row, column);
+                if (z.getReal() != 0 || z.getImaginary() != 0) {
+                    out.setElement(row, column, z);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns a CSRMatrix holding the non-zero elements of this matrix, which
+     * does not share them. Every element is read, matrices which know their
+     * non-zero elements override it to visit only those.
+     *
+     * @return the elements in compressed sparse row form
+     */
+    CSRMatrix toCSRMatrix() {
+        int n = getOrder();
+        int capacity = Math.max(16, getNonZeroElmentCount());
+        int[] rows = new int[capacity];
+        int[] columns = new int[capacity];
+        double[] real = new double[capacity];
+        double[] imaginary = new double[capacity];
+
+        int count = 0;
+        for (int row = 0; row < n; row++) {
+            for (int column = 0; column < n; column++) {
+                Complex z = getElement(row, column);
+                if (z.getReal() != 0 || z.getImaginary() != 0) {
+                    if (count == columns.length) {
+                        rows = Arrays.copyOf(rows, 2 * count);
+                        columns = Arrays.copyOf(columns, 2 * count);
+                        real = Arrays.copyOf(real, 2 * count);
+                        imaginary = Arrays.copyOf(imaginary, 2 * count);
+                    }
+                    rows[count] = row;
+                    columns[count] = column;
+                    real[count] = z.getReal();
+                    imaginary[count] = z.getImaginary();
+                    count++;
+                }
+            }
         }
+        return new CSRMatrix(n, rows, columns, real, imaginary, count);
+    }
+
+    /**
+     * Returns a copy of the matrix which does not share its elements, a
+     * dense or sparse matrix unless the type of the matrix has a cheaper
+     * copy.
+     *
+     * @return the copy
+     */
+    public Matrix copy() {
+        return writableCopy();
     }
 
     /**
@@ -178,22 +291,14 @@ public abstract class Matrix {
     }
 
     /**
-     * Static method for creating an identity matrix of any dimensions.
+     * Static method for creating an identity matrix of any dimensions. The
+     * identity matrix only stores its order until an element is set, then it
+     * switches to a dense or sparse copy of its elements.
      *
      * @param d the desired dimension of the identity matrix
      * @return identity matrix of dimension d
      */
     public static Matrix identityMatrix(int d) {
-        Matrix id = new SparseMatrix(d);
-        for (int i = 0; i < d; i++) {
-            for (int j = 0; j < d; j++) {
-                if (i == j) {
-                    id.setElement(i, j, new Complex(1, 0));
-                } else {
-                    id.setElement(i, j, new Complex());
-                }
-            }
-        }
-        return id;
+        return new IdentityMatrix(d);
     }
 }
\ No newline at end of file
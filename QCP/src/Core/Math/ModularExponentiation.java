@@ -0,0 +1,82 @@
+package Core.Math;
+
+/**
+ * Table of m^x mod n for all x below 2^L, as used by Shor's algorithm.
+ *
+ * The powers are computed incrementally with one modular multiplication per
+ * x. Large tables are split in ranges which may run in parallel on the
+ * KernelPool, each range finds its first power by repeated squaring. Every
+ * power is exact, the products are reduced before they can overflow.
+ *
+ * The most recently used tables are cached by (m, n, L), so the retries of
+ * the quantum part of Shor's algorithm for the same base reuse them.
+ */
+public final class ModularExponentiation {
+
+    /**
+     * Total number of ints kept in the cache, 256 MB. A run of Shor's
+     * algorithm only needs the table of its (m, n, L), which is always kept,
+     * so a larger table does not stay behind older ones.
+     */
+    private static final long CACHED_INTS = 1L << 26;
+    /**
+     * The cached tables by (m, n, L).
+     */
+    private static final TableCache cache = new TableCache(CACHED_INTS);
+
+    private ModularExponentiation() {
+    }
+
+    /**
+     * Returns the table of m^x mod n for all x below 2^L. The table may be
+     * shared with other callers and must not be changed.
+     *
+     * @param m the base, not negative
+     * @param n the modulus, positive
+     * @param Bits L, at most 30
+     * @return array of 2^L powers, element x holding m^x mod n
+     */
+    public static int[] table(final int m, final int n, final int Bits) {
+        if (m < 0 || n <= 0 || Bits < 0 || Bits > 30) {
+            throw new IllegalArgumentException("No table of powers for m = " + m + ", n = " + n + ", L = " + Bits);
+        }
+
+        return cache.get(m + " " + n + " " + Bits, new TableCache.Computation() {
+            public int[] compute() {
+                return ModularExponentiation.compute(m, n, Bits);
+            }
+        });
+    }
+
+    /**
+     * Removes all tables from the cache.
+     */
+    public static void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * Computes the table of m^x mod n for all x below 2^L.
+     */
+    private static int[] compute(int m, final int n, int Bits) {
+        final int[] table = new int[1 << Bits];
+        final long base = m % n;
+
+        KernelPool.RangeKernel kernel = new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                long value = Modulo.power(base, from, n);
+                for (int x = from; x < to; x++) {
+                    table[x] = (int) value;
+                    value = (value * base) % n;
+                }
+            }
+        };
+
+        if (KernelPool.isParallel(table.length)) {
+            KernelPool.forRange(table.length, kernel);
+        } else {
+            kernel.run(0, table.length);
+        }
+        return table;
+    }
+}
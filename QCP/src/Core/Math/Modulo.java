@@ -1,5 +1,7 @@
 package Core.Math;
 
+import java.math.BigInteger;
+
 /**
  * Class that calculates the modulo of a number with respect to another number 
  */
@@ -22,4 +24,38 @@ public class Modulo {
         return (val%mod+mod)%mod;
     }
 
+    /**
+     * Method to calculate a*b modulo N without overflow
+     * @param a first factor, between 0 and N-1
+     * @param b second factor, between 0 and N-1
+     * @param modulus value of N, positive
+     * @return a*b Mod N
+     */
+    public static long multiply(long a, long b, long modulus){
+        //Products below 2^63 fit in a long
+        if (modulus <= 3037000499L) {
+            return (a * b) % modulus;
+        }
+        return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(BigInteger.valueOf(modulus)).longValue();
+    }
+
+    /**
+     * Method to calculate base^exponent modulo N by repeated squaring
+     * @param base value of the base, not negative
+     * @param exponent value of the exponent, not negative
+     * @param modulus value of N, positive
+     * @return base^exponent Mod N
+     */
+    public static long power(long base, long exponent, long modulus){
+        long out = 1 % modulus;
+        long square = base % modulus;
+        for (long e = exponent; e > 0; e >>= 1) {
+            if ((e & 1) != 0) {
+                out = multiply(out, square, modulus);
+            }
+            square = multiply(square, square, modulus);
+        }
+        return out;
+    }
+
 }
@@ -0,0 +1,42 @@
+package Core.Math;
+
+/**
+ * StructuredMatrix extention for permutation matrices, only the row of the
+ * one in every column is stored.
+ *
+ * Multiplying a vector moves component j to component rows[j].
+ */
+public class PermutationMatrix extends StructuredMatrix {
+
+    /**
+     * Row of the one in every column.
+     */
+    private int[] rows;
+
+    /**
+     * Constructs a permutation matrix from the row of the one in every
+     * column, the array is used directly and not copied.
+     *
+     * @param Rows row of the one in every column, a permutation of 0 up to
+     * the order
+     */
+    public PermutationMatrix(int[] Rows) {
+        setOrder(Rows.length);
+        rows = Rows;
+    }
+
+    @Override
+    int rowOf(int column) {
+        return rows[column];
+    }
+
+    @Override
+    double realOf(int column) {
+        return 1.0;
+    }
+
+    @Override
+    double imaginaryOf(int column) {
+        return 0.0;
+    }
+}
@@ -0,0 +1,57 @@
+package Core.Math;
+
+/**
+ * The precisions in which the amplitudes of a state vector can be simulated.
+ *
+ * FLOAT stores the amplitudes as floats and sums them as floats, which uses the
+ * least memory. DOUBLE stores and sums the amplitudes as doubles, which halves
+ * the number of qubits that fit in memory but keeps the norm accurate over
+ * long runs. MIXED stores the amplitudes as floats but sums reductions such as
+ * the norm in <code>normalize()</code> and <code>measure()</code> as doubles.
+ */
+public enum Precision {
+
+    FLOAT(4, false),
+    DOUBLE(8, true),
+    MIXED(4, true);
+    /**
+     * Number of bytes used by the real or imaginary part of an amplitude.
+     */
+    private final int componentBytes;
+    /**
+     * Whether reductions over the amplitudes are summed as doubles.
+     */
+    private final boolean doubleAccumulation;
+
+    private Precision(int ComponentBytes, boolean DoubleAccumulation) {
+        componentBytes = ComponentBytes;
+        doubleAccumulation = DoubleAccumulation;
+    }
+
+    /**
+     * Returns the number of bytes needed to store one amplitude.
+     *
+     * @return bytes per amplitude
+     */
+    public int getAmplitudeBytes() {
+        return 2 * componentBytes;
+    }
+
+    /**
+     * Returns whether the amplitudes are stored as doubles.
+     *
+     * @return true for DOUBLE
+     */
+    public boolean hasDoubleStorage() {
+        return componentBytes == 8;
+    }
+
+    /**
+     * Returns whether reductions over the amplitudes are summed as doubles.
+     *
+     * @return true for DOUBLE and MIXED
+     */
+    public boolean hasDoubleAccumulation() {
+        return doubleAccumulation;
+    }
+}
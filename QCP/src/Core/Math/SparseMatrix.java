@@ -9,10 +9,14 @@ import java.util.Set;
  * Matrix extention where only non-zero magnitude elements of the matrix are
  * stored.
  *
+ * The elements are kept in a map by row * order + column, computed as a long
+ * so matrices of any order can be stored. The products are computed on a
+ * CSRMatrix of the elements, which only visits the non-zero elements, and
+ * return a CSRMatrix.
  */
 public class SparseMatrix extends Matrix {
 
-    Map<Integer, Complex> values = new HashMap<Integer, Complex>();
+    Map<Long, Complex> values = new HashMap<Long, Complex>();
 
     /**
      * Constructor that makes a zero matrix of specified order.
@@ -56,7 +60,7 @@ public class SparseMatrix extends Matrix {
      * @return 
      */
     public Complex getElement(int row, int column) {
-        int element = row * getOrder() + column;
+        long element = (long) row * getOrder() + column;
 
         if (values.containsKey(element)) {
             return values.get(element);
@@ -72,7 +76,7 @@ public class SparseMatrix extends Matrix {
      * @param z 
      */
     public void setElement(int row, int column, Complex z) {
-        int element = row * getOrder() + column;
+        long element = (long) row * getOrder() + column;
         if (z.magnitude() != 0) {
             values.put(element, z);
         } else {
@@ -80,6 +84,85 @@ public class SparseMatrix extends Matrix {
         }
     }
 
+    /**
+     * Returns a copy of the matrix, the elements themselves cannot be changed
+     * and are shared.
+     *
+     * @return the copy
+     */
+    @Override
+    public SparseMatrix copy() {
+        SparseMatrix out = new SparseMatrix(getOrder());
+        out.values.putAll(values);
+        return out;
+    }
+
+    /**
+     * Returns a CSRMatrix holding the elements, visiting only the stored
+     * ones.
+     *
+     * @return the elements in compressed sparse row form
+     */
+    @Override
+    CSRMatrix toCSRMatrix() {
+        int n = getOrder();
+        int count = values.size();
+        int[] rows = new int[count];
+        int[] columns = new int[count];
+        double[] real = new double[count];
+        double[] imaginary = new double[count];
+
+        int k = 0;
+        for (Map.Entry<Long, Complex> element : values.entrySet()) {
+            long key = element.getKey();
+            rows[k] = (int) (key / n);
+            columns[k] = (int) (key % n);
+            real[k] = element.getValue().getReal();
+            imaginary[k] = element.getValue().getImaginary();
+            k++;
+        }
+        return new CSRMatrix(n, rows, columns, real, imaginary, count);
+    }
+
+    /**
+     * Multiplies matrix by a vector, visiting only the non-zero elements.
+     *
+     * @param v vector
+     * @return matrix * v
+     */
+    @Override
+    public ComplexVector multiply(ComplexVector v) {
+        return toCSRMatrix().multiply(v);
+    }
+
+    /**
+     * Multiplies matrix by another matrix, visiting only pairs of non-zero
+     * elements, see CSRMatrix.
+     *
+     * Use: A.multiply(B) = AB
+     *
+     * @param m
+     * @return matrix * m
+     */
+    @Override
+    public Matrix multiply(Matrix m) {
+        return toCSRMatrix().multiply(m);
+    }
+
+    /**
+     * Performs matrix tensor product, visiting only pairs of non-zero
+     * elements, see CSRMatrix.
+     *
+     * Use: A.tensorProduct(B) = AxB
+     *
+     * @param m
+     * @return matrix x m
+     */
+    @Override
+    public Matrix tensorProduct(Matrix m) {
+        return toCSRMatrix().tensorProduct(m);
+    }
+
     /**
      * Returns a string representation of the matrix. Indexing is from 1, not 0.
      *
@@ -96,11 +179,11 @@ public class SparseMatrix extends Matrix {
         while (it.hasNext()) {
             // key=value separator this by Map.Entry to get key and value
             Map.Entry m = (Map.Entry) it.next();
-            int key = (Integer) m.getKey();
+            long key = (Long) m.getKey();
             Complex value = (Complex) m.getValue();
 
-            int column = key % getOrder();
-            int row = (key - column) / getOrder();
+            long column = key % getOrder();
+            long row = (key - column) / getOrder();
 
 
             out = out + "([" + (row + 1) + ", " + (column + 1) + "] " + value + ")\n";
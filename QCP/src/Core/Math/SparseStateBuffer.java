@@ -0,0 +1,716 @@
+package Core.Math;
+
+import java.util.Arrays;
+
+/**
+ * StateBuffer extention which only stores the non-zero amplitudes, in an open
+ * addressing hash map from the <code>long</code> index to the amplitude.
+ *
+ * Basis states and the states made by permutations of them, such as
+ * |x&gt;|m^x mod N&gt;, have few non-zero amplitudes. Permutation and diagonal
+ * gates (CNot, Swap, CCNot, Phase, CV) only visit the stored amplitudes. Once
+ * more than the fill threshold of all amplitudes is stored the buffer
+ * converts itself to a dense buffer and passes all calls on to it.
+ *
+ * The map uses linear probing, the parts of an amplitude are kept as doubles
+ * and rounded to floats unless the precision stores doubles.
+ */
+public class SparseStateBuffer extends StateBuffer {
+
+    /**
+     * Fraction of stored amplitudes above which the buffer becomes dense.
+     */
+    public static final double DEFAULT_FILL_THRESHOLD = 1.0 / 16.0;
+    /**
+     * Key of an empty slot, indices are never negative.
+     */
+    private static final long EMPTY = -1L;
+    /**
+     * Smallest number of slots as a power of two.
+     */
+    private static final int MIN_CAPACITY_BITS = 4;
+    /**
+     * The number of amplitudes.
+     */
+    private long length;
+    /**
+     * The precision the amplitudes are stored in.
+     */
+    private Precision precision;
+    /**
+     * Fraction of stored amplitudes above which the buffer becomes dense.
+     */
+    private double fillThreshold;
+    /**
+     * The slots of the map, an index and the parts of its amplitude.
+     */
+    private long[] keys;
+    private double[] real;
+    private double[] imaginary;
+    /**
+     * Number of slots in use.
+     */
+    private int count;
+    /**
+     * Number of slots as a power of two.
+     */
+    private int capacityBits;
+    /**
+     * The dense buffer once the fill threshold has been crossed, null before.
+     */
+    private StateBuffer dense;
+
+    /**
+     * Constructs a buffer with all amplitudes set to zero, using the default
+     * precision and fill threshold.
+     *
+     * @param Length number of amplitudes
+     */
+    public SparseStateBuffer(long Length) {
+        this(Length, getDefaultPrecision(), DEFAULT_FILL_THRESHOLD);
+    }
+
+    /**
+     * Constructs a buffer with all amplitudes set to zero.
+     *
+     * @param Length number of amplitudes
+     * @param Precision precision of the amplitudes
+     * @param FillThreshold fraction of stored amplitudes above which the
+     * buffer becomes dense
+     */
+    public SparseStateBuffer(long Length, Precision Precision, double FillThreshold) {
+        length = Length;
+        precision = Precision;
+        fillThreshold = FillThreshold;
+
+        allocateTable(MIN_CAPACITY_BITS);
+    }
+
+    /**
+     * Returns whether the buffer has been converted to a dense buffer.
+     *
+     * @return true once the fill threshold has been crossed
+     */
+    public boolean isDense() {
+        return dense != null;
+    }
+
+    /**
+     * Returns whether amplitudes may be set from several threads at once,
+     * which is only the case once the buffer is dense, as setting an
+     * amplitude of the sparse table may insert into it or grow it.
+     *
+     * @return true if the buffer is dense and its dense buffer is safe
+     */
+    @Override
+    public boolean isConcurrentWriteSafe() {
+        return dense != null && dense.isConcurrentWriteSafe();
+    }
+
+    /**
+     * Returns the number of stored amplitudes, all amplitudes once the buffer
+     * is dense.
+     *
+     * @return number of stored amplitudes
+     */
+    public long getStoredCount() {
+        return (dense == null) ? count : length;
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public double getReal(long index) {
+        if (dense != null) {
+            return dense.getReal(index);
+        }
+
+        int slot = find(index);
+        return (slot < 0) ? 0.0 : real[slot];
+    }
+
+    @Override
+    public double getImaginary(long index) {
+        if (dense != null) {
+            return dense.getImaginary(index);
+        }
+
+        int slot = find(index);
+        return (slot < 0) ? 0.0 : imaginary[slot];
+    }
+
+    @Override
+    public void set(long index, double Real, double Imaginary) {
+        if (dense != null) {
+            dense.set(index, Real, Imaginary);
+            return;
+        }
+
+        double re = round(Real);
+        double im = round(Imaginary);
+
+        if (re == 0.0 && im == 0.0) {
+            remove(index);
+        } else {
+            put(index, re, im);
+
+            if (count > fillThreshold * length) {
+                densify();
+            }
+        }
+    }
+
+    @Override
+    public StateBuffer create(long Length) {
+        return new SparseStateBuffer(Length, precision, fillThreshold);
+    }
+
+    @Override
+    public StateBuffer copy() {
+        SparseStateBuffer out = new SparseStateBuffer(length, precision, fillThreshold);
+
+        if (dense != null) {
+            out.dense = dense.copy();
+            out.keys = null;
+            out.real = null;
+            out.imaginary = null;
+        } else {
+            out.keys = keys.clone();
+            out.real = real.clone();
+            out.imaginary = imaginary.clone();
+            out.count = count;
+            out.capacityBits = capacityBits;
+        }
+
+        return out;
+    }
+
+    @Override
+    public void clear() {
+        //A cleared buffer is sparse again
+        dense = null;
+        allocateTable(MIN_CAPACITY_BITS);
+    }
+
+    @Override
+    public double normSquared() {
+        if (dense != null) {
+            return dense.normSquared();
+        }
+
+        double out = 0.0;
+        float outFloat = 0.0f;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                double norm = real[slot] * real[slot] + imaginary[slot] * imaginary[slot];
+                out += norm;
+                outFloat += (float) norm;
+            }
+        }
+        return precision.hasDoubleAccumulation() ? out : outFloat;
+    }
+
+    @Override
+    public void scale(double scalar) {
+        if (dense != null) {
+            dense.scale(scalar);
+            return;
+        }
+
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                real[slot] = round(scalar * real[slot]);
+                imaginary[slot] = round(scalar * imaginary[slot]);
+            }
+        }
+    }
+
+    /**
+     * Applies a real two-by-two matrix to every pair of amplitudes whose
+     * indices differ only in the bit <var>stride</var>.
+     *
+     * Every stored amplitude adds its share to itself and its partner, so the
+     * number of stored amplitudes can double. If that could cross the fill
+     * threshold the buffer becomes dense first.
+     */
+    @Override
+    public void transformPairs(long stride, double a, double b, double c, double d) {
+        if (dense == null && 2.0 * count > fillThreshold * length) {
+            densify();
+        }
+
+        if (dense != null) {
+            dense.transformPairs(stride, a, b, c, d);
+            return;
+        }
+
+        long[] oldKeys = keys;
+        double[] oldReal = real;
+        double[] oldImaginary = imaginary;
+
+        //Room for every amplitude and its partner
+        allocateTable(bitsFor(2 * count));
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            long i = oldKeys[slot];
+
+            if (i != EMPTY) {
+                double re = oldReal[slot];
+                double im = oldImaginary[slot];
+
+                if ((i & stride) == 0) {
+                    //x0 contributes a*x0 to itself and c*x0 to x1
+                    add(i, a * re, a * im);
+                    add(i | stride, c * re, c * im);
+                } else {
+                    //x1 contributes b*x1 to x0 and d*x1 to itself
+                    add(i ^ stride, b * re, b * im);
+                    add(i, d * re, d * im);
+                }
+            }
+        }
+
+        //Round the sums and drop the amplitudes that cancelled out
+        rebuild(bitsFor(count), 0L, -1L, 0L);
+    }
+
+    /**
+     * Applies a complex two-by-two matrix to every pair of amplitudes whose
+     * indices differ only in the bit <var>stride</var>, in the same way as the
+     * real version.
+     */
+    @Override
+    public void transformPairs(long stride, double aRe, double aIm, double bRe, double bIm,
+            double cRe, double cIm, double dRe, double dIm) {
+        if (dense == null && 2.0 * count > fillThreshold * length) {
+            densify();
+        }
+
+        if (dense != null) {
+            dense.transformPairs(stride, aRe, aIm, bRe, bIm, cRe, cIm, dRe, dIm);
+            return;
+        }
+
+        long[] oldKeys = keys;
+        double[] oldReal = real;
+        double[] oldImaginary = imaginary;
+
+        //Room for every amplitude and its partner
+        allocateTable(bitsFor(2 * count));
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            long i = oldKeys[slot];
+
+            if (i != EMPTY) {
+                double re = oldReal[slot];
+                double im = oldImaginary[slot];
+
+                if ((i & stride) == 0) {
+                    //x0 contributes a*x0 to itself and c*x0 to x1
+                    add(i, aRe * re - aIm * im, aRe * im + aIm * re);
+                    add(i | stride, cRe * re - cIm * im, cRe * im + cIm * re);
+                } else {
+                    //x1 contributes b*x1 to x0 and d*x1 to itself
+                    add(i ^ stride, bRe * re - bIm * im, bRe * im + bIm * re);
+                    add(i, dRe * re - dIm * im, dRe * im + dIm * re);
+                }
+            }
+        }
+
+        //Round the sums and drop the amplitudes that cancelled out
+        rebuild(bitsFor(count), 0L, -1L, 0L);
+    }
+
+    /**
+     * Applies a complex two-by-two matrix to the pairs of amplitudes whose
+     * other bits match the controls, the other stored amplitudes are kept as
+     * they are.
+     */
+    @Override
+    public void transformPairsWhere(long stride, long mask, long value, double aRe, double aIm, double bRe, double bIm,
+            double cRe, double cIm, double dRe, double dIm) {
+        if (dense == null && 2.0 * count > fillThreshold * length) {
+            densify();
+        }
+
+        if (dense != null) {
+            dense.transformPairsWhere(stride, mask, value, aRe, aIm, bRe, bIm, cRe, cIm, dRe, dIm);
+            return;
+        }
+
+        long[] oldKeys = keys;
+        double[] oldReal = real;
+        double[] oldImaginary = imaginary;
+
+        //Room for every amplitude and its partner
+        allocateTable(bitsFor(2 * count));
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            long i = oldKeys[slot];
+
+            if (i != EMPTY) {
+                double re = oldReal[slot];
+                double im = oldImaginary[slot];
+
+                if ((i & mask) != value) {
+                    add(i, re, im);
+                } else if ((i & stride) == 0) {
+                    //x0 contributes a*x0 to itself and c*x0 to x1
+                    add(i, aRe * re - aIm * im, aRe * im + aIm * re);
+                    add(i | stride, cRe * re - cIm * im, cRe * im + cIm * re);
+                } else {
+                    //x1 contributes b*x1 to x0 and d*x1 to itself
+                    add(i ^ stride, bRe * re - bIm * im, bRe * im + bIm * re);
+                    add(i, dRe * re - dIm * im, dRe * im + dIm * re);
+                }
+            }
+        }
+
+        //Round the sums and drop the amplitudes that cancelled out
+        rebuild(bitsFor(count), 0L, -1L, 0L);
+    }
+
+    @Override
+    public void multiplyWhere(long mask, long value, double Real, double Imaginary) {
+        if (dense != null) {
+            dense.multiplyWhere(mask, value, Real, Imaginary);
+            return;
+        }
+
+        //Only the values change so the map is updated in place
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY && (keys[slot] & mask) == value) {
+                double re = real[slot];
+                double im = imaginary[slot];
+
+                real[slot] = round(re * Real - im * Imaginary);
+                imaginary[slot] = round(re * Imaginary + im * Real);
+            }
+        }
+    }
+
+    @Override
+    public void multiplyPairs(long stride, double aRe, double aIm, double dRe, double dIm) {
+        if (dense != null) {
+            dense.multiplyPairs(stride, aRe, aIm, dRe, dIm);
+            return;
+        }
+
+        //Only the values change so the map is updated in place
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                double re = real[slot];
+                double im = imaginary[slot];
+                double fRe = ((keys[slot] & stride) == 0) ? aRe : dRe;
+                double fIm = ((keys[slot] & stride) == 0) ? aIm : dIm;
+
+                real[slot] = round(re * fRe - im * fIm);
+                imaginary[slot] = round(re * fIm + im * fRe);
+            }
+        }
+    }
+
+    @Override
+    public void multiplyWhereSet(long mask, double Real, double Imaginary) {
+        if (dense != null) {
+            dense.multiplyWhereSet(mask, Real, Imaginary);
+            return;
+        }
+
+        //Only the values change so the map is updated in place
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY && (keys[slot] & mask) == mask) {
+                double re = real[slot];
+                double im = imaginary[slot];
+
+                real[slot] = round(re * Real - im * Imaginary);
+                imaginary[slot] = round(re * Imaginary + im * Real);
+            }
+        }
+    }
+
+    @Override
+    public void swapWhere(long mask, long value, long flip) {
+        if (dense != null) {
+            dense.swapWhere(mask, value, flip);
+            return;
+        }
+
+        //Every stored amplitude moves to the index it is swapped with
+        rebuild(capacityBits, mask, value, flip);
+    }
+
+    @Override
+    public double normSquaredWhere(long mask, long value) {
+        if (dense != null) {
+            return dense.normSquaredWhere(mask, value);
+        }
+
+        double out = 0.0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY && (keys[slot] & mask) == value) {
+                out += real[slot] * real[slot] + imaginary[slot] * imaginary[slot];
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public double[] marginalNorms(long mask) {
+        if (dense != null) {
+            return dense.marginalNorms(mask);
+        }
+        if (Long.bitCount(mask) > 30) {
+            throw new IllegalArgumentException("Cannot measure more than 30 qubits at once");
+        }
+
+        double[] out = new double[1 << Long.bitCount(mask)];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                out[(int) compressBits(keys[slot], mask)] += real[slot] * real[slot] + imaginary[slot] * imaginary[slot];
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void projectWhere(long mask, long value, double scalar) {
+        if (dense != null) {
+            dense.projectWhere(mask, value, scalar);
+            return;
+        }
+
+        int kept = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                if ((keys[slot] & mask) == value) {
+                    real[slot] = scalar * real[slot];
+                    imaginary[slot] = scalar * imaginary[slot];
+                    kept++;
+                } else {
+                    real[slot] = 0.0;
+                    imaginary[slot] = 0.0;
+                }
+            }
+        }
+
+        //Drops the zeroed amplitudes
+        rebuild(bitsFor(kept), 0L, 0L, 0L);
+    }
+
+    @Override
+    public StateBuffer removeBit(long stride, long value, double scalar) {
+        if (dense != null) {
+            return dense.removeBit(stride, value, scalar);
+        }
+
+        SparseStateBuffer out = new SparseStateBuffer(length >> 1, precision, fillThreshold);
+        for (int slot = 0; slot < keys.length; slot++) {
+            long i = keys[slot];
+
+            if (i != EMPTY && (i & stride) == value) {
+                //Remove the bit from the index
+                long j = ((i >> 1) & ~(stride - 1)) | (i & (stride - 1));
+                out.set(j, scalar * real[slot], scalar * imaginary[slot]);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Rounds a part of an amplitude to the precision it is stored in.
+     */
+    private double round(double Value) {
+        return precision.hasDoubleStorage() ? Value : (float) Value;
+    }
+
+    /**
+     * Returns the home slot of an index.
+     */
+    private int hash(long Key) {
+        return (int) ((Key * 0x9E3779B97F4A7C15L) >>> (64 - capacityBits));
+    }
+
+    /**
+     * Returns the number of slots, as a power of two, needed to keep a number
+     * of amplitudes at most half full.
+     */
+    private static int bitsFor(int Entries) {
+        return 64 - Long.numberOfLeadingZeros(2L * Entries);
+    }
+
+    /**
+     * Replaces the map with an empty map of 2^Bits slots.
+     */
+    private void allocateTable(int Bits) {
+        capacityBits = Math.max(Bits, MIN_CAPACITY_BITS);
+        keys = new long[1 << capacityBits];
+        real = new double[keys.length];
+        imaginary = new double[keys.length];
+        count = 0;
+
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Returns the slot holding an index, or -1 if the index is not stored.
+     */
+    private int find(long Key) {
+        int mask = keys.length - 1;
+
+        for (int slot = hash(Key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == Key) {
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the slot holding an index, claiming an empty slot if the index
+     * is not stored. The map grows to stay at most half full.
+     */
+    private int claim(long Key) {
+        if (2 * (count + 1) > keys.length) {
+            grow();
+        }
+
+        int mask = keys.length - 1;
+        int slot = hash(Key);
+
+        while (keys[slot] != EMPTY && keys[slot] != Key) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (keys[slot] == EMPTY) {
+            keys[slot] = Key;
+            real[slot] = 0.0;
+            imaginary[slot] = 0.0;
+            count++;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Stores an amplitude.
+     */
+    private void put(long Key, double Real, double Imaginary) {
+        int slot = claim(Key);
+        real[slot] = Real;
+        imaginary[slot] = Imaginary;
+    }
+
+    /**
+     * Adds to an amplitude, the sum is not rounded.
+     */
+    private void add(long Key, double Real, double Imaginary) {
+        int slot = claim(Key);
+        real[slot] += Real;
+        imaginary[slot] += Imaginary;
+    }
+
+    /**
+     * Removes an index from the map, the entries after it are shifted back so
+     * no probe sequence is broken.
+     */
+    private void remove(long Key) {
+        int hole = find(Key);
+        if (hole < 0) {
+            return;
+        }
+
+        int mask = keys.length - 1;
+        count--;
+
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(keys[next]);
+
+            //The entry may fill the hole if the hole lies between its home slot and its slot
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                real[hole] = real[next];
+                imaginary[hole] = imaginary[next];
+                hole = next;
+            }
+        }
+
+        keys[hole] = EMPTY;
+        real[hole] = 0.0;
+        imaginary[hole] = 0.0;
+    }
+
+    /**
+     * Rehashes the map into twice as many slots, the amplitudes are moved
+     * unchanged.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldReal = real;
+        double[] oldImaginary = imaginary;
+
+        allocateTable(capacityBits + 1);
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                put(oldKeys[slot], oldReal[slot], oldImaginary[slot]);
+            }
+        }
+    }
+
+    /**
+     * Rehashes the map into 2^Bits slots, rounding the amplitudes and dropping
+     * the ones that are zero. Indices i with (i &amp; Mask) == Value, and the
+     * indices they are swapped with, are moved to i ^ Flip on the way.
+     */
+    private void rebuild(int Bits, long Mask, long Value, long Flip) {
+        long[] oldKeys = keys;
+        double[] oldReal = real;
+        double[] oldImaginary = imaginary;
+
+        allocateTable(Bits);
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            long i = oldKeys[slot];
+
+            if (i != EMPTY) {
+                double re = round(oldReal[slot]);
+                double im = round(oldImaginary[slot]);
+
+                if (re != 0.0 || im != 0.0) {
+                    //Both members of a swapped pair move to the other member
+                    long target = ((i & Mask) == Value || ((i ^ Flip) & Mask) == Value) ? i ^ Flip : i;
+                    put(target, re, im);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts the buffer to a dense buffer of the same precision.
+     */
+    private void densify() {
+        StateBuffer out = allocate(length, precision);
+
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                out.set(keys[slot], real[slot], imaginary[slot]);
+            }
+        }
+
+        dense = out;
+        keys = null;
+        real = null;
+        imaginary = null;
+        count = 0;
+    }
+}
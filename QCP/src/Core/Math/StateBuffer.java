@@ -0,0 +1,888 @@
+package Core.Math;
+
+/**
+ * An abstract class for the storage of the amplitudes of a state vector.
+ *
+ * Amplitudes are addressed with <code>long</code> indices so registers are not
+ * limited to 2^30 bases. Subclasses decide where the amplitudes are kept, the
+ * gate kernels below are written against the element accessors and may be
+ * overridden by subclasses which can do them faster.
+ *
+ * The accessors and kernels take doubles, buffers which store floats round
+ * the results to floats. The Precision of a buffer decides how it is stored
+ * and summed, <code>allocate</code> uses the default precision.
+ */
+public abstract class StateBuffer {
+
+    /**
+     * Largest number of amplitudes that is kept in java arrays by
+     * <code>allocate</code>, larger state vectors are stored off the heap.
+     */
+    public static final long MAX_ARRAY_LENGTH = 1L << 30;
+    /**
+     * Number of amplitudes summed in one block by
+     * <code>cumulativeNorms</code> and <code>normSquaredWhere</code>.
+     */
+    protected static final int CUMULATIVE_BLOCK = 1 << 14;
+    /**
+     * Number of parts the marginal distribution of a few qubits is summed in.
+     */
+    private static final int MARGINAL_PARTS = 64;
+    /**
+     * Largest number of outcomes for which the marginal distribution is
+     * summed in parts.
+     */
+    private static final int MARGINAL_PART_OUTCOMES = 1 << 12;
+    /**
+     * The precision of the buffers created by <code>allocate</code>.
+     */
+    private static Precision defaultPrecision = Precision.MIXED;
+
+    /**
+     * Returns the precision of the buffers created by
+     * <code>allocate</code>.
+     *
+     * @return the default precision
+     */
+    public static Precision getDefaultPrecision() {
+        return defaultPrecision;
+    }
+
+    /**
+     * Sets the precision of the buffers created by <code>allocate</code>,
+     * registers that already exist keep their precision.
+     *
+     * @param Precision the new default precision
+     */
+    public static void setDefaultPrecision(Precision Precision) {
+        defaultPrecision = Precision;
+    }
+
+    /**
+     * Returns the precision a buffer storing floats uses for a requested
+     * precision, DOUBLE becomes MIXED.
+     *
+     * @param Requested the requested precision
+     * @return FLOAT or MIXED
+     */
+    protected static Precision floatPrecision(Precision Requested) {
+        return Requested.hasDoubleStorage() ? Precision.MIXED : Requested;
+    }
+
+    /**
+     * Returns the precision the amplitudes are stored and summed in.
+     *
+     * @return precision of the buffer
+     */
+    public abstract Precision getPrecision();
+
+    /**
+     * Returns the number of amplitudes in the buffer.
+     *
+     * @return number of amplitudes
+     */
+    public abstract long length();
+
+    /**
+     * Returns the real part of an amplitude.
+     *
+     * @param index index of the amplitude
+     * @return real part of the amplitude
+     */
+    public abstract double getReal(long index);
+
+    /**
+     * Returns the imaginary part of an amplitude.
+     *
+     * @param index index of the amplitude
+     * @return imaginary part of the amplitude
+     */
+    public abstract double getImaginary(long index);
+
+    /**
+     * Sets an amplitude.
+     *
+     * @param index index of the amplitude
+     * @param real real part of the amplitude
+     * @param imaginary imaginary part of the amplitude
+     */
+    public abstract void set(long index, double real, double imaginary);
+
+    /**
+     * Creates an empty buffer of the same kind as this buffer.
+     *
+     * @param length number of amplitudes of the new buffer
+     * @return buffer with all amplitudes set to zero
+     */
+    public abstract StateBuffer create(long length);
+
+    /**
+     * Returns whether different amplitudes may be set from several threads at
+     * once, so the kernels writing them may run in parallel.
+     *
+     * @return true unless the buffer overrides it
+     */
+    public boolean isConcurrentWriteSafe() {
+        return true;
+    }
+
+    /**
+     * Decides and returns an empty buffer of the most suitable type.
+     *
+     * Buffers of up to MAX_ARRAY_LENGTH amplitudes are kept in java arrays,
+     * larger buffers are stored off the heap. The buffer has the default
+     * precision.
+     *
+     * @param length number of amplitudes
+     * @return buffer with all amplitudes set to zero
+     */
+    public static StateBuffer allocate(long length) {
+        return allocate(length, defaultPrecision);
+    }
+
+    /**
+     * Decides and returns an empty dense buffer of the most suitable type for
+     * a precision, off the heap amplitudes are always stored as floats.
+     *
+     * @param length number of amplitudes
+     * @param precision precision of the buffer
+     * @return buffer with all amplitudes set to zero
+     */
+    public static StateBuffer allocate(long length, Precision precision) {
+        if (length > MAX_ARRAY_LENGTH) {
+            return new DirectStateBuffer(length, floatPrecision(precision));
+        } else if (precision.hasDoubleStorage()) {
+            return new DoubleArrayStateBuffer((int) length);
+        } else {
+            return new ArrayStateBuffer((int) length, precision);
+        }
+    }
+
+    /**
+     * Creates a copy of the buffer which does not share its amplitudes.
+     *
+     * @return copy of the buffer
+     */
+    public StateBuffer copy() {
+        StateBuffer out = create(length());
+        for (long i = 0; i < length(); i++) {
+            out.set(i, getReal(i), getImaginary(i));
+        }
+        return out;
+    }
+
+    /**
+     * Sets all amplitudes to zero.
+     */
+    public void clear() {
+        for (long i = 0; i < length(); i++) {
+            set(i, 0.0f, 0.0f);
+        }
+    }
+
+    /**
+     * Returns the sum of the squared magnitudes of all amplitudes, summed as
+     * floats or doubles depending on the precision of the buffer.
+     *
+     * @return squared norm of the state vector
+     */
+    public double normSquared() {
+        if (getPrecision().hasDoubleAccumulation()) {
+            double out = 0.0;
+            for (long i = 0; i < length(); i++) {
+                double re = getReal(i);
+                double im = getImaginary(i);
+                out += re * re + im * im;
+            }
+            return out;
+        } else {
+            float out = 0.0f;
+            for (long i = 0; i < length(); i++) {
+                float re = (float) getReal(i);
+                float im = (float) getImaginary(i);
+                out += re * re + im * im;
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Returns the sum of the squared magnitudes of the amplitudes whose index
+     * i satisfies (i &amp; mask) == value, e.g. the probability of a qubit
+     * being measured as one for mask = value = 1 &lt;&lt; qubit.
+     *
+     * Only the amplitudes satisfying the condition are read. The sum is built
+     * in blocks of fixed size which may run in parallel and are added in
+     * order, so the result does not depend on the number of threads. It is
+     * always summed as a double.
+     *
+     * @param mask bits that are tested
+     * @param value required value of the tested bits
+     * @return squared norm of the selected amplitudes
+     */
+    public double normSquaredWhere(final long mask, final long value) {
+        final long length = length();
+        final int blocks = (int) ((length + CUMULATIVE_BLOCK - 1) / CUMULATIVE_BLOCK);
+
+        if (!KernelPool.isParallel(length)) {
+            double out = 0.0;
+            for (int block = 0; block < blocks; block++) {
+                out += normSquaredWhere(block * (long) CUMULATIVE_BLOCK, mask, value);
+            }
+            return out;
+        }
+
+        final double[] sums = new double[blocks];
+
+        KernelPool.forRange(blocks, 1, new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                for (int block = from; block < to; block++) {
+                    sums[block] = normSquaredWhere(block * (long) CUMULATIVE_BLOCK, mask, value);
+                }
+            }
+        });
+
+        double out = 0.0;
+        for (int block = 0; block < blocks; block++) {
+            out += sums[block];
+        }
+        return out;
+    }
+
+    /**
+     * Returns the sum of the squared magnitudes of the selected amplitudes in
+     * the block of CUMULATIVE_BLOCK amplitudes from <var>start</var>, summed
+     * as a double in the order of the indices. Buffers may override it to
+     * read their storage directly.
+     *
+     * @param start index of the first amplitude of the block, a multiple of
+     * CUMULATIVE_BLOCK
+     * @param mask bits that are tested
+     * @param value required value of the tested bits
+     * @return squared norm of the selected amplitudes of the block
+     */
+    protected double normSquaredWhere(long start, long mask, long value) {
+        long end = Math.min(start + CUMULATIVE_BLOCK, length());
+        double out = 0.0;
+
+        for (long i = start; i < end; i++) {
+            if ((i & mask) == value) {
+                double re = getReal(i);
+                double im = getImaginary(i);
+                out += re * re + im * im;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns the squared norms of the amplitudes grouped by the values of
+     * the bits in <var>mask</var>, the marginal distribution of measuring the
+     * qubits in the mask. Entry k holds the indices i with compressBits(i,
+     * mask) == k, i.e. bit j of k is the value of the j-th lowest qubit of
+     * the mask.
+     *
+     * The amplitudes are read once. For few outcomes the indices are split in
+     * MARGINAL_PARTS parts of fixed size, which may run in parallel, and the
+     * distributions of the parts are added in order, so the result does not
+     * depend on the number of threads.
+     *
+     * @param mask bits of the measured qubits, at most 30
+     * @return array of 2^bitCount(mask) squared norms
+     */
+    public double[] marginalNorms(final long mask) {
+        if (Long.bitCount(mask) > 30) {
+            throw new IllegalArgumentException("Cannot measure more than 30 qubits at once");
+        }
+
+        final int outcomes = 1 << Long.bitCount(mask);
+        final long length = length();
+        final int parts = (outcomes <= MARGINAL_PART_OUTCOMES)
+                ? (int) Math.min(MARGINAL_PARTS, (length + CUMULATIVE_BLOCK - 1) / CUMULATIVE_BLOCK) : 1;
+
+        double[] out = new double[outcomes];
+        if (parts <= 1) {
+            marginalNorms(0, length, mask, out);
+            return out;
+        }
+
+        final double[][] partial = new double[parts][outcomes];
+        final long part = (length + parts - 1) / parts;
+
+        KernelPool.RangeKernel kernel = new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                for (int p = from; p < to; p++) {
+                    marginalNorms(p * part, Math.min((p + 1) * part, length), mask, partial[p]);
+                }
+            }
+        };
+        if (KernelPool.isParallel(length)) {
+            KernelPool.forRange(parts, 1, kernel);
+        } else {
+            kernel.run(0, parts);
+        }
+
+        for (int p = 0; p < parts; p++) {
+            for (int k = 0; k < outcomes; k++) {
+                out[k] += partial[p][k];
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Adds the squared norms of a range of amplitudes to their outcomes, in
+     * the order of the indices, see marginalNorms. Buffers may override it to
+     * read their storage directly.
+     *
+     * @param from index of the first amplitude of the range
+     * @param to index after the last amplitude of the range
+     * @param mask bits of the measured qubits
+     * @param out squared norms by outcome, added to
+     */
+    protected void marginalNorms(long from, long to, long mask, double[] out) {
+        int shift = Long.numberOfTrailingZeros(mask);
+        boolean contiguous = (((mask >>> shift) + 1) & (mask >>> shift)) == 0;
+
+        for (long i = from; i < to; i++) {
+            double re = getReal(i);
+            double im = getImaginary(i);
+
+            if (re != 0.0 || im != 0.0) {
+                int k = (int) (contiguous ? (i & mask) >>> shift : compressBits(i, mask));
+                out[k] += re * re + im * im;
+            }
+        }
+    }
+
+    /**
+     * Packs the bits of a value selected by a mask into the lowest bits, in
+     * the same order.
+     *
+     * @param Value the value
+     * @param Mask the selected bits
+     * @return the packed bits
+     */
+    public static long compressBits(long Value, long Mask) {
+        long out = 0;
+        int bit = 0;
+        for (long rest = Mask; rest != 0; rest &= rest - 1) {
+            if ((Value & Long.lowestOneBit(rest)) != 0) {
+                out |= 1L << bit;
+            }
+            bit++;
+        }
+        return out;
+    }
+
+    /**
+     * Spreads the lowest bits of a value over the bits of a mask, in the same
+     * order. This is the inverse of compressBits.
+     *
+     * @param Value the packed bits
+     * @param Mask the bits to spread them over
+     * @return the spread bits
+     */
+    public static long expandBits(long Value, long Mask) {
+        long out = 0;
+        int bit = 0;
+        for (long rest = Mask; rest != 0; rest &= rest - 1) {
+            if ((Value & (1L << bit)) != 0) {
+                out |= Long.lowestOneBit(rest);
+            }
+            bit++;
+        }
+        return out;
+    }
+
+    /**
+     * Projects the state vector onto the indices i satisfying (i &amp; mask)
+     * == value, the other amplitudes are set to zero and the selected ones
+     * are multiplied by a real scalar.
+     *
+     * @param mask bits that are tested
+     * @param value required value of the tested bits
+     * @param scalar real number multiplying the selected amplitudes
+     */
+    public void projectWhere(long mask, long value, double scalar) {
+        for (long i = 0; i < length(); i++) {
+            if ((i & mask) == value) {
+                set(i, scalar * getReal(i), scalar * getImaginary(i));
+            } else {
+                set(i, 0.0, 0.0);
+            }
+        }
+    }
+
+    /**
+     * Returns a buffer of half the length holding the amplitudes whose index
+     * has the bit <var>stride</var> equal to <var>value</var>, multiplied by a
+     * real scalar. The bit is removed from the indices, the bits above it move
+     * down by one.
+     *
+     * @param stride the bit of the removed qubit, 1 &lt;&lt; qubit
+     * @param value stride if the amplitudes with the bit set are kept, 0 if
+     * those with the bit clear are kept
+     * @param scalar real number multiplying the kept amplitudes
+     * @return new buffer of the same kind with half the amplitudes
+     */
+    public StateBuffer removeBit(long stride, long value, double scalar) {
+        StateBuffer out = create(length() >> 1);
+
+        for (long j = 0; j < out.length(); j++) {
+            //Insert the removed bit into the index
+            long i = ((j & ~(stride - 1)) << 1) | (j & (stride - 1)) | value;
+
+            out.set(j, scalar * getReal(i), scalar * getImaginary(i));
+        }
+        return out;
+    }
+
+    /**
+     * Returns the running sums of the squared magnitudes of the amplitudes,
+     * element i holding the sum over the indices up to and including i. The
+     * last element is the squared norm.
+     *
+     * The sums are built in blocks of fixed size which may run in parallel,
+     * so the result does not depend on the number of threads. Only buffers of
+     * up to MAX_ARRAY_LENGTH amplitudes are supported.
+     *
+     * @return cumulative probabilities, not normalized
+     */
+    public double[] cumulativeNorms() {
+        final int length = (int) length();
+        final double[] out = new double[length];
+        final int blocks = (length + CUMULATIVE_BLOCK - 1) / CUMULATIVE_BLOCK;
+
+        //Running sums within every block
+        KernelPool.RangeKernel local = new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                for (int block = from; block < to; block++) {
+                    int end = Math.min((block + 1) * CUMULATIVE_BLOCK, length);
+                    double sum = 0.0;
+
+                    for (int i = block * CUMULATIVE_BLOCK; i < end; i++) {
+                        double re = getReal(i);
+                        double im = getImaginary(i);
+                        sum += re * re + im * im;
+                        out[i] = sum;
+                    }
+                }
+            }
+        };
+
+        //Sum of all blocks before every block
+        final double[] offsets = new double[blocks];
+
+        //Add the sums of the blocks before
+        KernelPool.RangeKernel shift = new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                for (int block = from; block < to; block++) {
+                    int end = Math.min((block + 1) * CUMULATIVE_BLOCK, length);
+
+                    for (int i = block * CUMULATIVE_BLOCK; i < end; i++) {
+                        out[i] += offsets[block];
+                    }
+                }
+            }
+        };
+
+        boolean parallel = KernelPool.isParallel(length);
+
+        if (parallel) {
+            KernelPool.forRange(blocks, 1, local);
+        } else {
+            local.run(0, blocks);
+        }
+
+        double running = 0.0;
+        for (int block = 0; block < blocks; block++) {
+            offsets[block] = running;
+            running += out[Math.min((block + 1) * CUMULATIVE_BLOCK, length) - 1];
+        }
+
+        if (parallel) {
+            KernelPool.forRange(blocks, 1, shift);
+        } else {
+            shift.run(0, blocks);
+        }
+
+        return out;
+    }
+
+    /**
+     * Multiplies all amplitudes by a real scalar.
+     *
+     * @param scalar real number multiplying the amplitudes
+     */
+    public void scale(double scalar) {
+        for (long i = 0; i < length(); i++) {
+            set(i, scalar * getReal(i), scalar * getImaginary(i));
+        }
+    }
+
+    /**
+     * Applies a real two-by-two matrix to every pair of amplitudes whose
+     * indices differ only in the bit <var>stride</var>.
+     *
+     * The pair (x0, x1), with x0 having the bit clear, becomes (a*x0 + b*x1,
+     * c*x0 + d*x1).
+     *
+     * @param stride the bit of the target qubit, 1 &lt;&lt; qubit
+     * @param a top left element
+     * @param b top right element
+     * @param c bottom left element
+     * @param d bottom right element
+     */
+    public void transformPairs(long stride, double a, double b, double c, double d) {
+        //Blocks of bases in which the bit is first clear and then set
+        for (long block = 0; block < length(); block += stride << 1) {
+            for (long i0 = block; i0 < block + stride; i0++) {
+                long i1 = i0 + stride;
+
+                double re0 = getReal(i0);
+                double im0 = getImaginary(i0);
+                double re1 = getReal(i1);
+                double im1 = getImaginary(i1);
+
+                set(i0, a * re0 + b * re1, a * im0 + b * im1);
+                set(i1, c * re0 + d * re1, c * im0 + d * im1);
+            }
+        }
+    }
+
+    /**
+     * Applies a complex two-by-two matrix to every pair of amplitudes whose
+     * indices differ only in the bit <var>stride</var>.
+     *
+     * The pair (x0, x1), with x0 having the bit clear, becomes (a*x0 + b*x1,
+     * c*x0 + d*x1). Real matrices should use the cheaper real version.
+     *
+     * @param stride the bit of the target qubit, 1 &lt;&lt; qubit
+     * @param aRe real part of the top left element
+     * @param aIm imaginary part of the top left element
+     * @param bRe real part of the top right element
+     * @param bIm imaginary part of the top right element
+     * @param cRe real part of the bottom left element
+     * @param cIm imaginary part of the bottom left element
+     * @param dRe real part of the bottom right element
+     * @param dIm imaginary part of the bottom right element
+     */
+    public void transformPairs(long stride, double aRe, double aIm, double bRe, double bIm,
+            double cRe, double cIm, double dRe, double dIm) {
+        //Blocks of bases in which the bit is first clear and then set
+        for (long block = 0; block < length(); block += stride << 1) {
+            for (long i0 = block; i0 < block + stride; i0++) {
+                long i1 = i0 + stride;
+
+                double re0 = getReal(i0);
+                double im0 = getImaginary(i0);
+                double re1 = getReal(i1);
+                double im1 = getImaginary(i1);
+
+                set(i0, aRe * re0 - aIm * im0 + bRe * re1 - bIm * im1, aRe * im0 + aIm * re0 + bRe * im1 + bIm * re1);
+                set(i1, cRe * re0 - cIm * im0 + dRe * re1 - dIm * im1, cRe * im0 + cIm * re0 + dRe * im1 + dIm * re1);
+            }
+        }
+    }
+
+    /**
+     * Applies a complex diagonal two-by-two matrix to every pair of amplitudes
+     * whose indices differ only in the bit <var>stride</var>, i.e. multiplies
+     * the amplitudes with the bit clear by a and those with the bit set by d.
+     *
+     * @param stride the bit of the target qubit, 1 &lt;&lt; qubit
+     * @param aRe real part of the top left element
+     * @param aIm imaginary part of the top left element
+     * @param dRe real part of the bottom right element
+     * @param dIm imaginary part of the bottom right element
+     */
+    public void multiplyPairs(long stride, double aRe, double aIm, double dRe, double dIm) {
+        for (long i = 0; i < length(); i++) {
+            double re = getReal(i);
+            double im = getImaginary(i);
+
+            if ((i & stride) == 0) {
+                set(i, re * aRe - im * aIm, re * aIm + im * aRe);
+            } else {
+                set(i, re * dRe - im * dIm, re * dIm + im * dRe);
+            }
+        }
+    }
+
+    /**
+     * Multiplies every amplitude whose index has all bits of <var>mask</var>
+     * set by a complex number.
+     *
+     * @param mask bits that have to be set
+     * @param real real part of the factor
+     * @param imaginary imaginary part of the factor
+     */
+    public void multiplyWhereSet(long mask, double real, double imaginary) {
+        for (long i = 0; i < length(); i++) {
+            if ((i & mask) == mask) {
+                double re = getReal(i);
+                double im = getImaginary(i);
+                set(i, re * real - im * imaginary, re * imaginary + im * real);
+            }
+        }
+    }
+
+    /**
+     * Multiplies every amplitude whose index i satisfies (i &amp; mask) ==
+     * value by a complex number, e.g. a phase shift on the subspace in which
+     * a set of control qubits has given values.
+     *
+     * @param mask bits that are tested
+     * @param value required value of the tested bits
+     * @param real real part of the factor
+     * @param imaginary imaginary part of the factor
+     */
+    public void multiplyWhere(long mask, long value, double real, double imaginary) {
+        if (value == mask) {
+            multiplyWhereSet(mask, real, imaginary);
+            return;
+        }
+
+        for (long i = 0; i < length(); i++) {
+            if ((i & mask) == value) {
+                double re = getReal(i);
+                double im = getImaginary(i);
+                set(i, re * real - im * imaginary, re * imaginary + im * real);
+            }
+        }
+    }
+
+    /**
+     * Applies a complex two-by-two matrix to the pairs of amplitudes whose
+     * indices differ only in the bit <var>stride</var> and whose other indices
+     * i satisfy (i &amp; mask) == value, i.e. a gate controlled by the qubits
+     * in the mask. The other amplitudes are not visited.
+     *
+     * @param stride the bit of the target qubit, 1 &lt;&lt; qubit
+     * @param mask bits of the control qubits, without the target bit
+     * @param value required value of the control bits
+     * @param aRe real part of the top left element
+     * @param aIm imaginary part of the top left element
+     * @param bRe real part of the top right element
+     * @param bIm imaginary part of the top right element
+     * @param cRe real part of the bottom left element
+     * @param cIm imaginary part of the bottom left element
+     * @param dRe real part of the bottom right element
+     * @param dIm imaginary part of the bottom right element
+     */
+    public void transformPairsWhere(long stride, long mask, long value, double aRe, double aIm, double bRe, double bIm,
+            double cRe, double cIm, double dRe, double dIm) {
+        for (long i0 = 0; i0 < length(); i0++) {
+            if ((i0 & (mask | stride)) == value) {
+                long i1 = i0 + stride;
+
+                double re0 = getReal(i0);
+                double im0 = getImaginary(i0);
+                double re1 = getReal(i1);
+                double im1 = getImaginary(i1);
+
+                set(i0, aRe * re0 - aIm * im0 + bRe * re1 - bIm * im1, aRe * im0 + aIm * re0 + bRe * im1 + bIm * re1);
+                set(i1, cRe * re0 - cIm * im0 + dRe * re1 - dIm * im1, cRe * im0 + cIm * re0 + dRe * im1 + dIm * re1);
+            }
+        }
+    }
+
+    /**
+     * Swaps every amplitude whose index i satisfies (i &amp; mask) == value
+     * with the amplitude at i ^ flip.
+     *
+     * The partner i ^ flip must not satisfy the condition itself, otherwise
+     * the pair would be swapped twice.
+     *
+     * @param mask bits that are tested
+     * @param value required value of the tested bits
+     * @param flip bits that are inverted to find the partner
+     */
+    public void swapWhere(long mask, long value, long flip) {
+        for (long i = 0; i < length(); i++) {
+            if ((i & mask) == value) {
+                long l = i ^ flip;
+
+                double re = getReal(i);
+                double im = getImaginary(i);
+                set(i, getReal(l), getImaginary(l));
+                set(l, re, im);
+            }
+        }
+    }
+
+    /**
+     * Applies the quantum Fourier transform to the qubits of a mask, lowest
+     * qubit first, as a fast Fourier transform.
+     *
+     * For every value of the other qubits the 2^L amplitudes of the masked
+     * qubits are gathered into a scratch sequence, transformed in O(L * 2^L)
+     * by FourierTransform and scattered back, so the other qubits are only
+     * strides and the whole transform costs O(L * 2^n). The sequences are
+     * independent and may run in parallel.
+     *
+     * @param mask bits of the transformed qubits, at most 30
+     * @param inverse true for the inverse transform
+     */
+    public void fourierTransform(long mask, final boolean inverse) {
+        final int bits = Long.bitCount(mask);
+        if (bits > FourierTransform.MAX_BITS) {
+            throw new IllegalArgumentException("Cannot transform more than " + FourierTransform.MAX_BITS + " qubits");
+        }
+
+        final int size = 1 << bits;
+        final long rest = (length() - 1) & ~mask;
+        long sequences = length() >>> bits;
+        if (sequences > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many sequences to transform");
+        }
+
+        //The tables are computed here, not by the first sequences of every thread
+        FourierTransform.prepare(bits);
+
+        //Index of every element of a sequence relative to its first element, each the next subset of the mask
+        final long[] offsets = new long[size];
+        for (int k = 1; k < size; k++) {
+            offsets[k] = ((offsets[k - 1] | ~mask) + 1) & mask;
+        }
+
+        KernelPool.RangeKernel kernel = new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                double[] re = new double[size];
+                double[] im = new double[size];
+
+                for (int s = from; s < to; s++) {
+                    long base = expandBits(s, rest);
+                    for (int k = 0; k < size; k++) {
+                        re[k] = getReal(base | offsets[k]);
+                        im[k] = getImaginary(base | offsets[k]);
+                    }
+
+                    FourierTransform.transform(re, im, bits, inverse);
+
+                    for (int k = 0; k < size; k++) {
+                        set(base | offsets[k], re[k], im[k]);
+                    }
+                }
+            }
+        };
+
+        if (KernelPool.isParallel(length()) && sequences > 1 && isConcurrentWriteSafe()) {
+            KernelPool.forRange((int) sequences, Integer.highestOneBit(Math.max(1, (1 << 12) >> bits)), kernel);
+        } else {
+            kernel.run(0, (int) sequences);
+        }
+    }
+
+    /**
+     * Sets the state 1/sqrt(2^argumentBits) sum over x of |x&gt;|f(x)&gt;,
+     * with x in the bits from <var>valueBits</var> up and f(x) in the lowest
+     * <var>valueBits</var> bits, all other amplitudes are zero.
+     *
+     * With the table of m^x mod n this is the state of Shor's algorithm after
+     * the equal superposition of the first register and the modular
+     * exponentiation, written in one pass without either of them. The
+     * arguments are split in ranges which may run in parallel.
+     *
+     * @param argumentBits number of qubits of x, at most 30
+     * @param valueBits number of qubits of f(x)
+     * @param values f(x) for all x below 2^argumentBits, each below
+     * 2^valueBits
+     * @throws IllegalArgumentException if the arguments and values do not fit
+     * in the buffer or a value is negative or not below 2^valueBits
+     */
+    public void setFunctionValues(int argumentBits, final int valueBits, final int[] values) {
+        if (argumentBits < 0 || argumentBits > 30 || valueBits < 0
+                || ((long) argumentBits + valueBits) > Long.numberOfTrailingZeros(length())
+                || values.length < (1 << argumentBits)) {
+            throw new IllegalArgumentException("The arguments and values do not fit in the buffer");
+        }
+
+        //Checked before anything is written, a value out of range would set bits of the argument
+        final int arguments = 1 << argumentBits;
+        for (int x = 0; x < arguments; x++) {
+            if (values[x] < 0 || values[x] >= (1L << valueBits)) {
+                throw new IllegalArgumentException("f(" + x + ") = " + values[x] + " does not fit in " + valueBits + " bits");
+            }
+        }
+
+        clear();
+
+        final double amplitude = 1.0 / Math.sqrt(arguments);
+
+        KernelPool.RangeKernel kernel = new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                for (int x = from; x < to; x++) {
+                    set(((long) x << valueBits) | values[x], amplitude, 0.0);
+                }
+            }
+        };
+
+        if (KernelPool.isParallel(arguments) && isConcurrentWriteSafe()) {
+            KernelPool.forRange(arguments, kernel);
+        } else {
+            kernel.run(0, arguments);
+        }
+    }
+
+    /**
+     * Permutes the values of the field bits of every index i satisfying (i
+     * &amp; mask) == value, the amplitude of field value y moves to field
+     * value permutation[y]. Field values from permutation.length up are left
+     * unchanged.
+     *
+     * For every value of the other bits the amplitudes of the field are
+     * gathered into a scratch array and scattered back to their new places,
+     * so a permutation with long cycles costs no more than one with short
+     * ones. The groups are independent and may run in parallel.
+     *
+     * @param field bits of the permuted value, the lowest bit first
+     * @param mask bits that are tested, disjoint from the field
+     * @param value required value of the tested bits
+     * @param permutation new field value of every field value below its
+     * length, a permutation of 0 up to its length
+     */
+    public void permuteWhere(final long field, long mask, final long value, final int[] permutation) {
+        if (Long.bitCount(field) > 30 || permutation.length > (1L << Long.bitCount(field)) || (field & mask) != 0) {
+            throw new IllegalArgumentException("The permutation does not fit in the field");
+        }
+
+        final int size = permutation.length;
+        final long rest = (length() - 1) & ~field & ~mask;
+        long groups = 1L << Long.bitCount(rest);
+        if (groups > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many groups to permute");
+        }
+
+        //Index of every field value, each the next subset of the field
+        final long[] offsets = new long[size];
+        for (int y = 1; y < size; y++) {
+            offsets[y] = ((offsets[y - 1] | ~field) + 1) & field;
+        }
+
+        KernelPool.RangeKernel kernel = new KernelPool.RangeKernel() {
+            public void run(int from, int to) {
+                double[] re = new double[size];
+                double[] im = new double[size];
+
+                for (int g = from; g < to; g++) {
+                    long base = expandBits(g, rest) | value;
+                    for (int y = 0; y < size; y++) {
+                        re[y] = getReal(base | offsets[y]);
+                        im[y] = getImaginary(base | offsets[y]);
+                    }
+                    for (int y = 0; y < size; y++) {
+                        set(base | offsets[permutation[y]], re[y], im[y]);
+                    }
+                }
+            }
+        };
+
+        if (KernelPool.isParallel(length()) && groups > 1 && isConcurrentWriteSafe()) {
+            KernelPool.forRange((int) groups, Integer.highestOneBit(Math.max(1, (1 << 12) / Math.max(size, 1))), kernel);
+        } else {
+            kernel.run(0, (int) groups);
+        }
+    }
+}
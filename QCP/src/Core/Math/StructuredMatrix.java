@@ -0,0 +1,339 @@
+package Core.Math;
+
+/**
+ * Matrix extention for matrices with exactly one element in every column, the
+ * identity, diagonal and permutation matrices.
+ *
+ * Such a matrix is given by the row of the element in each column and its
+ * value, so it multiplies a vector in O(order) and products and tensor
+ * products of two such matrices are again such matrices, computed in closed
+ * form from the rows and values. The result is stored as the most specific
+ * type that fits it. Setting an element switches the matrix to a dense or
+ * sparse copy of its elements, which then holds all further changes.
+ */
+public abstract class StructuredMatrix extends Matrix {
+
+    /**
+     * The copy of the elements once an element has been set, null before.
+     * All calls are passed on to it from then.
+     */
+    Matrix written;
+
+    /**
+     * Returns the row of the element in a column.
+     */
+    abstract int rowOf(int column);
+
+    /**
+     * Returns the real part of the element in a column.
+     */
+    abstract double realOf(int column);
+
+    /**
+     * Returns the imaginary part of the element in a column.
+     */
+    abstract double imaginaryOf(int column);
+
+    @Override
+    public Complex getElement(int row, int column) {
+        if (written != null) {
+            return written.getElement(row, column);
+        }
+        if (rowOf(column) != row) {
+            return new Complex();
+        }
+        return new Complex(realOf(column), imaginaryOf(column));
+    }
+
+    /**
+     * Sets an element. The first change copies the elements into a dense or
+     * sparse matrix, which is changed instead, as the result may no longer
+     * have one element in every column.
+     *
+     * @param row
+     * @param column
+     * @param z complex number to put at (row, column)
+     */
+    @Override
+    public void setElement(int row, int column, Complex z) {
+        if (written == null) {
+            written = writableCopy();
+        }
+        written.setElement(row, column, z);
+    }
+
+    @Override
+    public int getNonZeroElmentCount() {
+        if (written != null) {
+            return written.getNonZeroElmentCount();
+        }
+        return getOrder();
+    }
+
+    /**
+     * Returns a dense or sparse matrix holding the element of every column.
+     */
+    @Override
+    Matrix writableCopy() {
+        int n = getOrder();
+        Matrix out = makeResult(n, getNonZeroElmentCount() > (long) n * n / 2);
+        for (int column = 0; column < n; column++) {
+            double re = realOf(column);
+            double im = imaginaryOf(column);
+            if (re != 0 || im != 0) {
+                out.setElement(rowOf(column), column, new Complex(re, im));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns a CSRMatrix holding the element of every column.
+     *
+     * @return the elements in compressed sparse row form
+     */
+    @Override
+    CSRMatrix toCSRMatrix() {
+        if (written != null) {
+            return written.toCSRMatrix();
+        }
+
+        int n = getOrder();
+        int[] rows = new int[n];
+        int[] columns = new int[n];
+        double[] real = new double[n];
+        double[] imaginary = new double[n];
+        for (int column = 0; column < n; column++) {
+            rows[column] = rowOf(column);
+            columns[column] = column;
+            real[column] = realOf(column);
+            imaginary[column] = imaginaryOf(column);
+        }
+        return new CSRMatrix(n, rows, columns, real, imaginary, n);
+    }
+
+    /**
+     * Multiplies matrix by a vector, every component is moved to the row of
+     * its column and multiplied by the element.
+     *
+     * @param v vector
+     * @return matrix * v
+     */
+    @Override
+    public ComplexVector multiply(ComplexVector v) {
+        if (written != null) {
+            return written.multiply(v);
+        }
+
+        StateBuffer in = v.getStateBuffer();
+        StateBuffer out = in.create(getOrder());
+
+        for (int column = 0; column < getOrder(); column++) {
+            double re = in.getReal(column);
+            double im = in.getImaginary(column);
+
+            if (re != 0 || im != 0) {
+                double aRe = realOf(column);
+                double aIm = imaginaryOf(column);
+                out.set(rowOf(column), aRe * re - aIm * im, aRe * im + aIm * re);
+            }
+        }
+
+        return new ComplexVector(out);
+    }
+
+    /**
+     * Multiplies matrix by another matrix. The product with another
+     * StructuredMatrix is computed in closed form by makeMultiplyResult,
+     * otherwise row j of m is moved to the row of column j and multiplied by
+     * its element.
+     *
+     * Use: A.multiply(B) = AB
+     *
+     * @param m
+     * @return matrix * m
+     */
+    @Override
+    public Matrix multiply(Matrix m) {
+        if (written != null) {
+            return written.multiply(m);
+        }
+
+        Matrix result = makeMultiplyResult(this, m);
+        if (isStructured(m)) {
+            return result;
+        }
+
+        int n = getOrder();
+        for (int j = 0; j < n; j++) {
+            Complex a = new Complex(realOf(j), imaginaryOf(j));
+            for (int column = 0; column < n; column++) {
+                Complex z = m.getElement(j, column);
+                if (z.getReal() != 0 || z.getImaginary() != 0) {
+                    result.setElement(rowOf(j), column, a.multiply(z));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Performs matrix tensor product, computed in closed form by
+     * makeTensorResult if m is a StructuredMatrix.
+     *
+     * Use: A.tensorProduct(B) = AxB
+     *
+     * @param m
+     * @return matrix x m
+     */
+    @Override
+    public Matrix tensorProduct(Matrix m) {
+        if (written != null) {
+            return written.tensorProduct(m);
+        }
+        if (!isStructured(m)) {
+            return super.tensorProduct(m);
+        }
+        return makeTensorResult(this, m);
+    }
+
+    /**
+     * Returns whether a matrix is a StructuredMatrix which has not been
+     * changed, so its rows and values describe it.
+     */
+    static boolean isStructured(Matrix m) {
+        return m instanceof StructuredMatrix && ((StructuredMatrix) m).written == null;
+    }
+
+    /**
+     * Returns the product of two unchanged structured matrices in closed form,
+     * column j of AB is column j of B moved and scaled by A.
+     */
+    static Matrix product(StructuredMatrix a, StructuredMatrix b) {
+        int n = a.getOrder();
+        int[] rows = new int[n];
+        double[] re = new double[n];
+        double[] im = new double[n];
+
+        for (int column = 0; column < n; column++) {
+            int middle = b.rowOf(column);
+            double aRe = a.realOf(middle);
+            double aIm = a.imaginaryOf(middle);
+            double bRe = b.realOf(column);
+            double bIm = b.imaginaryOf(column);
+
+            rows[column] = a.rowOf(middle);
+            re[column] = aRe * bRe - aIm * bIm;
+            im[column] = aRe * bIm + aIm * bRe;
+        }
+        return of(rows, re, im);
+    }
+
+    /**
+     * Returns the tensor product of two unchanged structured matrices in
+     * closed form.
+     */
+    static Matrix tensor(StructuredMatrix a, StructuredMatrix b) {
+        int n = a.getOrder();
+        int bn = b.getOrder();
+        if ((long) n * bn > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tensor product too large");
+        }
+
+        int[] rows = new int[n * bn];
+        double[] re = new double[n * bn];
+        double[] im = new double[n * bn];
+        for (int j = 0; j < n; j++) {
+            for (int l = 0; l < bn; l++) {
+                double aRe = a.realOf(j);
+                double aIm = a.imaginaryOf(j);
+                double bRe = b.realOf(l);
+                double bIm = b.imaginaryOf(l);
+
+                rows[j * bn + l] = a.rowOf(j) * bn + b.rowOf(l);
+                re[j * bn + l] = aRe * bRe - aIm * bIm;
+                im[j * bn + l] = aRe * bIm + aIm * bRe;
+            }
+        }
+        return of(rows, re, im);
+    }
+
+    /**
+     * Returns a copy of the matrix, of the most specific type that fits it.
+     *
+     * @return the copy
+     */
+    @Override
+    public Matrix copy() {
+        if (written != null) {
+            return written.copy();
+        }
+
+        int n = getOrder();
+        int[] rows = new int[n];
+        double[] re = new double[n];
+        double[] im = new double[n];
+        for (int column = 0; column < n; column++) {
+            rows[column] = rowOf(column);
+            re[column] = realOf(column);
+            im[column] = imaginaryOf(column);
+        }
+        return of(rows, re, im);
+    }
+
+    /**
+     * Returns the most specific matrix with one element in every column, at
+     * the given rows and with the given values. The arrays are used directly
+     * if a DiagonalMatrix or PermutationMatrix is returned.
+     *
+     * @param Rows row of the element in every column
+     * @param Real real parts of the elements
+     * @param Imaginary imaginary parts of the elements
+     * @return an IdentityMatrix, DiagonalMatrix or PermutationMatrix, or a
+     * CSRMatrix if the elements are neither on the diagonal nor all one
+     */
+    public static Matrix of(int[] Rows, double[] Real, double[] Imaginary) {
+        int n = Rows.length;
+        boolean diagonal = true;
+        boolean ones = true;
+        for (int column = 0; column < n; column++) {
+            diagonal &= Rows[column] == column;
+            ones &= Real[column] == 1 && Imaginary[column] == 0;
+        }
+
+        if (diagonal && ones) {
+            return new IdentityMatrix(n);
+        }
+        if (diagonal) {
+            return new DiagonalMatrix(Real, Imaginary);
+        }
+        if (ones) {
+            return new PermutationMatrix(Rows);
+        }
+
+        int[] columns = new int[n];
+        for (int column = 0; column < n; column++) {
+            columns[column] = column;
+        }
+        return new CSRMatrix(n, Rows, columns, Real, Imaginary, n);
+    }
+
+    /**
+     * Returns string representation of matrix. Indexing is from 1, not 0.
+     *
+     * @return string representation of matrix
+     */
+    @Override
+    public String toString() {
+        if (written != null) {
+            return written.toString();
+        }
+
+        StringBuilder out = new StringBuilder();
+        for (int column = 0; column < getOrder(); column++) {
+            out.append("([").append(rowOf(column) + 1).append(", ").append(column + 1).append("] ")
+                    .append(new Complex(realOf(column), imaginaryOf(column))).append(")\n");
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package Core.Math;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the most recently used tables of ints by key, for tables which
+ * only depend on their key and are expensive to compute, shared between
+ * threads.
+ *
+ * The cache is bounded by the total number of ints it holds, the least
+ * recently used tables are dropped until the others fit. The table added
+ * last is always kept, even if it is larger than the bound on its own.
+ *
+ * A table is computed outside the lock, two threads missing the same key
+ * may both compute it and the table stored last is kept. The cached tables
+ * are shared by all callers and must not be changed.
+ */
+public final class TableCache {
+
+    /**
+     * Computes the table of a key on a miss.
+     */
+    public interface Computation {
+
+        /**
+         * Returns the table of the key.
+         */
+        int[] compute();
+    }
+
+    /**
+     * The cached tables by key, the least recently used first.
+     */
+    private final Map<String, int[]> tables = new LinkedHashMap<String, int[]>(16, 0.75f, true);
+    /**
+     * Largest total number of ints held by the cached tables.
+     */
+    private final long capacity;
+    /**
+     * Total number of ints held by the cached tables.
+     */
+    private long size;
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param Capacity total number of ints kept, the least recently used
+     * tables are dropped when another one is added
+     */
+    public TableCache(long Capacity) {
+        if (Capacity < 0) {
+            throw new IllegalArgumentException("A cache cannot hold a negative number of ints");
+        }
+
+        capacity = Capacity;
+    }
+
+    /**
+     * Returns the cached table of a key, computing and caching it if it is
+     * not cached.
+     *
+     * @param Key the key
+     * @param Computation computes the table on a miss
+     * @return the table, which must not be changed
+     */
+    public int[] get(String Key, Computation Computation) {
+        synchronized (tables) {
+            int[] table = tables.get(Key);
+            if (table != null) {
+                return table;
+            }
+        }
+
+        int[] table = Computation.compute();
+        synchronized (tables) {
+            int[] replaced = tables.put(Key, table);
+            if (replaced != null) {
+                size -= replaced.length;
+            }
+            size += table.length;
+
+            //Dropping the least recently used tables, the new one is the last in the order
+            Iterator<int[]> eldest = tables.values().iterator();
+            while (size > capacity && tables.size() > 1) {
+                size -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Removes all tables from the cache.
+     */
+    public void clear() {
+        synchronized (tables) {
+            tables.clear();
+            size = 0;
+        }
+    }
+}
@@ -5,6 +5,9 @@ import Core.Exceptions.NormalizationException;
 import Core.Exceptions.VectorLengthException;
 import Core.Math.Complex;
 import Core.Math.ComplexVector;
+import Core.Math.SparseStateBuffer;
+import Core.Math.StateBuffer;
+import java.util.Map;
 import java.util.Random;
 
 /**
@@ -27,7 +30,8 @@ public class QRegister {
      * The ComplexVector representing the amplitudes in each base of the
      * register.
      *
-     * The order of bases is unimportant as long as it is consistent.
+     * The order of bases is unimportant as long as it is consistent. The
+     * amplitudes themselves are stored in the StateBuffer of the vector.
      */
     private ComplexVector amplitudes;
 
@@ -39,7 +43,24 @@ public class QRegister {
     public QRegister(int Bits) {
         this.bits = Bits;
 
-        this.amplitudes = new ComplexVector(1 << Bits);
+        this.amplitudes = new ComplexVector(StateBuffer.allocate(1L << Bits));
+    }
+
+    /**
+     * Constructs a QRegister object on top of a StateBuffer.
+     *
+     * This allows the amplitudes to be stored off the heap, e.g. in a
+     * DirectStateBuffer, for registers of more than 30 qubits, or in a
+     * MappedStateBuffer for registers larger than the physical memory. The
+     * number of qubits is calculated from the buffer length.
+     *
+     * @param Amplitudes A StateBuffer holding all amplitudes of a register.
+     */
+    public QRegister(StateBuffer Amplitudes) {
+        //Calculate number of bits in register, log_2(amplitudes).
+        this.bits = Long.numberOfTrailingZeros(Amplitudes.length());
+
+        this.amplitudes = new ComplexVector(Amplitudes);
     }
 
     /**
@@ -77,6 +98,9 @@ public class QRegister {
      * Constructs a QRegister from a number of requested bits and a classical
      * integer.
      *
+     * Only the one non-zero amplitude is stored, the register becomes dense
+     * once gates spread it over enough bases.
+     *
      * @param Bits Number of bits requested.
      * @param Data Value to set QRegister to.
      * @throws DataValueException Thrown if Bits ability to represent Value is
@@ -84,26 +108,20 @@ public class QRegister {
      */
     public QRegister(int Bits, int Data) throws DataValueException {
         //Test that classical register could hold value.        
-        if ((1 << Bits) < Data) {
+        if ((1L << Bits) < Data) {
             throw new DataValueException(Bits, Data);
         }
 
         //Set number of bits in register.
         this.bits = Bits;
 
-        //Initialize complex array to fill with correct values.
-        Complex[] amps = new Complex[1 << Bits];
-
-        for (int i = 0; i < 1 << Bits; i++) {
-            amps[i] = new Complex(0.0f, 0.0f);
-        }
+        //Initialize complex vector to fill with correct values, all amplitudes start at zero.
+        this.amplitudes = new ComplexVector(new SparseStateBuffer(1L << Bits));
 
         //Fill in classical data
-        amps[Data] = new Complex(1.0f, 0.0f);
-
-        //Set ComplexVector and normalize
-        this.amplitudes = new ComplexVector(amps);
+        this.amplitudes.setComponent(1.0f, 0.0f, Data);
 
+        //Normalize
         try {
             amplitudes.normalize();
         } catch (VectorLengthException E) {
@@ -111,6 +129,16 @@ public class QRegister {
         }
     }
 
+    /**
+     * Creates a copy of the QRegister which does not share its amplitudes with
+     * this QRegister.
+     *
+     * @return Copy of the QRegister.
+     */
+    public QRegister copy() {
+        return new QRegister(this, this.amplitudes.copy());
+    }
+
     /**
      * @param Base The Base |...> to get the amplitude of.
      * @return
@@ -136,6 +164,16 @@ public class QRegister {
         return this.amplitudes;
     }
 
+    /**
+     * Buffer holding the amplitudes of the bases in register, addressed with
+     * long indices.
+     *
+     * @return Returns the StateBuffer of the QRegister.
+     */
+    public StateBuffer getStateBuffer() {
+        return this.amplitudes.getStateBuffer();
+    }
+
     /**
      * Number of qubits in register.
      *
@@ -152,14 +190,17 @@ public class QRegister {
      *
      * @return Returns the number of bases in the QRegister. (2^Bits)
      */
-    public int getBaseCount() {
-        return 1 << this.bits;
+    public long getBaseCount() {
+        return 1L << this.bits;
     }
 
     /**
      * Measures a value from the QRegister. This collaspes the wavefunction
      * represented into a discrete classical piece of information.
      *
+     * The result is an int, registers of more than 31 qubits should be read
+     * out in parts with measure(start, end).
+     *
      * @return Measurement of the QRegister.
      * @throws NormalizationException ComplexVector is not normalized.
      */
@@ -174,24 +215,53 @@ public class QRegister {
         //Add amplitudes until greater than random number
         double theta = 0.0;
 
-        for (int base = 0; base < this.amplitudes.length(); base++) {
-            double amp = this.amplitudes.getComponent(base).magnitude();
-            amp *= amp;
+        StateBuffer buffer = this.amplitudes.getStateBuffer();
+
+        //Last base with a non-zero amplitude, in case rounding keeps the sum below the random number
+        long last = -1;
+
+        for (long base = 0; base < buffer.length(); base++) {
+            double re = buffer.getReal(base);
+            double im = buffer.getImaginary(base);
+            double amp = re * re + im * im;
 
             //Test which base is set by random number.
             if (psi <= theta + amp) {
-                //Collapse wavefunction so that further measurements would result in same measurement.
-                amplitudes.clear();
-                amplitudes.setComponent(new Complex(1.0f), base);
-
-                //Return classical result
-                return base;
-            } else {
-                theta += amp;
+                last = base;
+                break;
+            } else if (amp > 0.0) {
+                last = base;
             }
+
+            theta += amp;
+        }
+
+        if (last < 0) {
+            throw new NormalizationException();
         }
 
-        throw new NormalizationException();
+        //Collapse wavefunction so that further measurements would result in same measurement.
+        buffer.clear();
+        buffer.set(last, 1.0, 0.0);
+
+        //Return classical result
+        return (int) last;
+    }
+
+    /**
+     * Draws a number of measurements from the QRegister without collapsing
+     * it, so an algorithm does not need to be run again for every shot.
+     *
+     * The probabilities are summed once, every shot is a binary search. Use a
+     * Sampler directly to draw more shots later or to sample only some qubits.
+     *
+     * @param Shots Number of measurements to draw.
+     * @return Histogram from the bases measured to the number of times they
+     * were measured.
+     * @throws NormalizationException The register has no non-zero amplitude.
+     */
+    public Map<Long, Integer> sample(int Shots) throws NormalizationException {
+        return new Sampler(this).sample(Shots);
     }
 
     /**
@@ -225,44 +295,56 @@ public class QRegister {
      * @throws VectorLengthException
      */
     public int measure(int bit) throws NormalizationException, VectorLengthException {
+        return measure(bit, false);
+    }
 
-        //Generate random number
-        double psi = rng.nextDouble();
-        amplitudes.normalize();
-        //Add coefficients for all states where the qubit is zero
-        double coefficientSum = 0;
-        for (int j = 0; j < (1 << (bits - 1 - bit)); j++) {
-            for (int k = 0; k < (1 << bit); k++) {
-                double amp = this.amplitudes.getComponent(j * (1 << (bit + 1)) + k).magnitude();
-                coefficientSum += amp * amp;
-            }
+    /**
+     * This methods measures one bit and then collapses all states that oppose
+     * the measurement, optionally removing the measured qubit from the
+     * register.
+     *
+     * The probabilities of both outcomes are summed in one sweep over the
+     * amplitudes, which need not be normalized. The collapse zeroes the
+     * opposing states and renormalizes the others in a second sweep, in place.
+     * If the qubit is removed the register instead shrinks to the half of the
+     * amplitudes that agree with the measurement, the qubits above the removed
+     * one move down by one.
+     *
+     * @param bit, the position of the qubit to be measured (0,...,n-1)
+     * @param Remove whether the measured qubit is removed from the register
+     * @return 0 or 1, the state of the qubit.
+     * @throws NormalizationException if every amplitude is zero
+     * @throws VectorLengthException
+     */
+    public int measure(int bit, boolean Remove) throws NormalizationException, VectorLengthException {
+        StateBuffer buffer = this.amplitudes.getStateBuffer();
+        long stride = 1L << bit;
+
+        //Add coefficients for all states where the qubit is zero and one, in the same sweep
+        double[] marginals = buffer.marginalNorms(stride);
+        double zero = marginals[0];
+        double one = marginals[1];
+        if (!(zero + one > 0.0)) {
+            throw new NormalizationException();
         }
 
-        //Check if 0 or 1;
+        //Generate random number and check if 0 or 1
+        double psi = rng.nextDouble() * (zero + one);
         int state = 1;
-        if (coefficientSum >= psi) {
+        if (zero > 0.0 && zero >= psi) {
             state = 0;
         }
 
-        //Kill all other states, that oppose the measurement
-        if (state == 1) {
-            for (int j = 0; j < (1 << (bits - 1 - bit)); j++) {
-                for (int k = 0; k < (1 << bit); k++) {
-                    this.setAmplitude(j * (1 << (bit + 1)) + k, new Complex(0, 0));
-                }
-            }
-
+        //Kill all other states, that oppose the measurement, and normalize register
+        long value = (state == 1) ? stride : 0L;
+        double scalar = 1.0 / Math.sqrt((state == 1) ? one : zero);
+        if (Remove) {
+            this.amplitudes = new ComplexVector(buffer.removeBit(stride, value, scalar));
+            this.bits--;
         } else {
-            for (int j = 0; j < (1 << (bits - 1 - bit)); j++) {
-                for (int k = 0; k < (1 << bit); k++) {
-                    this.setAmplitude(j * (1 << (bit + 1)) + k + (1 << bit), new Complex(0, 0));
-                }
-            }
+            buffer.projectWhere(stride, value, scalar);
         }
 
-        //Normalize register
-        amplitudes.normalize();
-
         //return measurement
         return state;
 
@@ -278,10 +360,52 @@ public class QRegister {
      * @throws VectorLengthException
      */
     public int measure(int start, int end) throws NormalizationException, VectorLengthException {
-        String binary = "";
-        for (int i = start; i <= end; i++) {
-            binary = measure(i) + binary;
+        long mask = (end - start == 63) ? -1L : ((1L << (end - start + 1)) - 1) << start;
+        return (int) measureBits(mask);
+    }
+
+    /**
+     * Measures a set of qubits jointly and then collapses all states that
+     * oppose the measurement.
+     *
+     * The marginal distribution of the qubits is summed in one sweep over the
+     * amplitudes, one outcome is drawn from it and the collapse is done in a
+     * second sweep, in place, however many qubits are measured.
+     *
+     * @param Mask bits of the qubits to be measured, at most 30
+     * @return The measured state, bit j holds the j-th lowest measured qubit.
+     * @throws NormalizationException if every amplitude is zero
+     * @throws VectorLengthException
+     */
+    public long measureBits(long Mask) throws NormalizationException, VectorLengthException {
+        StateBuffer buffer = this.amplitudes.getStateBuffer();
+        double[] norms = buffer.marginalNorms(Mask);
+
+        double total = 0.0;
+        for (double norm : norms) {
+            total += norm;
+        }
+        if (!(total > 0.0)) {
+            throw new NormalizationException();
+        }
+
+        //Find the first outcome whose cumulative probability exceeds psi
+        double psi = rng.nextDouble() * total;
+        double coefficientSum = 0.0;
+        int outcome = -1;
+        for (int k = 0; k < norms.length; k++) {
+            if (norms[k] > 0.0) {
+                outcome = k;
+                coefficientSum += norms[k];
+                if (coefficientSum > psi) {
+                    break;
+                }
+            }
         }
-        return Integer.parseInt(binary, 2);
+
+        //Kill all other states, that oppose the measurement, and normalize register
+        buffer.projectWhere(Mask, StateBuffer.expandBits(outcome, Mask), 1.0 / Math.sqrt(norms[outcome]));
+
+        return outcome;
     }
 }
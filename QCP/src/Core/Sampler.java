@@ -0,0 +1,130 @@
+package Core;
+
+import Core.Exceptions.NormalizationException;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Draws measurement outcomes from a QRegister without collapsing it.
+ *
+ * The cumulative probabilities of all bases are built once when the Sampler
+ * is constructed, every shot is then a binary search over them. Later
+ * changes to the register are not seen by the Sampler.
+ */
+public class Sampler {
+
+    /**
+     * Running sums of the probabilities of the bases, not normalized.
+     */
+    private double[] cumulative;
+    /**
+     * The squared norm of the register, the last running sum.
+     */
+    private double total;
+    /**
+     * The random number generator used to draw.
+     */
+    private Random rng;
+
+    /**
+     * Constructs a Sampler drawing with the random number generator of the
+     * QRegister class.
+     *
+     * @param Register The QRegister to sample, of at most 30 qubits.
+     * @throws NormalizationException The register has no non-zero amplitude.
+     */
+    public Sampler(QRegister Register) throws NormalizationException {
+        this(Register, QRegister.rng);
+    }
+
+    /**
+     * Constructs a Sampler.
+     *
+     * @param Register The QRegister to sample, of at most 30 qubits.
+     * @param Rng Random number generator to draw with.
+     * @throws NormalizationException The register has no non-zero amplitude.
+     */
+    public Sampler(QRegister Register, Random Rng) throws NormalizationException {
+        this.cumulative = Register.getStateBuffer().cumulativeNorms();
+        this.total = cumulative[cumulative.length - 1];
+        this.rng = Rng;
+
+        if (!(total > 0.0)) {
+            throw new NormalizationException();
+        }
+    }
+
+    /**
+     * Probability of measuring a base.
+     *
+     * @param Base The base |...> to get the probability of.
+     * @return Probability of the base, the register does not need to be
+     * normalized.
+     */
+    public double getProbability(long Base) {
+        int base = (int) Base;
+        double below = (base == 0) ? 0.0 : cumulative[base - 1];
+
+        return (cumulative[base] - below) / total;
+    }
+
+    /**
+     * Draws one outcome.
+     *
+     * @return The base measured.
+     */
+    public long draw() {
+        double psi = rng.nextDouble() * total;
+
+        //First base whose running sum exceeds psi, bases with zero probability are never chosen
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (cumulative[middle] > psi) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Draws a number of outcomes.
+     *
+     * @param Shots Number of outcomes to draw.
+     * @return Histogram from the bases measured to the number of times they
+     * were measured, in order of the bases.
+     */
+    public Map<Long, Integer> sample(int Shots) {
+        return sample(Shots, 0, 62);
+    }
+
+    /**
+     * Draws a number of outcomes of a range of adjacent qubits, the other
+     * qubits are ignored.
+     *
+     * @param Shots Number of outcomes to draw.
+     * @param Start The first qubit measured |0010(end)10...01(start)01>
+     * @param End The last qubit measured.
+     * @return Histogram from the values of the qubits to the number of times
+     * they were measured, in order of the values.
+     */
+    public Map<Long, Integer> sample(int Shots, int Start, int End) {
+        long mask = (End - Start >= 62) ? -1L : (1L << (End - Start + 1)) - 1;
+        Map<Long, Integer> out = new TreeMap<Long, Integer>();
+
+        for (int shot = 0; shot < Shots; shot++) {
+            Long value = (draw() >>> Start) & mask;
+            Integer count = out.get(value);
+
+            out.put(value, (count == null) ? 1 : count + 1);
+        }
+
+        return out;
+    }
+}
@@ -2,6 +2,7 @@ package Examples;
 
 import Algorithms.Shor.ShorAlgorithm;
 import Algorithms.Shor.ShorOutput;
+import Core.Exceptions.BitOutOfBoundsException;
 import Core.Exceptions.NegativeIndexException;
 import Core.Exceptions.NormalizationException;
 import Core.Exceptions.VectorLengthException;
@@ -12,7 +13,7 @@ import Core.Exceptions.VectorLengthException;
  */
 public class ShorExample {
     
-    public static void main(String[] args) throws Exception, NormalizationException, VectorLengthException, NegativeIndexException {
+    public static void main(String[] args) throws BitOutOfBoundsException, Exception, NormalizationException, VectorLengthException, NegativeIndexException {
        //Number to be factored.
        int number = 15;
        System.out.println("The number being factored is "+number);
@@ -0,0 +1,67 @@
+package Operators.CCNot;
+
+import Core.Exceptions.BitOutOfBoundsException;
+import Core.InPlaceOperator;
+import Core.QRegister;
+
+/**
+ * Bit manipulation implementation of CCNot.
+ *
+ * The target bit is inverted by swapping the amplitudes of every pair of bases
+ * that differ only in the target bit and have both control bits set, in one
+ * pass over the register instead of the nine gates of the composite.
+ */
+public class CCNotBitOperator extends CCNotOperator implements InPlaceOperator {
+
+    /**
+     * Constructs a CCNotBitOperator with two control bits and one target bit.
+     *
+     * @param C1Bit The first control bit in the QRegister.
+     * @param C2Bit The second control bit in the QRegister.
+     * @param Target The target bit in the QRegister.
+     * @throws BitOutOfBoundsException
+     */
+    public CCNotBitOperator(int C1Bit, int C2Bit, int Target) throws BitOutOfBoundsException {
+        super(C1Bit, C2Bit, Target);
+
+        if (c1bit < 0 || c2bit < 0 || target < 0) {
+            throw new BitOutOfBoundsException();
+        }
+    }
+
+    /**
+     * Applies the CCNotOperator to the given register.
+     *
+     * @param Register The QRegister object to be transformed.
+     * @return The transformed QRegister object.
+     * @throws BitOutOfBoundsException
+     */
+    public QRegister apply(QRegister Register) throws BitOutOfBoundsException {
+        //Transform a copy so the given register is left unchanged
+        QRegister temp = Register.copy();
+
+        this.applyInPlace(temp);
+
+        return temp;
+    }
+
+    /**
+     * Applies the CCNotOperator to the given register, the amplitudes of the
+     * register are overwritten.
+     *
+     * @param Register The QRegister object to be transformed.
+     * @throws BitOutOfBoundsException
+     */
+    public void applyInPlace(QRegister Register) throws BitOutOfBoundsException {
+        //Check size constraint
+        if (Register.getBitCount() <= Math.max(target, Math.max(c1bit, c2bit))) {
+            throw new BitOutOfBoundsException();
+        }
+
+        long controls = (1L << c1bit) | (1L << c2bit);
+        long targetShifted = 1L << target;
+
+        //if both control bits are 1, swap target bit with XOR, each pair is visited once where the target bit is 0
+        Register.getStateBuffer().swapWhere(controls | targetShifted, controls, targetShifted);
+    }
+}
@@ -1,36 +1,34 @@
 package Operators.CCNot;
 
 import Core.Exceptions.BitOutOfBoundsException;
+import Core.InPlaceOperator;
 import Core.QRegister;
 import Operators.CNot.CNotCompositeOperator;
-import Operators.CNot.CNotOperator;
 import Operators.CV.CVBitOperator;
-import Operators.CV.CVOperator;
 import Operators.Hadamard.HadamardBitOperator;
-import Operators.Hadamard.HadamardOperator;
 
 /**
  * This class implements the CCNotOperator as a composite of a universal set of
  * operators.
  */
-public class CCNotCompositeOperator extends CCNotOperator {
+public class CCNotCompositeOperator extends CCNotOperator implements InPlaceOperator {
 
     /**
      * Buffered hadamard operator
      */
-    HadamardOperator hadamard;
+    HadamardBitOperator hadamard;
     /**
      * Buffered controlled-V operator 1
      */
-    CVOperator cv;
+    CVBitOperator cv;
     /**
      * Buffered controlled-V operator 2
      */
-    CVOperator cvs;
+    CVBitOperator cvs;
     /**
      * Buffered CNotCompositeOperator
      */
-    CNotOperator cnot;
+    CNotCompositeOperator cnot;
 
     /**
      * Constructs a CCNotCompositeOperator with two control bits and one target bit.
@@ -58,28 +56,46 @@ public class CCNotCompositeOperator extends CCNotOperator {
      * @return
      * @throws BitOutOfBoundsException
      */
-    public QRegister apply(QRegister Register) throws Throwable {
+    public QRegister apply(QRegister Register) throws BitOutOfBoundsException {
+        //Transform a copy so the given register is left unchanged
+        QRegister temp = Register.copy();
+
+        this.applyInPlace(temp);
+
+        return temp;
+    }
+
+    /**
+     * Applies the CCNotOperator to the given register, the amplitudes of the
+     * register are overwritten.
+     * 
+     * Uses a composite of hadamard, c-V and CNot operators.
+     * 
+     * @param Register
+     * @throws BitOutOfBoundsException
+     */
+    public void applyInPlace(QRegister Register) throws BitOutOfBoundsException {
         //Apply initial hadamard
-        QRegister temp = hadamard.apply(Register);
+        hadamard.applyInPlace(Register);
 
         //Apply first cV gate
-        temp = cv.apply(temp);
+        cv.applyInPlace(Register);
 
         //Apply first cnot to controls
-        temp = cnot.apply(temp);
+        cnot.applyInPlace(Register);
 
         //Apply V-dagger (3 sequential cV gates)
-        temp = cv.apply(temp);
-        temp = cv.apply(temp);
-        temp = cv.apply(temp);
+        cv.applyInPlace(Register);
+        cv.applyInPlace(Register);
+        cv.applyInPlace(Register);
 
         //Apply second cnot to controls
-        temp = cnot.apply(temp);
+        cnot.applyInPlace(Register);
 
         //Apply last cV
-        temp = cvs.apply(temp);
+        cvs.applyInPlace(Register);
 
         //Apply final hadamard
-        return hadamard.apply(temp);
+        hadamard.applyInPlace(Register);
     }
 }
@@ -1,25 +1,24 @@
 package Operators.CNot;
 
 import Core.Exceptions.BitOutOfBoundsException;
+import Core.InPlaceOperator;
 import Core.QRegister;
 import Operators.CV.CVBitOperator;
-import Operators.CV.CVOperator;
 import Operators.Hadamard.HadamardBitOperator;
-import Operators.Hadamard.HadamardOperator;
 
 /**
  * A CNotOperator implementation using a universal set.
  */
-public class CNotCompositeOperator extends CNotOperator {
+public class CNotCompositeOperator extends CNotOperator implements InPlaceOperator {
 
     /**
      * Buffered Hadamard operator
      */
-    private HadamardOperator hadamard;
+    private HadamardBitOperator hadamard;
     /**
      * Buffered controlled-V operator
      */
-    private CVOperator v;
+    private CVBitOperator v;
 
     /**
      * Constructs a CNotCompositeOperator with one control and one target bit.
@@ -45,15 +44,31 @@ public class CNotCompositeOperator extends CNotOperator {
      * @return
      * @throws BitOutOfBoundsException
      */
-    public QRegister apply(QRegister Register) throws Throwable {
+    public QRegister apply(QRegister Register) throws BitOutOfBoundsException {
+        //Transform a copy so the given register is left unchanged
+        QRegister temp = Register.copy();
+
+        this.applyInPlace(temp);
+
+        return temp;
+    }
+
+    /**
+     * Applies the operator to the given register by applying buffered operators
+     * in sequence, the amplitudes of the register are overwritten.
+     * 
+     * @param Register
+     * @throws BitOutOfBoundsException
+     */
+    public void applyInPlace(QRegister Register) throws BitOutOfBoundsException {
         //Apply first Hadamard operator
-        QRegister temp = hadamard.apply(Register);
+        hadamard.applyInPlace(Register);
 
         //Apply cV operator twice
-        temp = v.apply(temp);
-        temp = v.apply(temp);
+        v.applyInPlace(Register);
+        v.applyInPlace(Register);
 
         //Apply final hadamard
-        return hadamard.apply(temp);
+        hadamard.applyInPlace(Register);
     }
 }
@@ -1,18 +1,17 @@
 package Operators.CNot;
 
 import Core.Exceptions.BitOutOfBoundsException;
-import Core.Math.Complex;
-import Core.Math.DenseMatrix;
 import Core.Math.Matrix;
+import Core.Math.PermutationMatrix;
 import Core.QRegister;
 
 /**
  * Matrix multiplication implementation of the CNot gate. This implementation is
- * very inefficient but not too complicated. The inefficiency is mainly because
- * of the swapping, if target and control qubits are non-adjacent. The swap
- * 4-by-4 matrix is only used within this method, and not in a separate operator
- * class, as matrix multiplication swapping is fairly inefficient and is just
- * used in this example class.
+ * not too complicated. If target and control qubits are non-adjacent they are
+ * swapped together first. The swap 4-by-4 matrix is only used within this
+ * method, and not in a separate operator class. All matrices are permutation
+ * and identity matrices, so their products and tensor products stay
+ * permutations of the basis states and cost O(2^n).
  */
 public class CNotMatrixOperator extends CNotOperator {
 
@@ -46,18 +45,10 @@ public class CNotMatrixOperator extends CNotOperator {
             } catch (Exception ex) {
             }
         }
-        //Creating CNOT matrix
-        cnot = (Matrix) DenseMatrix.identityMatrix(4);
-        cnot.setElement(2, 2, new Complex(0, 0));
-        cnot.setElement(3, 3, new Complex(0, 0));
-        cnot.setElement(2, 3, new Complex(1, 0));
-        cnot.setElement(3, 2, new Complex(1, 0));
-        //Creating SWAP matrix
-        swap = (Matrix) DenseMatrix.identityMatrix(4);
-        swap.setElement(1, 1, new Complex(0, 0));
-        swap.setElement(1, 2, new Complex(1, 0));
-        swap.setElement(2, 1, new Complex(1, 0));
-        swap.setElement(2, 2, new Complex(0, 0));
+        //Creating CNOT matrix, swapping the states 2 and 3
+        cnot = new PermutationMatrix(new int[]{0, 1, 3, 2});
+        //Creating SWAP matrix, swapping the states 1 and 2
+        swap = new PermutationMatrix(new int[]{0, 2, 1, 3});
         this.control = control;
         this.target = target;
     }
@@ -107,8 +98,8 @@ public class CNotMatrixOperator extends CNotOperator {
         } else {
             x = control;
         }
-        Matrix upper = DenseMatrix.identityMatrix(1 << (n - 1 - x));
-        Matrix lower = DenseMatrix.identityMatrix(1 << (x - 1));
+        Matrix upper = Matrix.identityMatrix(1 << (n - 1 - x));
+        Matrix lower = Matrix.identityMatrix(1 << (x - 1));
         return (upper.tensorProduct(cnot)).tensorProduct(lower);
     }
 
@@ -121,7 +112,7 @@ public class CNotMatrixOperator extends CNotOperator {
         Matrix upper;
         Matrix lower;
         Matrix swapOne;
-        Matrix shiftMatrix = DenseMatrix.identityMatrix(1 << n);
+        Matrix shiftMatrix = Matrix.identityMatrix(1 << n);
         int j;
         int k;
         if (control < target) {
@@ -134,8 +125,8 @@ public class CNotMatrixOperator extends CNotOperator {
 
         for (int i = j; i <= k; i++) {
             //System.out.println(i);
-            upper = DenseMatrix.identityMatrix(1 << (n - 2 - i));
-            lower = DenseMatrix.identityMatrix(1 << i);
+            upper = Matrix.identityMatrix(1 << (n - 2 - i));
+            lower = Matrix.identityMatrix(1 << i);
             swapOne = ((upper).tensorProduct(swap)).tensorProduct(lower);
             shiftMatrix = swapOne.multiply(shiftMatrix);
         }
@@ -153,7 +144,7 @@ public class CNotMatrixOperator extends CNotOperator {
         Matrix upper;
         Matrix lower;
         Matrix swapOne;
-        Matrix shiftMatrix = DenseMatrix.identityMatrix((int) Math.pow(2, n));
+        Matrix shiftMatrix = Matrix.identityMatrix((int) Math.pow(2, n));
         int j;
         int k;
         if (control < target) {
@@ -165,8 +156,8 @@ public class CNotMatrixOperator extends CNotOperator {
         }
         for (int i = j; i >= k; i--) {
             //System.out.println(i);
-            upper = DenseMatrix.identityMatrix(1 << n - 2 - i);
-            lower = DenseMatrix.identityMatrix(1 << i);
+            upper = Matrix.identityMatrix(1 << n - 2 - i);
+            lower = Matrix.identityMatrix(1 << i);
             swapOne = ((upper).tensorProduct(swap)).tensorProduct(lower);
             shiftMatrix = swapOne.multiply(shiftMatrix);
         }
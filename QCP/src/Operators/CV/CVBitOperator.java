@@ -1,14 +1,13 @@
 package Operators.CV;
 
 import Core.Exceptions.BitOutOfBoundsException;
-import Core.Math.Complex;
-import Core.Math.ComplexVector;
+import Core.InPlaceOperator;
 import Core.QRegister;
 
 /**
  * Bit manipulation implementation of CV gate.
  */
-public class CVBitOperator extends CVOperator {
+public class CVBitOperator extends CVOperator implements InPlaceOperator {
 
     /**
      * Constructs a bit manipulation implementation of a controlled-V operator.
@@ -28,6 +27,23 @@ public class CVBitOperator extends CVOperator {
      * @throws BitOutOfBoundsException
      */
     public QRegister apply(QRegister Register) throws BitOutOfBoundsException {
+        //Transform a copy so the given register is left unchanged
+        QRegister termin = Register.copy();
+
+        this.applyInPlace(termin);
+
+        //Return transformed register
+        return termin;
+    }
+
+    /**
+     * Applies the controlled-V operator to the given register, the amplitudes
+     * of the register are overwritten.
+     *
+     * @param Register Register to be transformed.
+     * @throws BitOutOfBoundsException
+     */
+    public void applyInPlace(QRegister Register) throws BitOutOfBoundsException {
         //Check size constraint
         if (Register.getBitCount() <= this.control && this.control >= 0) {
             throw new BitOutOfBoundsException();
@@ -36,33 +52,10 @@ public class CVBitOperator extends CVOperator {
             throw new BitOutOfBoundsException();
         }
 
-        //Initialize registers
-        ComplexVector initial = Register.getComplexVector();
-        ComplexVector termin = new ComplexVector(Register.getBaseCount());
-
-        //Iterate through basis
-        for (int base = 0; base < Register.getBaseCount(); base++) {
-            //Check if control bit is set
-            int ac = base & (1 << this.control);
-
-            if (ac > 0) {
-                //Check if target is set
-                int at = base & (1 << this.target);
+        //Only bases with both the control and target bit set are changed
+        long mask = (1L << this.control) | (1L << this.target);
 
-                if (at > 0) {
-                    //Apply the imaginary to target
-                    termin.setComponent(initial.getComponent(base).multiply(new Complex(0.0f, 1.0f)), base);
-                } else {
-                    //Amplitude for base is unchanged
-                    termin.setComponent(initial.getComponent(base), base);
-                }
-            } else {
-                //Amplitude for base is unchanged
-                termin.setComponent(initial.getComponent(base), base);
-            }
-        }
-
-        //Return transformed register
-        return new QRegister(Register, termin);
+        //Apply the imaginary to target
+        Register.getStateBuffer().multiplyWhereSet(mask, 0.0f, 1.0f);
     }
-}
\ No newline at end of file
+}
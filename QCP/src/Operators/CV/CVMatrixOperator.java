@@ -4,6 +4,7 @@ import Core.Exceptions.BitOutOfBoundsException;
 import Core.Math.Complex;
 import Core.Math.ComplexVector;
 import Core.Math.DenseMatrix;
+import Core.Math.KroneckerMatrix;
 import Core.Math.Matrix;
 import Core.QRegister;
 import Operators.Swap.SwapBitOperator;
@@ -62,9 +63,8 @@ public class CVMatrixOperator extends CVOperator {
             Register = swapTarget.apply(Register);
         }
 
-        //Apply gate
-        Matrix transform = Matrix.identityMatrix(1 << (Register.getBitCount() - 2));
-        transform = transform.tensorProduct(cv);
+        //Apply gate, I x CV without storing it
+        Matrix transform = new KroneckerMatrix(1 << (Register.getBitCount() - 2), cv, 1);
 
         ComplexVector initial = Register.getComplexVector();
         ComplexVector termin = transform.multiply(initial);
@@ -0,0 +1,172 @@
+package Operators.Controlled;
+
+import Core.Exceptions.BitOutOfBoundsException;
+import Core.InPlaceOperator;
+import Core.Math.StateBuffer;
+import Core.Operator;
+import Core.QRegister;
+import Operators.CompositeOperator;
+import Operators.Unitary.UnitaryBitOperator;
+
+/**
+ * A ControlledOperator applies a gate only to the bases in which a set of
+ * control qubits are one, and a set of negative control qubits are zero.
+ *
+ * The controls are kept as a mask and the value the masked bits must have, so
+ * a gate with k controls only visits the 2^(n-k) amplitudes of the subspace
+ * matching them. A single qubit target is applied by the masked kernels of the
+ * StateBuffer. Any other target is applied to a register holding only that
+ * subspace, in which the control qubits are left out and the qubits above them
+ * move down.
+ */
+public class ControlledOperator implements InPlaceOperator {
+
+    /**
+     * Bits of all control qubits.
+     */
+    private long controlMask;
+    /**
+     * Required values of the control bits, clear for negative controls.
+     */
+    private long controlValue;
+    /**
+     * The gate applied to a single qubit, or null.
+     */
+    private UnitaryBitOperator unitary;
+    /**
+     * The gate applied to the subspace, or null.
+     */
+    private InPlaceOperator target;
+
+    /**
+     * Constructs a single qubit gate controlled by a set of qubits.
+     *
+     * @param Controls Qubits that have to be one.
+     * @param Target The gate to apply.
+     * @throws BitOutOfBoundsException
+     */
+    public ControlledOperator(int[] Controls, UnitaryBitOperator Target) throws BitOutOfBoundsException {
+        this(Controls, new int[0], Target);
+    }
+
+    /**
+     * Constructs a single qubit gate controlled by a set of qubits, some of
+     * them negatively.
+     *
+     * @param Controls Qubits that have to be one.
+     * @param NegativeControls Qubits that have to be zero.
+     * @param Target The gate to apply.
+     * @throws BitOutOfBoundsException
+     */
+    public ControlledOperator(int[] Controls, int[] NegativeControls, UnitaryBitOperator Target) throws BitOutOfBoundsException {
+        this(Controls, NegativeControls, (InPlaceOperator) Target);
+
+        if ((controlMask & (1L << Target.getBit())) != 0) {
+            throw new IllegalArgumentException("The target qubit cannot be a control qubit");
+        }
+
+        this.unitary = Target;
+        this.target = null;
+    }
+
+    /**
+     * Constructs any gate controlled by a set of qubits, some of them
+     * negatively. The gate acts on the register without the control qubits.
+     *
+     * @param Controls Qubits that have to be one.
+     * @param NegativeControls Qubits that have to be zero.
+     * @param Target The gate to apply to the subspace.
+     * @throws BitOutOfBoundsException
+     */
+    public ControlledOperator(int[] Controls, int[] NegativeControls, InPlaceOperator Target) throws BitOutOfBoundsException {
+        for (int control : Controls) {
+            addControl(control);
+            this.controlValue |= 1L << control;
+        }
+        for (int control : NegativeControls) {
+            addControl(control);
+        }
+
+        this.target = Target;
+    }
+
+    /**
+     * Adds a qubit to the control mask.
+     */
+    private void addControl(int Control) throws BitOutOfBoundsException {
+        if (Control < 0 || Control > 62) {
+            throw new BitOutOfBoundsException();
+        }
+        if ((controlMask & (1L << Control)) != 0) {
+            throw new IllegalArgumentException("Qubit " + Control + " is controlled on twice");
+        }
+
+        this.controlMask |= 1L << Control;
+    }
+
+    /**
+     * Applies the ControlledOperator to the given register.
+     *
+     * @param Register Register to be transformed.
+     * @return Transformed register.
+     * @throws Throwable
+     */
+    public QRegister apply(QRegister Register) throws Throwable {
+        //Transform a copy so the given register is left unchanged
+        QRegister termin = Register.copy();
+
+        this.applyInPlace(termin);
+
+        //Return transformed register
+        return termin;
+    }
+
+    /**
+     * Applies the ControlledOperator to the given register, the amplitudes of
+     * the register are overwritten.
+     *
+     * @param Register Register to be transformed.
+     * @throws Throwable
+     */
+    public void applyInPlace(QRegister Register) throws Throwable {
+        //Check size constraint
+        if ((controlMask >>> Register.getBitCount()) != 0) {
+            throw new BitOutOfBoundsException();
+        }
+
+        if (unitary != null) {
+            unitary.applyControlledInPlace(Register, controlMask, controlValue);
+            return;
+        }
+
+        //Gather the subspace matching the controls into its own register
+        StateBuffer buffer = Register.getStateBuffer();
+        long free = (Register.getBaseCount() - 1) & ~controlMask;
+        StateBuffer part = buffer.create(Register.getBaseCount() >> Long.bitCount(controlMask));
+        for (long j = 0; j < part.length(); j++) {
+            long i = StateBuffer.expandBits(j, free) | controlValue;
+            part.set(j, buffer.getReal(i), buffer.getImaginary(i));
+        }
+
+        QRegister subspace = new QRegister(part);
+        target.applyInPlace(subspace);
+
+        //Scatter it back
+        part = subspace.getStateBuffer();
+        for (long j = 0; j < part.length(); j++) {
+            long i = StateBuffer.expandBits(j, free) | controlValue;
+            buffer.set(i, part.getReal(j), part.getImaginary(j));
+        }
+    }
+
+    /**
+     * Applies the ControlledOperator to another operator through a
+     * CompositeOperator.
+     *
+     * @param Op The Operator that is being applied to.
+     * @return Returns a new CompositeOperator.
+     */
+    public Operator apply(Operator Op) {
+        return new CompositeOperator(this, Op);
+    }
+}
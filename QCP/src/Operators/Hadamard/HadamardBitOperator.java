@@ -1,20 +1,20 @@
 package Operators.Hadamard;
 
 import Core.Exceptions.BitOutOfBoundsException;
-import Core.Math.Complex;
-import Core.Math.ComplexVector;
+import Core.InPlaceOperator;
 import Core.QRegister;
+import Operators.Unitary.UnitaryBitOperator;
 
 /**
  * Class representing the Hadamard acting on a certain qubit using the bit
  * manipulation method
  */
-public class HadamardBitOperator extends HadamardOperator {
+public class HadamardBitOperator extends HadamardOperator implements InPlaceOperator {
 
     /**
-     * Buffered binary representation of the shift
+     * The Hadamard matrix applied by the general single qubit kernel
      */
-    private int shift;
+    private UnitaryBitOperator gate;
 
     /**
      * Constructor creating the Hadamard acting on a certain Qubit
@@ -24,8 +24,8 @@ public class HadamardBitOperator extends HadamardOperator {
     public HadamardBitOperator(int Bit) {
         super(Bit);
 
-        //Getting the shifted value of used in the bit twiddling formula by shifiting 1  by bitacting on bits to the left
-        this.shift = 1 << Bit;
+        //The matrix is real, so the real pair transform is used
+        this.gate = UnitaryBitOperator.hadamard(Bit);
     }
 
     /**
@@ -35,36 +35,29 @@ public class HadamardBitOperator extends HadamardOperator {
      * @return Qregister after it has been acted on by the gate
      */
     public QRegister apply(QRegister Register) throws BitOutOfBoundsException {
-        //Check for size constraint
-        if (Register.getBitCount() <= this.bit && this.bit >= 0) {
-            throw new BitOutOfBoundsException();
-        }
+        //Transform a copy so the given register is left unchanged
+        QRegister termin = Register.copy();
 
-        //Declare registers
-        ComplexVector initial = Register.getComplexVector();
-        ComplexVector termin = new ComplexVector(Register.getBaseCount());
+        this.applyInPlace(termin);
 
-        //MOVE: Buffer Hadamard values
-        Complex onesqrt = new Complex(1.0f / (float) Math.sqrt(2), 0.0f);
-        Complex negsqrt = new Complex(-1.0f / (float) Math.sqrt(2), 0.0f);
-
-        //Iterate basis
-        for (int base = 0; base < Register.getBaseCount(); base++) {
-            //Conjugate basis according to Hadamard
-            int l = base ^ shift;
+        //Return transformed register
+        return termin;
+    }
 
-            //Set amplitudes according to Hadamard
-            if (base < l) {
-                termin.setComponent(termin.getComponent(base).add(initial.getComponent(base).multiply(onesqrt)), base);
-                termin.setComponent(termin.getComponent(l).add(initial.getComponent(base).multiply(onesqrt)), l);
-            } else //base >= l
-            {
-                termin.setComponent(termin.getComponent(base).add(initial.getComponent(base).multiply(negsqrt)), base);
-                termin.setComponent(termin.getComponent(l).add(initial.getComponent(base).multiply(onesqrt)), l);
-            }
+    /**
+     * Method to act with the gate on a certain qubit in a Qregister, the
+     * amplitudes of the Qregister are overwritten.
+     *
+     * @param Register Qregister being acted on
+     * @throws BitOutOfBoundsException
+     */
+    public void applyInPlace(QRegister Register) throws BitOutOfBoundsException {
+        //Check for size constraint
+        if (Register.getBitCount() <= this.bit && this.bit >= 0) {
+            throw new BitOutOfBoundsException();
         }
 
-        //Return transformed register
-        return new QRegister(termin);
+        //Set amplitudes of every pair of conjugate bases according to Hadamard
+        this.gate.applyInPlace(Register);
     }
 }
@@ -4,6 +4,7 @@ import Core.Exceptions.BitOutOfBoundsException;
 import Core.Math.Complex;
 import Core.Math.ComplexVector;
 import Core.Math.DenseMatrix;
+import Core.Math.KroneckerMatrix;
 import Core.Math.Matrix;
 import Core.QRegister;
 
@@ -26,11 +27,6 @@ public class HadamardMatrixOperator extends HadamardOperator {
      */
     public HadamardMatrixOperator(int Bit) throws BitOutOfBoundsException {
         super(Bit);
-
-        if (Bit > 0) {
-            Matrix identity = Matrix.identityMatrix(1 << Bit);
-            hadamard = hadamard.tensorProduct(identity);
-        }
     }
 
     /**
@@ -45,9 +41,8 @@ public class HadamardMatrixOperator extends HadamardOperator {
             throw new BitOutOfBoundsException();
         }
 
-        //Generate Hadamard transform for specific register
-        Matrix transform = Matrix.identityMatrix(1 << (Register.getBitCount() - 1 - bit));
-        transform = transform.tensorProduct(hadamard);
+        //Generate Hadamard transform for specific register, I x H x I without storing it
+        Matrix transform = new KroneckerMatrix(1 << (Register.getBitCount() - 1 - bit), hadamard, 1 << bit);
 
         ComplexVector initial = Register.getComplexVector();
         ComplexVector termin = transform.multiply(initial);
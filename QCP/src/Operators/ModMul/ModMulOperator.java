@@ -0,0 +1,195 @@
+package Operators.ModMul;
+
+import Core.Exceptions.BitOutOfBoundsException;
+import Core.InPlaceOperator;
+import Core.Math.Modulo;
+import Core.Math.TableCache;
+import Core.Operator;
+import Core.QRegister;
+import Operators.CompositeOperator;
+import java.math.BigInteger;
+
+/**
+ * Gate that multiplies the value y of a range of qubits by a modulo N, |y&gt;
+ * -&gt; |a*y mod N&gt;, where a control qubit is set.
+ *
+ * For a coprime to N this is a permutation of the values below N, values of
+ * N and above are left unchanged. It is applied in place in O(2^n) with a
+ * table of a*y mod N for all y, which is computed once per (a, N) and shared
+ * by all operators. Chained for the powers a^(2^k), controlled by the qubits
+ * of a first register, these gates give |x&gt;|y&gt; -&gt; |x&gt;|a^x*y mod
+ * N&gt; as in Shor's algorithm.
+ */
+public class ModMulOperator implements InPlaceOperator {
+
+    /**
+     * Total number of ints kept in the cache, 256 MB. A table holds N ints
+     * and Shor's algorithm multiplies by a^(2^k) for L of about 2 * log2(N)
+     * values of k, so the gates of a run and its retries share their tables
+     * for N up to about 2^21.
+     */
+    private static final long CACHED_INTS = 1L << 26;
+    /**
+     * The cached tables by (a, N).
+     */
+    private static final TableCache tables = new TableCache(CACHED_INTS);
+    /**
+     * The control qubit, or -1 if the gate is not controlled.
+     */
+    private int control;
+    /**
+     * The lowest qubit and the number of qubits of the value y.
+     */
+    private int start, bits;
+    /**
+     * The multiplier a and the modulus N.
+     */
+    private long multiplier;
+    private int modulus;
+    /**
+     * a*y mod N for every y below N.
+     */
+    private int[] table;
+
+    /**
+     * Constructs the gate multiplying the value of a range of qubits by a
+     * modulo N, controlled by a qubit.
+     *
+     * @param Control the control qubit, outside the range, or -1 for none
+     * @param Start the lowest qubit of the value
+     * @param Bits the number of qubits of the value, 2^Bits at least N
+     * @param Multiplier a, coprime to N
+     * @param Modulus N
+     * @throws BitOutOfBoundsException if the control qubit is below -1 or
+     * above the 63 qubits a register can have
+     */
+    public ModMulOperator(int Control, int Start, int Bits, long Multiplier, int Modulus) throws BitOutOfBoundsException {
+        if (Control < -1 || Control > 62) {
+            throw new BitOutOfBoundsException("No control qubit " + Control);
+        }
+        if (Modulus <= 0 || Bits < 0 || Bits > 30 || Modulus > (1L << Bits) || Start < 0 || Start + Bits > 62) {
+            throw new IllegalArgumentException("N does not fit in the qubits of the value");
+        }
+        if (Control >= Start && Control < Start + Bits) {
+            throw new IllegalArgumentException("The control qubit is one of the qubits of the value");
+        }
+        if (Multiplier < 0 || !BigInteger.valueOf(Multiplier).gcd(BigInteger.valueOf(Modulus)).equals(BigInteger.ONE)) {
+            throw new IllegalArgumentException("Multiplying by " + Multiplier + " modulo " + Modulus + " is not a permutation");
+        }
+
+        control = Control;
+        start = Start;
+        bits = Bits;
+        multiplier = Multiplier % Modulus;
+        modulus = Modulus;
+        table = table(multiplier, modulus);
+    }
+
+    /**
+     * Constructs the gate multiplying the value of a range of qubits by a
+     * modulo N, without control.
+     *
+     * @param Start the lowest qubit of the value
+     * @param Bits the number of qubits of the value, 2^Bits at least N
+     * @param Multiplier a, coprime to N
+     * @param Modulus N
+     * @throws BitOutOfBoundsException never, there is no control qubit
+     */
+    public ModMulOperator(int Start, int Bits, long Multiplier, int Modulus) throws BitOutOfBoundsException {
+        this(-1, Start, Bits, Multiplier, Modulus);
+    }
+
+    /**
+     * Returns the gates multiplying by a^(2^k) modulo N for k from 0 up,
+     * gate k controlled by <var>Controls</var>[k]. The powers are found by
+     * repeated squaring.
+     *
+     * @param Controls the control qubit of every gate
+     * @param Start the lowest qubit of the value
+     * @param Bits the number of qubits of the value, 2^Bits at least N
+     * @param Multiplier a, coprime to N
+     * @param Modulus N
+     * @return one gate per control qubit
+     * @throws BitOutOfBoundsException if a control qubit is out of range
+     */
+    public static ModMulOperator[] powers(int[] Controls, int Start, int Bits, long Multiplier, int Modulus)
+            throws BitOutOfBoundsException {
+        ModMulOperator[] out = new ModMulOperator[Controls.length];
+        long power = Multiplier % Modulus;
+        for (int k = 0; k < Controls.length; k++) {
+            out[k] = new ModMulOperator(Controls[k], Start, Bits, power, Modulus);
+            power = Modulo.multiply(power, power, Modulus);
+        }
+        return out;
+    }
+
+    /**
+     * Returns the cached table of a*y mod N for every y below N, computing it
+     * if it is not cached.
+     */
+    private static int[] table(final long a, final int n) {
+        return tables.get(a + " " + n, new TableCache.Computation() {
+            public int[] compute() {
+                int[] table = new int[n];
+                for (int y = 0; y < n; y++) {
+                    table[y] = (int) Modulo.multiply(a, y, n);
+                }
+                return table;
+            }
+        });
+    }
+
+    /**
+     * Returns the multiplier a.
+     *
+     * @return a
+     */
+    public long getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Applies the gate to a copy of a QRegister.
+     *
+     * @param Register QRegister the gate is applied to
+     * @return Transformed QRegister
+     * @throws BitOutOfBoundsException
+     */
+    public QRegister apply(QRegister Register) throws BitOutOfBoundsException {
+        //Transform a copy so the given register is left unchanged
+        QRegister out = Register.copy();
+
+        this.applyInPlace(out);
+
+        return out;
+    }
+
+    /**
+     * Applies the gate to a QRegister, the amplitudes of the QRegister are
+     * overwritten. The values of the range are permuted by the table where
+     * the control qubit is set.
+     *
+     * @param Register QRegister the gate is applied to
+     * @throws BitOutOfBoundsException
+     */
+    public void applyInPlace(QRegister Register) throws BitOutOfBoundsException {
+        //Size check
+        if (Register.getBitCount() < start + bits || Register.getBitCount() <= control) {
+            throw new BitOutOfBoundsException();
+        }
+
+        long field = ((1L << bits) - 1) << start;
+        long mask = (control < 0) ? 0L : 1L << control;
+        Register.getStateBuffer().permuteWhere(field, mask, mask, table);
+    }
+
+    /**
+     * Method to apply gate to another gate/system of gates
+     *
+     * @param Op Gate/network this gate is being applied to
+     * @return
+     */
+    public Operator apply(Operator Op) {
+        return new CompositeOperator(this, Op);
+    }
+}
@@ -1,19 +1,19 @@
 package Operators.Phase;
 
 import Core.Exceptions.BitOutOfBoundsException;
-import Core.Math.Complex;
-import Core.Math.ComplexVector;
+import Core.InPlaceOperator;
 import Core.QRegister;
+import Operators.Unitary.UnitaryBitOperator;
 
 /**
  * A PhaseBitOperator is a bit manipulation implementation of PhaseOperator.
  */
-public class PhaseBitOperator extends PhaseOperator {
+public class PhaseBitOperator extends PhaseOperator implements InPlaceOperator {
 
     /**
-     * The shift to apply.
+     * The phase shift matrix applied by the general single qubit kernel.
      */
-    private Complex shift;
+    private UnitaryBitOperator gate;
 
     /**
      * Constructs a PhaseOperator as with a bit manipulation implementation.
@@ -25,8 +25,8 @@ public class PhaseBitOperator extends PhaseOperator {
         //Initialize PhaseOperator with bit location and phase shift
         super(Bit);
 
-        //Generate shift coefficent
-        this.shift = new Complex(Math.cos(Shift), Math.sin(Shift));
+        //The matrix is diagonal with a one on top, so only a multiplication is needed
+        this.gate = UnitaryBitOperator.phase(Bit, Shift);
     }
 
     /**
@@ -36,27 +36,29 @@ public class PhaseBitOperator extends PhaseOperator {
      * @return Returns the transformed QRegister.
      */
     public QRegister apply(QRegister Register) throws BitOutOfBoundsException {
-        //Check for size constraint
-        if (Register.getBitCount() <= this.bit) {
-            throw new BitOutOfBoundsException();
-        }
+        //Transform a copy so the given register is left unchanged
+        QRegister termin = Register.copy();
 
-        //Generate new ComplexVector
-        ComplexVector initial = Register.getComplexVector();
-        ComplexVector termin = new ComplexVector(Register.getBaseCount());
+        this.applyInPlace(termin);
 
-        for (int base = 0; base < Register.getBaseCount(); base++) {
-            int a = (1 << this.bit) & base;
+        //Return new QRegister
+        return termin;
+    }
 
-            if (a > 0) {
-                termin.setComponent(initial.getComponent(base).multiply(this.shift), base);
-            } else {
-                //Amplitude for base is unchanged
-                termin.setComponent(initial.getComponent(base), base);
-            }
+    /**
+     * Applies the PhaseOperator to the given Register with a bit manipulation,
+     * the amplitudes of the Register are overwritten.
+     *
+     * @param Register The QRegister to which the Operator will be applied.
+     * @throws BitOutOfBoundsException
+     */
+    public void applyInPlace(QRegister Register) throws BitOutOfBoundsException {
+        //Check for size constraint
+        if (Register.getBitCount() <= this.bit) {
+            throw new BitOutOfBoundsException();
         }
 
-        //Return new QRegister
-        return new QRegister(Register, termin);
+        //Only the bases in which the bit is set are changed
+        this.gate.applyInPlace(Register);
     }
 }
@@ -1,9 +1,9 @@
 package Operators.Phase;
 
 import Core.Exceptions.BitOutOfBoundsException;
-import Core.Math.Complex;
 import Core.Math.ComplexVector;
-import Core.Math.DenseMatrix;
+import Core.Math.DiagonalMatrix;
+import Core.Math.KroneckerMatrix;
 import Core.Math.Matrix;
 import Core.QRegister;
 
@@ -15,7 +15,7 @@ public class PhaseMatrixOperator extends PhaseOperator {
     /**
      * The two-by-two phase shift matrix
      */
-    private DenseMatrix matrix;
+    private DiagonalMatrix matrix;
 
     /**
      * Constructs a PhaseOperator as with a Matrix implementation.
@@ -28,9 +28,7 @@ public class PhaseMatrixOperator extends PhaseOperator {
         super(Bit);
 
         //Generate matrix representation of operator for specific phase shift
-        this.matrix = new DenseMatrix(2);
-        this.matrix.setElement(0, 0, new Complex(1.0, 0.0));
-        this.matrix.setElement(1, 1, new Complex(Math.cos(Shift), Math.sin(Shift)));
+        this.matrix = new DiagonalMatrix(new double[]{1.0, Math.cos(Shift)}, new double[]{0.0, Math.sin(Shift)});
     }
 
     /**
@@ -46,30 +44,8 @@ public class PhaseMatrixOperator extends PhaseOperator {
             throw new BitOutOfBoundsException();
         }
 
-        //Generate transform for given Register size.
-        //TODO: Might be faster to do the end cases outside the loop and then not have to check for null...
-        Matrix transform = null;
-
-        for (int bitIdx = Register.getBitCount() - 1; bitIdx >= 0; bitIdx--) {
-            if (bitIdx == this.bit) {
-                //Apply shift for given bitIdx
-                if (transform == null) {
-                    //bitIdx == bit as MSB
-                    transform = this.matrix;
-                } else {
-                    transform = transform.tensorProduct(this.matrix);
-                }
-            } else {
-                //Apply identity for given bitIdx
-                if (transform == null) {
-                    //TODO: SparseMatricies
-                    transform = DenseMatrix.identityMatrix(2);
-                } else {
-                    //TODO: SparseMatricies
-                    transform = transform.tensorProduct(DenseMatrix.identityMatrix(2));
-                }
-            }
-        }
+        //Generate transform for given Register size, I x P x I without storing it
+        Matrix transform = new KroneckerMatrix(1 << (Register.getBitCount() - 1 - this.bit), this.matrix, 1 << this.bit);
 
         //Apply generated matrix to register
         ComplexVector amplitudes = Register.getComplexVector();
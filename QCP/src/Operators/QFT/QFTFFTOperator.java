@@ -0,0 +1,112 @@
+package Operators.QFT;
+
+import Core.Exceptions.BitOutOfBoundsException;
+import Core.InPlaceOperator;
+import Core.Operator;
+import Core.QRegister;
+import Operators.CompositeOperator;
+
+/**
+ * Fast Fourier transform implementation of the quantum Fourier transform on a
+ * range of adjacent qubits of a larger register.
+ *
+ * The amplitudes of the range form a sequence of length 2^L for every value
+ * of the other qubits, which is transformed with an iterative FFT in O(L *
+ * 2^L) using twiddle factors cached per L. Its stages are fused in pairs as
+ * radix-4 steps, a stage left over runs as a radix-2 step. The other qubits
+ * are only strides, so the transform of the range is never built as a matrix
+ * and the whole register costs O(L * 2^n). The result is that of QFTMatrix
+ * on the range, with the lowest qubit of the range as the lowest bit.
+ */
+public class QFTFFTOperator implements InPlaceOperator {
+
+    /**
+     * The lowest and the highest transformed qubit.
+     */
+    private int start, end;
+    /**
+     * Whether this is the inverse transform.
+     */
+    private boolean inverse;
+
+    /**
+     * Constructs the quantum Fourier transform on the adjacent qubits from
+     * <var>Start</var> up to and including <var>End</var>.
+     *
+     * @param Start the lowest qubit
+     * @param End the highest qubit
+     */
+    public QFTFFTOperator(int Start, int End) {
+        this(Start, End, false);
+    }
+
+    /**
+     * Constructs the quantum Fourier transform or its inverse on the adjacent
+     * qubits from <var>Start</var> up to and including <var>End</var>.
+     *
+     * @param Start the lowest qubit
+     * @param End the highest qubit
+     * @param Inverse true for the inverse transform
+     */
+    public QFTFFTOperator(int Start, int End, boolean Inverse) {
+        if (Start < 0 || End < Start || End > 62) {
+            throw new IllegalArgumentException("The qubits of a QFT have to be a range between 0 and 62");
+        }
+
+        start = Start;
+        end = End;
+        inverse = Inverse;
+    }
+
+    /**
+     * Returns the inverse of this transform, on the same qubits.
+     *
+     * @return the inverse transform
+     */
+    public QFTFFTOperator getInverse() {
+        return new QFTFFTOperator(start, end, !inverse);
+    }
+
+    /**
+     * Applies the transform to a copy of a QRegister.
+     *
+     * @param Register QRegister the transform is applied to
+     * @return Transformed QRegister
+     * @throws BitOutOfBoundsException
+     */
+    public QRegister apply(QRegister Register) throws BitOutOfBoundsException {
+        //Transform a copy so the given register is left unchanged
+        QRegister out = Register.copy();
+
+        this.applyInPlace(out);
+
+        return out;
+    }
+
+    /**
+     * Applies the transform to a QRegister, the amplitudes of the QRegister
+     * are overwritten.
+     *
+     * @param Register QRegister the transform is applied to
+     * @throws BitOutOfBoundsException
+     */
+    public void applyInPlace(QRegister Register) throws BitOutOfBoundsException {
+        //Size check
+        if (Register.getBitCount() <= end) {
+            throw new BitOutOfBoundsException();
+        }
+
+        long mask = ((1L << (end - start + 1)) - 1) << start;
+        Register.getStateBuffer().fourierTransform(mask, inverse);
+    }
+
+    /**
+     * Method to apply gate to another gate/system of gates
+     *
+     * @param op Gate/network Quantum Fourier transform is being applied to
+     * @return
+     */
+    public Operator apply(Operator op) {
+        return new CompositeOperator(this, op);
+    }
+}
@@ -1,6 +1,5 @@
 package Operators.QFT;
 
-import Core.Math.Complex;
 import Core.Math.ComplexVector;
 import Core.Math.DenseMatrix;
 import Core.Math.Matrix;
@@ -26,19 +25,18 @@ public class QFTMatrix implements Operator {
      * @throws Exception
      */
     public QFTMatrix(int numberofbits) throws Exception {
-        MatrixSize = (int) Math.pow(2, numberofbits);
+        MatrixSize = 1 << numberofbits;
         QFT = new DenseMatrix(MatrixSize);
         //Finding factor in front of QFT
-        float Scalarfactor = (float) (1.0f / Math.sqrt(MatrixSize));
-        //Calculating value of omega
-        Complex omega = new Complex(2.0 * Math.PI / Math.pow(2, numberofbits));
-        //Iterating through to fill up matrix
+        double Scalarfactor = 1.0 / Math.sqrt(MatrixSize);
+        //Iterating through to fill up matrix with omega^(i*j), the power taken modulo the matrix size
         for (int i = 0; i < MatrixSize; i++) {
             for (int j = 0; j < MatrixSize; j++) {
-                QFT.setElement(i, j, omega.power(i * j));
+                double angle = 2.0 * Math.PI * (((long) i * j) % MatrixSize) / MatrixSize;
+                QFT.set(i, j, Math.cos(angle), Math.sin(angle));
             }
         }
-        QFT = QFT.multiply(Scalarfactor);
+        QFT.scale(Scalarfactor, 0.0);
     }
 
     /**
@@ -0,0 +1,200 @@
+package Operators.QFT;
+
+import Core.Exceptions.BitOutOfBoundsException;
+import Core.InPlaceOperator;
+import Core.Math.StateBuffer;
+import Core.Operator;
+import Core.QRegister;
+import Operators.CompositeOperator;
+
+/**
+ * Gate level implementation of the quantum Fourier transform on a set of
+ * qubits, made of Hadamard gates, controlled phase rotations and a final
+ * reversal of the qubits.
+ *
+ * The qubits are given as a list, the first one being the lowest bit of the
+ * transformed number x, so they do not have to be adjacent. The transform
+ * takes |x&gt; to 1/sqrt(N) sum over y of omega^(x*y) |y&gt;, with omega =
+ * e^(2*pi*i/N) as in QFTMatrix. It is applied in place with L(L+1)/2 gates and
+ * L/2 swaps on L qubits, in O(L^2 * 2^n) time and without any memory beyond
+ * the register.
+ */
+public class QFTOperator implements InPlaceOperator {
+
+    /**
+     * The transformed qubits, lowest bit first.
+     */
+    private int[] bits;
+    /**
+     * Whether this is the inverse transform.
+     */
+    private boolean inverse;
+
+    /**
+     * Constructs the quantum Fourier transform on the adjacent qubits from
+     * <var>Start</var> up to and including <var>End</var>.
+     *
+     * @param Start the lowest qubit
+     * @param End the highest qubit
+     */
+    public QFTOperator(int Start, int End) {
+        this(range(Start, End), false);
+    }
+
+    /**
+     * Constructs the quantum Fourier transform on a list of qubits.
+     *
+     * @param Bits the qubits, lowest bit of the transformed number first
+     */
+    public QFTOperator(int[] Bits) {
+        this(Bits, false);
+    }
+
+    /**
+     * Constructs the quantum Fourier transform or its inverse on a list of
+     * qubits.
+     *
+     * @param Bits the qubits, lowest bit of the transformed number first
+     * @param Inverse true for the inverse transform
+     */
+    public QFTOperator(int[] Bits, boolean Inverse) {
+        long used = 0L;
+        for (int bit : Bits) {
+            if (bit < 0 || bit > 62 || (used & (1L << bit)) != 0) {
+                throw new IllegalArgumentException("The qubits of a QFT have to be distinct and between 0 and 62");
+            }
+            used |= 1L << bit;
+        }
+
+        bits = Bits.clone();
+        inverse = Inverse;
+    }
+
+    /**
+     * Returns the qubits from <var>Start</var> up to and including
+     * <var>End</var>.
+     */
+    private static int[] range(int Start, int End) {
+        if (End < Start) {
+            throw new IllegalArgumentException("The last qubit of a QFT comes before the first");
+        }
+
+        int[] out = new int[End - Start + 1];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = Start + i;
+        }
+        return out;
+    }
+
+    /**
+     * Returns the inverse of this transform, on the same qubits.
+     *
+     * @return the inverse transform
+     */
+    public QFTOperator getInverse() {
+        return new QFTOperator(bits, !inverse);
+    }
+
+    /**
+     * Returns whether this is the inverse transform.
+     *
+     * @return true for the inverse transform
+     */
+    public boolean isInverse() {
+        return inverse;
+    }
+
+    /**
+     * Applies the transform to a copy of a QRegister.
+     *
+     * @param Register QRegister the transform is applied to
+     * @return Transformed QRegister
+     * @throws BitOutOfBoundsException
+     */
+    public QRegister apply(QRegister Register) throws BitOutOfBoundsException {
+        //Transform a copy so the given register is left unchanged
+        QRegister out = Register.copy();
+
+        this.applyInPlace(out);
+
+        return out;
+    }
+
+    /**
+     * Applies the transform to a QRegister, the amplitudes of the QRegister
+     * are overwritten.
+     *
+     * The highest qubit is transformed first, a Hadamard gate followed by
+     * phase rotations of pi/2^(q-k) controlled by every lower qubit k, which
+     * still hold the bits of x. Each qubit q then holds output bit L-1-q, so
+     * the qubits are reversed at the end. The inverse runs the same gates
+     * backwards with the opposite phases.
+     *
+     * @param Register QRegister the transform is applied to
+     * @throws BitOutOfBoundsException
+     */
+    public void applyInPlace(QRegister Register) throws BitOutOfBoundsException {
+        //Size check
+        for (int bit : bits) {
+            if (Register.getBitCount() <= bit) {
+                throw new BitOutOfBoundsException();
+            }
+        }
+
+        StateBuffer buffer = Register.getStateBuffer();
+        if (inverse) {
+            reverse(buffer);
+            for (int q = 0; q < bits.length; q++) {
+                rotate(buffer, q, -1.0);
+                hadamard(buffer, q);
+            }
+        } else {
+            for (int q = bits.length - 1; q >= 0; q--) {
+                hadamard(buffer, q);
+                rotate(buffer, q, 1.0);
+            }
+            reverse(buffer);
+        }
+    }
+
+    /**
+     * Applies a Hadamard gate to the q-th qubit of the transform.
+     */
+    private void hadamard(StateBuffer buffer, int q) {
+        double s = 1.0 / Math.sqrt(2.0);
+        buffer.transformPairs(1L << bits[q], s, s, s, -s);
+    }
+
+    /**
+     * Applies the phase rotations by pi/2^(q-k) to the q-th qubit controlled
+     * by every lower qubit k of the transform, in the direction of
+     * <var>sign</var>.
+     */
+    private void rotate(StateBuffer buffer, int q, double sign) {
+        for (int k = 0; k < q; k++) {
+            double angle = sign * Math.PI / (double) (1L << Math.min(q - k, 62));
+            buffer.multiplyWhereSet((1L << bits[q]) | (1L << bits[k]), Math.cos(angle), Math.sin(angle));
+        }
+    }
+
+    /**
+     * Reverses the order of the qubits of the transform.
+     */
+    private void reverse(StateBuffer buffer) {
+        for (int q = 0; q < bits.length / 2; q++) {
+            long low = 1L << bits[q];
+            long high = 1L << bits[bits.length - 1 - q];
+            buffer.swapWhere(low | high, low, low | high);
+        }
+    }
+
+    /**
+     * Method to apply gate to another gate/system of gates
+     *
+     * @param op Gate/network Quantum Fourier transform is being applied to
+     * @return
+     */
+    public Operator apply(Operator op) {
+        return new CompositeOperator(this, op);
+    }
+}
@@ -1,9 +1,9 @@
 package Operators.ShorFunction;
 import Core.Exceptions.NegativeIndexException;
-import Core.Math.Complex;
 import Core.Math.ComplexVector;
-import Core.Math.Modulo;
-import Core.Math.Power;
+import Core.Math.ModularExponentiation;
+import Core.Math.SparseStateBuffer;
+import Core.Math.StateBuffer;
 import Core.Operator;
 import Core.QRegister;
 import Operators.CompositeOperator;
@@ -42,20 +42,32 @@ public class ShorFunction implements Operator {
        ComplexVector funcVector =  funcValues.getComplexVector();
        
        ComplexVector argvector = args.getComplexVector();
-       //Combining QRegisters to obtain QRegister representing the state |x>|m^x Mod N>
-       ComplexVector reg = argvector.tensorKetProduct(funcVector);
-       ComplexVector regout = new ComplexVector(reg.length());
+       //QRegister representing the state |x>|m^x Mod N>, only one base per x is set so only those are stored
+       ComplexVector regout = new ComplexVector(new SparseStateBuffer((long) argvector.length() * funcVector.length()));
+       //Exact values of m^x Mod N for all x, computed once per m, N and size of the first QRegister
+       int[] values = ModularExponentiation.table(m, n, args.getBitCount());
        //Bit twiddling to obtain state of second QRegister
        for (int i=0; i<argvector.length();i++){
-           Modulo funcValue = new Modulo(Power.pow(m,i),n);
-           long val = funcValue.getValue();
-           regout.setComponent(new Complex(1,0),(int)val+(i*funcVector.length()));
-          // System.out.println(regout);
+           regout.getStateBuffer().set(values[i]+((long) i*funcVector.length()), 1, 0);
        }
        QRegister out = new QRegister(regout);
        return out;   
        
    }
+   /**
+    * Method that prepares the state of the whole system directly, as the QFT of |0> on the first QRegister followed by this gate would give
+    * @param argumentBits number of qubits of the first QRegister |x>
+    * @param valueBits number of qubits of the second QRegister |m^x Mod N>
+    * @param m the integer m in the expression |x>|m^x Mod N>
+    * @param n the integer N in the expression |x>|m^x Mod N>
+    * @return QRegister representing entire state 1/sqrt(2^argumentBits) sum over x of |x>|m^x Mod N>
+    */
+   public static QRegister prepare(int argumentBits, int valueBits, int m, int n){
+       //Equal amplitudes for all x, written in one pass without the QFT or the tensor product
+       StateBuffer amplitudes = StateBuffer.allocate(1L << (argumentBits + valueBits));
+       amplitudes.setFunctionValues(argumentBits, valueBits, ModularExponentiation.table(m, n, argumentBits));
+       return new QRegister(amplitudes);
+   }
    /**
     * Method to apply Gate to Gate or system of gates
     * @param Op Gate/System of gates this gate is being applied to
@@ -1,19 +1,19 @@
 package Operators.Swap;
 
 import Core.Exceptions.BitOutOfBoundsException;
-import Core.Math.ComplexVector;
+import Core.InPlaceOperator;
 import Core.QRegister;
 
 /**
  * The SwapOperator implemented using bit manipulation.
  */
-public class SwapBitOperator extends SwapOperator {
+public class SwapBitOperator extends SwapOperator implements InPlaceOperator {
 
     /**
      * The two bit locations shifted in the right classical location.
      */
-    int tb1;
-    int tb2;
+    long tb1;
+    long tb2;
 
     /**
      * Constructs a SwapOperator as a bit manipulation implementation.
@@ -26,8 +26,8 @@ public class SwapBitOperator extends SwapOperator {
         super(Target1, Target2);
 
         //Initialize shifted locations
-        this.tb1 = 1 << Target1;
-        this.tb2 = 1 << Target2;
+        this.tb1 = 1L << Target1;
+        this.tb2 = 1L << Target2;
     }
 
     /**
@@ -43,30 +43,31 @@ public class SwapBitOperator extends SwapOperator {
      * @throws BitOutOfBoundsException
      */
     public QRegister apply(QRegister Register) throws BitOutOfBoundsException {
+        //Transform a copy so the given register is left unchanged
+        QRegister termin = Register.copy();
+
+        this.applyInPlace(termin);
+
+        return termin;
+    }
+
+    /**
+     * Applies the SwapOperator to a QRegister via a bit manipulation
+     * implementation, the amplitudes of the QRegister are overwritten. Each
+     * pair of bases |..1..0..> and |..0..1..> is swapped once.
+     *
+     * @param Register Register to be applied to.
+     * @throws BitOutOfBoundsException
+     */
+    public void applyInPlace(QRegister Register) throws BitOutOfBoundsException {
         //Size check
         if (Register.getBitCount() <= this.target1 || Register.getBitCount() <= this.target2) {
             throw new BitOutOfBoundsException();
         }
 
-        //Transform
-        ComplexVector initial = Register.getComplexVector();
-        ComplexVector termin = new ComplexVector(Register.getBaseCount());
-
-        for (int base = 0; base < Register.getBaseCount(); base++) {
-            //Filter componenents
-            int f1 = base & this.tb1;
-            int f2 = base & this.tb2;
-
-            //Compare components
-            if (f1 == 0 && f2 > 0) {
-                termin.setComponent(initial.getComponent(base), base ^ (tb1 | tb2));
-            } else if (f1 > 0 && f2 == 0) {
-                termin.setComponent(initial.getComponent(base), base ^ (tb1 | tb2));
-            } else {
-                termin.setComponent(initial.getComponent(base), base);
-            }
-        }
+        long both = tb1 | tb2;
 
-        return new QRegister(Register, termin);
+        //Only visit the base of each pair with the first bit set and the second clear
+        Register.getStateBuffer().swapWhere(both, tb1, both);
     }
 }
@@ -0,0 +1,255 @@
+package Operators.Unitary;
+
+import Core.Exceptions.BitOutOfBoundsException;
+import Core.InPlaceOperator;
+import Core.QRegister;
+import Core.Math.StateBuffer;
+
+/**
+ * A UnitaryBitOperator is a bit manipulation implementation of
+ * UnitaryOperator.
+ *
+ * The shape of the matrix is detected when the operator is constructed, so
+ * every application runs the cheapest kernel of the StateBuffer: diagonal
+ * matrices only multiply, anti-diagonal ones swap the pairs and multiply,
+ * real matrices use the real pair transform and only general matrices need
+ * complex arithmetic on both amplitudes of a pair.
+ */
+public class UnitaryBitOperator extends UnitaryOperator implements InPlaceOperator {
+
+    /**
+     * The kernels a matrix can be applied with.
+     */
+    private enum Kind {
+
+        /**
+         * Only the amplitudes with the bit set are multiplied, e.g. the phase
+         * shift.
+         */
+        PHASE,
+        /**
+         * Both halves are multiplied by different factors.
+         */
+        DIAGONAL,
+        /**
+         * The pairs are swapped, e.g. the NOT gate.
+         */
+        SWAP,
+        /**
+         * The pairs are swapped and both halves multiplied.
+         */
+        ANTI_DIAGONAL,
+        /**
+         * Real matrix, e.g. the Hadamard gate.
+         */
+        REAL,
+        /**
+         * Any other complex matrix.
+         */
+        GENERAL
+    }
+
+    /**
+     * Buffered binary representation of the bit.
+     */
+    private long shift;
+    /**
+     * Kernel the matrix is applied with.
+     */
+    private Kind kind;
+
+    /**
+     * Constructs a UnitaryOperator with a complex matrix.
+     *
+     * @param Bit Bit location in given Register to apply to.
+     * @param Real real parts of the four matrix elements, row by row
+     * @param Imaginary imaginary parts of the four matrix elements, row by row
+     */
+    public UnitaryBitOperator(int Bit, double[] Real, double[] Imaginary) {
+        super(Bit, Real, Imaginary);
+
+        this.shift = 1L << Bit;
+        this.kind = classify(real, imaginary);
+    }
+
+    /**
+     * Constructs a UnitaryOperator with a real matrix.
+     *
+     * @param Bit Bit location in given Register to apply to.
+     * @param A top left element
+     * @param B top right element
+     * @param C bottom left element
+     * @param D bottom right element
+     */
+    public UnitaryBitOperator(int Bit, double A, double B, double C, double D) {
+        this(Bit, new double[]{A, B, C, D}, new double[4]);
+    }
+
+    /**
+     * Returns the Hadamard gate on a qubit.
+     *
+     * @param Bit Qubit the gate acts on
+     * @return the gate
+     */
+    public static UnitaryBitOperator hadamard(int Bit) {
+        double onesqrt = 1.0 / Math.sqrt(2);
+        return new UnitaryBitOperator(Bit, onesqrt, onesqrt, onesqrt, -onesqrt);
+    }
+
+    /**
+     * Returns the phase shift gate on a qubit.
+     *
+     * @param Bit Qubit the gate acts on
+     * @param Shift Phase shift of the state one
+     * @return the gate
+     */
+    public static UnitaryBitOperator phase(int Bit, double Shift) {
+        return new UnitaryBitOperator(Bit, new double[]{1, 0, 0, Math.cos(Shift)}, new double[]{0, 0, 0, Math.sin(Shift)});
+    }
+
+    /**
+     * Returns the NOT gate, Pauli X, on a qubit.
+     *
+     * @param Bit Qubit the gate acts on
+     * @return the gate
+     */
+    public static UnitaryBitOperator not(int Bit) {
+        return new UnitaryBitOperator(Bit, 0, 1, 1, 0);
+    }
+
+    /**
+     * Returns the rotation by an angle around the y axis on a qubit.
+     *
+     * @param Bit Qubit the gate acts on
+     * @param Angle The rotation angle
+     * @return the gate
+     */
+    public static UnitaryBitOperator rotationY(int Bit, double Angle) {
+        double cos = Math.cos(Angle / 2);
+        double sin = Math.sin(Angle / 2);
+        return new UnitaryBitOperator(Bit, cos, -sin, sin, cos);
+    }
+
+    /**
+     * Returns the kernel a matrix can be applied with.
+     */
+    private static Kind classify(double[] Real, double[] Imaginary) {
+        boolean diagonal = Real[1] == 0 && Imaginary[1] == 0 && Real[2] == 0 && Imaginary[2] == 0;
+        boolean antiDiagonal = Real[0] == 0 && Imaginary[0] == 0 && Real[3] == 0 && Imaginary[3] == 0;
+
+        if (diagonal) {
+            return (Real[0] == 1 && Imaginary[0] == 0) ? Kind.PHASE : Kind.DIAGONAL;
+        }
+        if (antiDiagonal) {
+            boolean ones = Real[1] == 1 && Imaginary[1] == 0 && Real[2] == 1 && Imaginary[2] == 0;
+            return ones ? Kind.SWAP : Kind.ANTI_DIAGONAL;
+        }
+        for (double im : Imaginary) {
+            if (im != 0) {
+                return Kind.GENERAL;
+            }
+        }
+        return Kind.REAL;
+    }
+
+    /**
+     * Applies the UnitaryOperator to the given Register with a bit
+     * manipulation.
+     *
+     * @param Register The QRegister to which the Operator will be applied.
+     * @return Returns the transformed QRegister.
+     */
+    public QRegister apply(QRegister Register) throws BitOutOfBoundsException {
+        //Transform a copy so the given register is left unchanged
+        QRegister termin = Register.copy();
+
+        this.applyInPlace(termin);
+
+        //Return new QRegister
+        return termin;
+    }
+
+    /**
+     * Applies the UnitaryOperator to the given Register with a bit
+     * manipulation, the amplitudes of the Register are overwritten.
+     *
+     * @param Register The QRegister to which the Operator will be applied.
+     * @throws BitOutOfBoundsException
+     */
+    public void applyInPlace(QRegister Register) throws BitOutOfBoundsException {
+        applyControlledInPlace(Register, 0L, 0L);
+    }
+
+    /**
+     * Applies the UnitaryOperator to the subspace of the given Register in
+     * which the control qubits have given values, the amplitudes of the
+     * Register are overwritten. Only the amplitudes of that subspace are
+     * visited.
+     *
+     * @param Register The QRegister to which the Operator will be applied.
+     * @param ControlMask Bits of the control qubits, without the target bit.
+     * @param ControlValue Required values of the control bits, a bit is clear
+     * for a negative control.
+     * @throws BitOutOfBoundsException
+     */
+    public void applyControlledInPlace(QRegister Register, long ControlMask, long ControlValue) throws BitOutOfBoundsException {
+        //Check for size constraint
+        if (Register.getBitCount() <= this.bit || this.bit < 0) {
+            throw new BitOutOfBoundsException();
+        }
+
+        StateBuffer buffer = Register.getStateBuffer();
+        double[] re = this.real;
+        double[] im = this.imaginary;
+
+        if (ControlMask == 0) {
+            switch (kind) {
+                case PHASE:
+                    //Only the bases in which the bit is set are changed
+                    buffer.multiplyWhereSet(shift, re[3], im[3]);
+                    break;
+                case DIAGONAL:
+                    buffer.multiplyPairs(shift, re[0], im[0], re[3], im[3]);
+                    break;
+                case SWAP:
+                    buffer.swapWhere(shift, 0L, shift);
+                    break;
+                case ANTI_DIAGONAL:
+                    //After the swap the bases with the bit clear hold b*x1, the others c*x0
+                    buffer.swapWhere(shift, 0L, shift);
+                    buffer.multiplyPairs(shift, re[1], im[1], re[2], im[2]);
+                    break;
+                case REAL:
+                    buffer.transformPairs(shift, re[0], re[1], re[2], re[3]);
+                    break;
+                default:
+                    buffer.transformPairs(shift, re[0], im[0], re[1], im[1], re[2], im[2], re[3], im[3]);
+                    break;
+            }
+            return;
+        }
+
+        //The same kernels restricted to the bases matching the controls
+        long mask = ControlMask | shift;
+        switch (kind) {
+            case PHASE:
+                buffer.multiplyWhere(mask, ControlValue | shift, re[3], im[3]);
+                break;
+            case DIAGONAL:
+                buffer.multiplyWhere(mask, ControlValue, re[0], im[0]);
+                buffer.multiplyWhere(mask, ControlValue | shift, re[3], im[3]);
+                break;
+            case SWAP:
+                buffer.swapWhere(mask, ControlValue, shift);
+                break;
+            case ANTI_DIAGONAL:
+                buffer.swapWhere(mask, ControlValue, shift);
+                buffer.multiplyWhere(mask, ControlValue, re[1], im[1]);
+                buffer.multiplyWhere(mask, ControlValue | shift, re[2], im[2]);
+                break;
+            default:
+                buffer.transformPairsWhere(shift, ControlMask, ControlValue, re[0], im[0], re[1], im[1], re[2], im[2], re[3], im[3]);
+                break;
+        }
+    }
+}
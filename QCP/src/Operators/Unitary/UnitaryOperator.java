@@ -0,0 +1,59 @@
+package Operators.Unitary;
+
+import Core.Operator;
+import Operators.CompositeOperator;
+
+/**
+ * Implementation of a general single qubit gate given by a complex two-by-two
+ * matrix.
+ */
+public abstract class UnitaryOperator implements Operator {
+
+    /**
+     * Index of qubit acted on
+     */
+    protected int bit;
+    /**
+     * The real and imaginary parts of the matrix elements, in the order top
+     * left, top right, bottom left, bottom right.
+     */
+    protected double[] real;
+    protected double[] imaginary;
+
+    /**
+     * Constructor for a specific qubit index and matrix.
+     *
+     * @param Bit index of target qubit
+     * @param Real real parts of the four matrix elements, row by row
+     * @param Imaginary imaginary parts of the four matrix elements, row by row
+     */
+    public UnitaryOperator(int Bit, double[] Real, double[] Imaginary) {
+        if (Real.length != 4 || Imaginary.length != 4) {
+            throw new IllegalArgumentException("A single qubit gate needs four matrix elements");
+        }
+
+        this.bit = Bit;
+        this.real = Real.clone();
+        this.imaginary = Imaginary.clone();
+    }
+
+    /**
+     * Returns the index of the qubit acted on.
+     *
+     * @return index of target qubit
+     */
+    public int getBit() {
+        return this.bit;
+    }
+
+    /**
+     * Applies the UnitaryOperator to the other operator through a
+     * CompositeOperator.
+     *
+     * @param Op The Operator that is being applied to.
+     * @return Returns a new CompositeOperator.
+     */
+    public Operator apply(Operator Op) {
+        return new CompositeOperator(this, Op);
+    }
+}